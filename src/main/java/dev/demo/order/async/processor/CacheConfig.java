@@ -0,0 +1,18 @@
+package dev.demo.order.async.processor;
+
+import dev.demo.order.async.processor.cache.SingleFlight;
+import dev.demo.order.async.processor.repository.model.Order;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.UUID;
+
+@Configuration
+public class CacheConfig {
+
+    @Bean
+    public SingleFlight<UUID, Order> orderSingleFlight(MeterRegistry meterRegistry) {
+        return new SingleFlight<>("orders", meterRegistry);
+    }
+}
@@ -0,0 +1,132 @@
+package dev.demo.order.async.processor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.HttpMessageEncoder;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.codec.json.AbstractJackson2Encoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary encodings of the JSON data model, negotiated by content type: CBOR as {@code application/cbor} and
+ * Smile as {@code application/x-jackson-smile}. Both use mappers built from the application's Jackson
+ * configuration, so they serialize exactly the fields and formats JSON does, only with less parsing and
+ * fewer bytes. The codecs apply to the server and, through {@link WebClientConfig}, to the WebClient.
+ */
+@Configuration
+public class CodecConfig {
+
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+    public static final MediaType APPLICATION_SMILE = MediaType.parseMediaType(APPLICATION_SMILE_VALUE);
+
+    private static final MediaType APPLICATION_STREAM_SMILE =
+            MediaType.parseMediaType("application/stream+x-jackson-smile");
+
+    @Bean
+    public CodecCustomizer binaryCodecCustomizer(ObjectProvider<Jackson2ObjectMapperBuilder> mapperBuilder) {
+        ObjectMapper cborMapper = mapperBuilder.getObject().factory(new CBORFactory()).build();
+        ObjectMapper smileMapper = mapperBuilder.getObject().factory(new SmileFactory()).build();
+        // Codecs built on a given mapper support only the media types passed along with it
+        return configurer -> {
+            configurer.customCodecs().register(new Jackson2CborDecoder(cborMapper, MediaType.APPLICATION_CBOR));
+            configurer.customCodecs().register(
+                    new ListEncoder(new Jackson2CborEncoder(cborMapper, MediaType.APPLICATION_CBOR)));
+            configurer.customCodecs().register(
+                    new Jackson2SmileDecoder(smileMapper, APPLICATION_SMILE, APPLICATION_STREAM_SMILE));
+            configurer.customCodecs().register(new ListEncoder(
+                    new Jackson2SmileEncoder(smileMapper, APPLICATION_SMILE, APPLICATION_STREAM_SMILE)));
+        };
+    }
+
+    /**
+     * Encodes a multi-value body as one array. The Jackson binary encoders can only write a stream of values
+     * as separate documents for their streaming media types; a {@code Flux} body in the plain media type is
+     * collected first, where JSON would be written incrementally.
+     */
+    static class ListEncoder implements HttpMessageEncoder<Object> {
+
+        private final AbstractJackson2Encoder delegate;
+
+        ListEncoder(AbstractJackson2Encoder delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public boolean canEncode(ResolvableType elementType, MimeType mimeType) {
+            return delegate.canEncode(elementType, mimeType);
+        }
+
+        @Override
+        public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory,
+                                       ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
+            // The CBOR encoder has no encode of its own, a single value goes through encodeValue
+            if (inputStream instanceof Mono) {
+                return Mono.from(inputStream)
+                        .map(value -> delegate.encodeValue(value, bufferFactory, elementType, mimeType, hints))
+                        .flux();
+            }
+            if (isStreaming(mimeType)) {
+                return delegate.encode(inputStream, bufferFactory, elementType, mimeType, hints);
+            }
+            ResolvableType listType = ResolvableType.forClassWithGenerics(List.class, elementType);
+            return Flux.from(inputStream)
+                    .collectList()
+                    .map(values -> delegate.encodeValue(values, bufferFactory, listType, mimeType, hints))
+                    .flux();
+        }
+
+        @Override
+        public DataBuffer encodeValue(Object value, DataBufferFactory bufferFactory, ResolvableType valueType,
+                                      MimeType mimeType, Map<String, Object> hints) {
+            return delegate.encodeValue(value, bufferFactory, valueType, mimeType, hints);
+        }
+
+        @Override
+        public List<MimeType> getEncodableMimeTypes() {
+            return delegate.getEncodableMimeTypes();
+        }
+
+        @Override
+        public List<MimeType> getEncodableMimeTypes(ResolvableType elementType) {
+            return delegate.getEncodableMimeTypes(elementType);
+        }
+
+        @Override
+        public List<MediaType> getStreamingMediaTypes() {
+            return delegate.getStreamingMediaTypes();
+        }
+
+        @Override
+        public Map<String, Object> getEncodeHints(ResolvableType actualType, ResolvableType elementType,
+                                                  MediaType mediaType, ServerHttpRequest request,
+                                                  ServerHttpResponse response) {
+            return delegate.getEncodeHints(actualType, elementType, mediaType, request, response);
+        }
+
+        private boolean isStreaming(MimeType mimeType) {
+            return mimeType != null && delegate.getStreamingMediaTypes().stream()
+                    .anyMatch(streaming -> streaming.isCompatibleWith(mimeType));
+        }
+    }
+}
@@ -2,10 +2,12 @@ package dev.demo.order.async.processor;
 
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Tags;
+import io.micrometer.observation.ObservationRegistry;
 import io.r2dbc.pool.ConnectionPool;
 import io.r2dbc.pool.ConnectionPoolConfiguration;
 import io.r2dbc.postgresql.PostgresqlConnectionConfiguration;
 import io.r2dbc.postgresql.PostgresqlConnectionFactory;
+import io.r2dbc.proxy.ProxyConnectionFactory;
 import io.r2dbc.spi.ConnectionFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -37,6 +39,9 @@ public class DatabaseConfig extends AbstractR2dbcConfiguration {
     @Value("${spring.r2dbc.password}")
     private String password;
 
+    @Value("${spring.r2dbc.fetch-size:250}")
+    private int fetchSize;
+
     @Value("${spring.r2dbc.pool.initial-size:20}")
     private int initialSize;
 
@@ -52,11 +57,16 @@ public class DatabaseConfig extends AbstractR2dbcConfiguration {
     @Value("${spring.r2dbc.pool.acquire-retry:3}")
     private int acquireRetry;
 
+    @Value("${spring.r2dbc.pool.acquire-slo:1ms,5ms,25ms,100ms,500ms}")
+    private Duration[] acquireSlo;
+
     private final MeterRegistry meterRegistry;
+    private final ObservationRegistry observationRegistry;
 
     @Autowired
-    public DatabaseConfig(MeterRegistry meterRegistry) {
+    public DatabaseConfig(MeterRegistry meterRegistry, ObservationRegistry observationRegistry) {
         this.meterRegistry = meterRegistry;
+        this.observationRegistry = observationRegistry;
     }
 
     @Bean
@@ -71,6 +81,8 @@ public class DatabaseConfig extends AbstractR2dbcConfiguration {
                 .connectTimeout(Duration.ofSeconds(5))
                 .tcpKeepAlive(true)
                 .tcpNoDelay(true)
+                // Fetch rows through a cursor in batches, so downstream demand paces the query
+                .fetchSize(fetchSize)
                 .build());
     }
 
@@ -78,6 +90,11 @@ public class DatabaseConfig extends AbstractR2dbcConfiguration {
     @Bean
     @Primary
     public ConnectionFactory connectionFactory() {
+        MicrometerPoolMetricsRecorder metricsRecorder = new MicrometerPoolMetricsRecorder(
+                meterRegistry,
+                "r2dbc.pool",
+                Tags.of("db", "postgres"),
+                acquireSlo);
         ConnectionPoolConfiguration configuration = ConnectionPoolConfiguration.builder(postgresqlConnectionFactory())
                 .initialSize(initialSize)
                 .maxSize(maxSize)
@@ -86,14 +103,15 @@ public class DatabaseConfig extends AbstractR2dbcConfiguration {
                 .maxAcquireTime(Duration.ofSeconds(10))
                 .validationQuery(validationQuery)
                 // Register a custom metrics reporter
-                .metricsRecorder(new MicrometerPoolMetricsRecorder(
-                        meterRegistry,
-                        "r2dbc.pool",
-                        Tags.of("db", "postgres")
-                ))
+                .metricsRecorder(metricsRecorder)
                 .build();
 
-        return new ConnectionPool(configuration);
+        ConnectionPool pool = new ConnectionPool(configuration);
+        metricsRecorder.bindTo(pool);
+        // Observe each statement on top of the pool, so connection hold time spans acquire to release
+        return ProxyConnectionFactory.builder(pool)
+                .listener(new QueryMetricsListener(meterRegistry, observationRegistry))
+                .build();
     }
 
     @Bean
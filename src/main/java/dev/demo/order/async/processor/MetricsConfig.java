@@ -10,7 +10,6 @@ import io.micrometer.core.instrument.binder.jvm.JvmThreadMetrics;
 import io.micrometer.core.instrument.binder.system.ProcessorMetrics;
 import io.micrometer.core.instrument.binder.system.UptimeMetrics;
 import io.micrometer.observation.ObservationRegistry;
-import io.micrometer.observation.aop.ObservedAspect;
 import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
@@ -77,11 +76,6 @@ public class MetricsConfig {
                 ));
     }
 
-    @Bean
-    public ObservedAspect observedAspect() {
-        return new ObservedAspect(observationRegistry);
-    }
-
     @Bean
     public ObservationThreadLocalAccessor observationThreadLocalAccessor() {
         return new ObservationThreadLocalAccessor();
@@ -1,87 +1,158 @@
 package dev.demo.order.async.processor;
 
+import dev.demo.order.async.processor.jfr.PoolAcquireEvent;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Tags;
 import io.micrometer.core.instrument.Timer;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.PoolMetrics;
 import reactor.pool.PoolMetricsRecorder;
 
+import java.time.Duration;
 import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
 
+/**
+ * Records connection pool events. Every meter is registered up front, so recording an event on the
+ * acquire path is a plain update of a held meter. Acquirers that had to wait also emit a
+ * {@link PoolAcquireEvent} while a flight recording is running.
+ */
 public class MicrometerPoolMetricsRecorder implements PoolMetricsRecorder {
     private final MeterRegistry meterRegistry;
     private final String prefix;
     private final Tags tags;
 
+    private final Timer allocationSuccess;
+    private final Timer allocationFailure;
+    private final Timer reset;
+    private final Timer destroy;
+    private final Counter recycled;
+    private final Timer lifetime;
+    private final Timer idleTime;
+    private final Counter slowPath;
+    private final Counter fastPath;
+    private final Timer pendingSuccess;
+    private final Timer pendingFailure;
+
     public MicrometerPoolMetricsRecorder(MeterRegistry meterRegistry, String prefix, Tags tags) {
+        this(meterRegistry, prefix, tags, new Duration[0]);
+    }
+
+    /**
+     * @param acquireSlos Buckets of the histogram of the time acquirers wait for a connection
+     */
+    public MicrometerPoolMetricsRecorder(MeterRegistry meterRegistry, String prefix, Tags tags,
+                                         Duration... acquireSlos) {
         this.meterRegistry = meterRegistry;
         this.prefix = prefix;
         this.tags = tags;
+
+        this.allocationSuccess = timer(".allocation.success");
+        this.allocationFailure = timer(".allocation.failure");
+        this.reset = timer(".reset");
+        this.destroy = timer(".destroy");
+        this.recycled = Counter.builder(prefix + ".recycled").tags(tags).register(meterRegistry);
+        this.lifetime = timer(".lifetime");
+        this.idleTime = timer(".idle.time");
+        this.slowPath = Counter.builder(prefix + ".acquire.slow").tags(tags).register(meterRegistry);
+        this.fastPath = Counter.builder(prefix + ".acquire.fast").tags(tags).register(meterRegistry);
+        this.pendingSuccess = pendingTimer("success", acquireSlos);
+        this.pendingFailure = pendingTimer("failure", acquireSlos);
+    }
+
+    /**
+     * Register gauges of the pool's current state
+     *
+     * @param pool Pool this recorder was configured on
+     */
+    public void bindTo(ConnectionPool pool) {
+        poolGauge(prefix + ".pending.acquirers", pool, PoolMetrics::pendingAcquireSize,
+                "Subscribers waiting for a connection", Tags.empty());
+        poolGauge(prefix + ".connections", pool, PoolMetrics::idleSize,
+                "Connections in the pool, by state", Tags.of("state", "idle"));
+        poolGauge(prefix + ".connections", pool, PoolMetrics::acquiredSize,
+                "Connections in the pool, by state", Tags.of("state", "acquired"));
     }
 
     @Override
     public void recordAllocationSuccessAndLatency(long latencyNanos) {
-        Timer.builder(prefix + ".allocation.success")
-                .tags(tags)
-                .register(meterRegistry)
-                .record(latencyNanos, TimeUnit.NANOSECONDS);
+        allocationSuccess.record(latencyNanos, TimeUnit.NANOSECONDS);
     }
 
     @Override
     public void recordAllocationFailureAndLatency(long latencyNanos) {
-        Timer.builder(prefix + ".allocation.failure")
-                .tags(tags)
-                .register(meterRegistry)
-                .record(latencyNanos, TimeUnit.NANOSECONDS);
+        allocationFailure.record(latencyNanos, TimeUnit.NANOSECONDS);
     }
 
     @Override
     public void recordResetLatency(long latencyNanos) {
-        Timer.builder(prefix + ".reset").tags(tags).register(meterRegistry).record(latencyNanos, TimeUnit.NANOSECONDS);
+        reset.record(latencyNanos, TimeUnit.NANOSECONDS);
     }
 
     @Override
     public void recordDestroyLatency(long latencyNanos) {
-        Timer.builder(prefix + ".destroy")
-                .tags(tags)
-                .register(meterRegistry)
-                .record(latencyNanos, TimeUnit.NANOSECONDS);
+        destroy.record(latencyNanos, TimeUnit.NANOSECONDS);
     }
 
     @Override
     public void recordRecycled() {
-        Counter.builder(prefix + ".recycled").tags(tags).register(meterRegistry).increment();
+        recycled.increment();
     }
 
     @Override
     public void recordLifetimeDuration(long durationNanos) {
-        Timer.builder(prefix + ".lifetime")
-                .tags(tags)
-                .register(meterRegistry)
-                .record(durationNanos, TimeUnit.NANOSECONDS);
+        lifetime.record(durationNanos, TimeUnit.NANOSECONDS);
     }
 
     @Override
     public void recordIdleTime(long idleTimeNanos) {
-        Timer.builder(prefix + ".idle.time")
-                .tags(tags)
-                .register(meterRegistry)
-                .record(idleTimeNanos, TimeUnit.NANOSECONDS);
+        idleTime.record(idleTimeNanos, TimeUnit.NANOSECONDS);
     }
 
     @Override
     public void recordSlowPath() {
-        Counter.builder(prefix + ".acquire.slow")
-                .tags(tags)
-                .register(meterRegistry)
-                .increment();
+        slowPath.increment();
     }
 
     @Override
     public void recordFastPath() {
-        Counter.builder(prefix + ".acquire.fast")
+        fastPath.increment();
+    }
+
+    @Override
+    public void recordPendingSuccessAndLatency(long latencyNanos) {
+        pendingSuccess.record(latencyNanos, TimeUnit.NANOSECONDS);
+        PoolAcquireEvent.record(prefix, latencyNanos, "success");
+    }
+
+    @Override
+    public void recordPendingFailureAndLatency(long latencyNanos) {
+        pendingFailure.record(latencyNanos, TimeUnit.NANOSECONDS);
+        PoolAcquireEvent.record(prefix, latencyNanos, "failure");
+    }
+
+    private Timer timer(String suffix) {
+        return Timer.builder(prefix + suffix).tags(tags).register(meterRegistry);
+    }
+
+    private Timer pendingTimer(String outcome, Duration[] slos) {
+        return Timer.builder(prefix + ".acquire.pending")
+                .description("Time acquirers that found no idle connection waited for one")
                 .tags(tags)
-                .register(meterRegistry)
-                .increment();
+                .tag("outcome", outcome)
+                .serviceLevelObjectives(slos)
+                .register(meterRegistry);
+    }
+
+    private void poolGauge(String name, ConnectionPool pool, ToIntFunction<PoolMetrics> value, String description,
+                           Tags extraTags) {
+        Gauge.builder(name, pool, connectionPool -> connectionPool.getMetrics()
+                        .map(value::applyAsInt)
+                        .orElse(0))
+                .description(description)
+                .tags(tags.and(extraTags))
+                .register(meterRegistry);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,152 @@
+package dev.demo.order.async.processor;
+
+import io.micrometer.context.ContextRegistry;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.r2dbc.proxy.core.ConnectionInfo;
+import io.r2dbc.proxy.core.MethodExecutionInfo;
+import io.r2dbc.proxy.core.QueryExecutionInfo;
+import io.r2dbc.proxy.listener.ProxyExecutionListener;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records every statement executed through the proxied connection factory, tagged with the repository method
+ * it came from: {@code db.query} times it until its results are consumed, {@code db.query.rows} counts the
+ * rows read, and {@code db.connection.held} times each connection from acquire to release. The origin is
+ * written to the Reactor context under {@value #ORIGIN} by the repository aspect and read here through
+ * context propagation; statements issued outside a repository method are tagged {@value #UNKNOWN}.
+ * <p>
+ * Each statement also counts as a round trip of the current observation, see {@link #roundTrips}.
+ */
+public class QueryMetricsListener implements ProxyExecutionListener {
+
+    /**
+     * Reactor context key of the repository method a statement is executed for
+     */
+    public static final String ORIGIN = "db.query.origin";
+
+    private static final String UNKNOWN = "unknown";
+    private static final String ACQUIRED_AT = "db.connection.acquired";
+    private static final ThreadLocal<String> CURRENT_ORIGIN = new ThreadLocal<>();
+
+    static {
+        ContextRegistry.getInstance().registerThreadLocalAccessor(ORIGIN,
+                CURRENT_ORIGIN::get, CURRENT_ORIGIN::set, CURRENT_ORIGIN::remove);
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final ObservationRegistry observationRegistry;
+    private final Map<String, OriginMeters> meters = new ConcurrentHashMap<>();
+
+    public QueryMetricsListener(MeterRegistry meterRegistry, ObservationRegistry observationRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.observationRegistry = observationRegistry;
+    }
+
+    /**
+     * Statements executed while the observation of a context was current
+     *
+     * @return Round trips to the database, 0 if none
+     */
+    public static int roundTrips(Observation.Context context) {
+        AtomicInteger count = context.get(RoundTrips.class);
+        return count != null ? count.get() : 0;
+    }
+
+    @Override
+    public void afterMethod(MethodExecutionInfo executionInfo) {
+        if (executionInfo.getTarget() instanceof ConnectionFactory
+                && "create".equals(executionInfo.getMethod().getName())
+                && executionInfo.getThrown() == null && executionInfo.getConnectionInfo() != null) {
+            executionInfo.getConnectionInfo().getValueStore().put(ACQUIRED_AT, System.nanoTime());
+        }
+    }
+
+    @Override
+    public void beforeMethod(MethodExecutionInfo executionInfo) {
+        if (executionInfo.getTarget() instanceof Connection
+                && "close".equals(executionInfo.getMethod().getName())
+                && executionInfo.getConnectionInfo() != null) {
+            ConnectionInfo connectionInfo = executionInfo.getConnectionInfo();
+            Long acquiredAt = connectionInfo.getValueStore().get(ACQUIRED_AT, Long.class);
+            if (acquiredAt != null) {
+                meters(connectionInfo.getValueStore().get(ORIGIN, String.class)).held
+                        .record(System.nanoTime() - acquiredAt, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    @Override
+    public void beforeQuery(QueryExecutionInfo executionInfo) {
+        String origin = currentOrigin();
+        executionInfo.getValueStore().put(ORIGIN, origin);
+        // A connection is held on behalf of the first repository method that executes a statement on it
+        ConnectionInfo connectionInfo = executionInfo.getConnectionInfo();
+        if (connectionInfo != null && connectionInfo.getValueStore().get(ORIGIN) == null) {
+            connectionInfo.getValueStore().put(ORIGIN, origin);
+        }
+        Observation observation = observationRegistry.getCurrentObservation();
+        // The no-op observation shares one context, so nothing may be counted on it
+        if (observation != null && !observation.isNoop()) {
+            observation.getContext().computeIfAbsent(RoundTrips.class, key -> new RoundTrips()).incrementAndGet();
+        }
+    }
+
+    @Override
+    public void afterQuery(QueryExecutionInfo executionInfo) {
+        OriginMeters originMeters = meters(executionInfo.getValueStore().get(ORIGIN, String.class));
+        (executionInfo.isSuccess() ? originMeters.success : originMeters.error)
+                .record(executionInfo.getExecuteDuration());
+        originMeters.rows.record(executionInfo.getCurrentResultCount());
+    }
+
+    private static String currentOrigin() {
+        String origin = CURRENT_ORIGIN.get();
+        return origin != null ? origin : UNKNOWN;
+    }
+
+    private OriginMeters meters(String origin) {
+        return meters.computeIfAbsent(origin != null ? origin : UNKNOWN, OriginMeters::new);
+    }
+
+    private static final class RoundTrips extends AtomicInteger {
+    }
+
+    private class OriginMeters {
+
+        private final Timer success;
+        private final Timer error;
+        private final DistributionSummary rows;
+        private final Timer held;
+
+        OriginMeters(String origin) {
+            this.success = queryTimer(origin, "success");
+            this.error = queryTimer(origin, "error");
+            this.rows = DistributionSummary.builder("db.query.rows")
+                    .description("Rows read by a statement")
+                    .tag("origin", origin)
+                    .register(meterRegistry);
+            this.held = Timer.builder("db.connection.held")
+                    .description("Time from acquiring a connection until it was released")
+                    .tag("origin", origin)
+                    .register(meterRegistry);
+        }
+
+        private Timer queryTimer(String origin, String outcome) {
+            return Timer.builder("db.query")
+                    .description("Time from executing a statement until its results were consumed")
+                    .tag("origin", origin)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry);
+        }
+    }
+}
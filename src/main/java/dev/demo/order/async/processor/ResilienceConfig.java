@@ -1,5 +1,7 @@
 package dev.demo.order.async.processor;
 
+import dev.demo.order.async.processor.retry.BudgetedRetryRegistry;
+import dev.demo.order.async.processor.retry.RetryBudget;
 import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
 import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
 import io.github.resilience4j.retry.RetryConfig;
@@ -20,6 +22,8 @@ public class ResilienceConfig {
         CircuitBreakerConfig circuitBreakerConfig = CircuitBreakerConfig.custom()
                 .failureRateThreshold(50)
                 .waitDurationInOpenState(Duration.ofSeconds(10))
+                // Schedulers stop calling while a breaker is open, so it has to move to HALF_OPEN on its own
+                .automaticTransitionFromOpenToHalfOpenEnabled(true)
                 .permittedNumberOfCallsInHalfOpenState(5)
                 .slidingWindowSize(10)
                 .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
@@ -31,14 +35,14 @@ public class ResilienceConfig {
     }
 
     @Bean
-    public RetryRegistry retryRegistry() {
+    public RetryRegistry retryRegistry(RetryBudget retryBudget) {
         RetryConfig retryConfig = RetryConfig.custom()
                 .maxAttempts(3)
                 .waitDuration(Duration.ofMillis(500))
                 .retryExceptions(IOException.class, WebClientResponseException.class)
                 .build();
 
-        return RetryRegistry.of(retryConfig);
+        return new BudgetedRetryRegistry(retryConfig, retryBudget);
     }
 
     @Bean
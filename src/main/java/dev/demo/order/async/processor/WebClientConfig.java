@@ -1,7 +1,6 @@
 package dev.demo.order.async.processor;
 
 import io.micrometer.core.instrument.MeterRegistry;
-import io.micrometer.core.instrument.Tag;
 import io.micrometer.observation.ObservationRegistry;
 import io.netty.channel.ChannelOption;
 import io.netty.handler.timeout.ReadTimeoutHandler;
@@ -9,7 +8,9 @@ import io.netty.handler.timeout.WriteTimeoutHandler;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.codec.CodecCustomizer;
 import org.springframework.boot.web.reactive.function.client.WebClientCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -24,7 +25,6 @@ import reactor.netty.resources.ConnectionProvider;
 
 import java.net.URI;
 import java.time.Duration;
-import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
 
 @Configuration
@@ -49,12 +49,14 @@ public class WebClientConfig {
     @Bean
     public WebClient.Builder webClientBuilder(
             ObservationRegistry observationRegistry,
-            MeterRegistry meterRegistry
+            MeterRegistry meterRegistry,
+            ObjectProvider<CodecCustomizer> codecCustomizers
     ) {
         ConnectionProvider provider = ConnectionProvider.builder("custom")
                 .maxConnections(maxConnections)
                 .pendingAcquireTimeout(Duration.ofMillis(acquireTimeout))
                 .maxIdleTime(Duration.ofSeconds(60))
+                .metrics(true)
                 .build();
 
         HttpClient httpClient = HttpClient.create(provider)
@@ -65,9 +67,13 @@ public class WebClientConfig {
 
         return WebClient.builder()
                 .clientConnector(new ReactorClientHttpConnector(httpClient))
+                // Same codecs as the server, including the binary encodings of CodecConfig
+                .codecs(configurer -> codecCustomizers.orderedStream()
+                        .forEach(customizer -> customizer.customize(configurer)))
                 .filter(logRequest())
-                .filter(metricsFilter(meterRegistry))
                 .filter(errorHandlingFilter())
+                // Innermost, so the timing covers the error handler reading the body as well
+                .filter(new WebClientMetricsFilter(meterRegistry))
                 .observationRegistry(observationRegistry);
     }
 
@@ -86,27 +92,6 @@ public class WebClientConfig {
         });
     }
 
-    private ExchangeFilterFunction metricsFilter(MeterRegistry meterRegistry) {
-        return ExchangeFilterFunction.ofResponseProcessor(response -> {
-            String host = response.request().getURI().getHost();
-            String path = response.request().getURI().getPath();
-            String method = response.request().getMethod().name();
-            int status = response.statusCode().value();
-
-            meterRegistry.timer(
-                    "webclient.request",
-                    Arrays.asList(
-                            Tag.of("method", method),
-                            Tag.of("host", host),
-                            Tag.of("path", path),
-                            Tag.of("status", Integer.toString(status))
-                    )
-            ).record(Duration.ofMillis(1));
-
-            return Mono.just(response);
-        });
-    }
-
     private ExchangeFilterFunction errorHandlingFilter() {
         return ExchangeFilterFunction.ofResponseProcessor(response -> {
             HttpStatusCode status = response.statusCode();
@@ -0,0 +1,220 @@
+package dev.demo.order.async.processor;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.http.client.reactive.ClientHttpRequestDecorator;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Exchange filter recording real latency and payload sizes of outgoing requests.
+ * <p>
+ * The request timer runs from the moment the request starts being written until the response body has been
+ * fully read (or released), so it excludes time spent waiting for a pooled connection; that wait is recorded
+ * separately as {@code webclient.request.acquire}. Meters are resolved once per
+ * (method, host, path template, status) and reused.
+ */
+public class WebClientMetricsFilter implements ExchangeFilterFunction {
+
+    private static final String URI_TEMPLATE_ATTRIBUTE = WebClient.class.getName() + ".uriTemplate";
+    private static final String NO_TEMPLATE = "none";
+    private static final String CLIENT_ERROR = "CLIENT_ERROR";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<EndpointKey, EndpointMeters> endpointMeters = new ConcurrentHashMap<>();
+    private final Map<ExchangeKey, ExchangeMeters> exchangeMeters = new ConcurrentHashMap<>();
+
+    public WebClientMetricsFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return Mono.defer(() -> {
+            EndpointMeters endpoint = endpointMeters.computeIfAbsent(endpointKey(request), this::endpointMeters);
+            Exchange exchange = new Exchange(endpoint, System.nanoTime());
+
+            ClientRequest measured = ClientRequest.from(request)
+                    .body((outputMessage, context) ->
+                            request.body().insert(new MeasuringRequest(outputMessage, exchange), context))
+                    .build();
+
+            return next.exchange(measured)
+                    .map(response -> response.mutate()
+                            .body(body -> body
+                                    .doOnNext(buffer -> exchange.responseBytes.addAndGet(buffer.readableByteCount()))
+                                    // Before the body end reaches the reader, so the meters are current by then
+                                    .doOnTerminate(() -> exchange.complete(response.statusCode().value()))
+                                    .doOnCancel(() -> exchange.complete(response.statusCode().value())))
+                            .build())
+                    .doOnError(error -> exchange.complete(-1))
+                    .doOnCancel(() -> exchange.complete(-1));
+        });
+    }
+
+    private EndpointKey endpointKey(ClientRequest request) {
+        String template = request.attribute(URI_TEMPLATE_ATTRIBUTE)
+                .map(Object::toString)
+                .map(WebClientMetricsFilter::pathOf)
+                .orElse(NO_TEMPLATE);
+        String host = request.url().getHost();
+        return new EndpointKey(request.method().name(), host != null ? host : "none", template);
+    }
+
+    /**
+     * Strip scheme and authority from an absolute URI template, leaving the path and its placeholders
+     */
+    private static String pathOf(String template) {
+        int scheme = template.indexOf("://");
+        if (scheme < 0) {
+            return template;
+        }
+        int path = template.indexOf('/', scheme + 3);
+        if (path < 0) {
+            return "/";
+        }
+        int query = template.indexOf('?', path);
+        return query < 0 ? template.substring(path) : template.substring(path, query);
+    }
+
+    private EndpointMeters endpointMeters(EndpointKey key) {
+        Timer acquire = Timer.builder("webclient.request.acquire")
+                .description("Time spent waiting for a pooled connection before the request is written")
+                .tag("method", key.method())
+                .tag("host", key.host())
+                .tag("path", key.path())
+                .register(meterRegistry);
+        return new EndpointMeters(key, acquire);
+    }
+
+    private ExchangeMeters exchangeMeters(ExchangeKey key) {
+        EndpointKey endpoint = key.endpoint();
+        String status = key.status() < 0 ? CLIENT_ERROR : Integer.toString(key.status());
+
+        Timer latency = Timer.builder("webclient.request")
+                .description("Outgoing request latency from request write to response end")
+                .tag("method", endpoint.method())
+                .tag("host", endpoint.host())
+                .tag("path", endpoint.path())
+                .tag("status", status)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+
+        DistributionSummary requestSize = DistributionSummary.builder("webclient.request.size")
+                .description("Outgoing request body size")
+                .baseUnit("bytes")
+                .tag("method", endpoint.method())
+                .tag("host", endpoint.host())
+                .tag("path", endpoint.path())
+                .tag("status", status)
+                .register(meterRegistry);
+
+        DistributionSummary responseSize = DistributionSummary.builder("webclient.response.size")
+                .description("Incoming response body size")
+                .baseUnit("bytes")
+                .tag("method", endpoint.method())
+                .tag("host", endpoint.host())
+                .tag("path", endpoint.path())
+                .tag("status", status)
+                .register(meterRegistry);
+
+        return new ExchangeMeters(latency, requestSize, responseSize);
+    }
+
+    private record EndpointKey(String method, String host, String path) {
+    }
+
+    private record ExchangeKey(EndpointKey endpoint, int status) {
+    }
+
+    private record EndpointMeters(EndpointKey key, Timer acquire) {
+    }
+
+    private record ExchangeMeters(Timer latency, DistributionSummary requestSize, DistributionSummary responseSize) {
+    }
+
+    /**
+     * Per-exchange state, shared between the request decorator and the response body
+     */
+    private final class Exchange {
+        private final EndpointMeters endpoint;
+        private final long exchangeStart;
+        private final AtomicLong writeStart = new AtomicLong();
+        private final AtomicLong requestBytes = new AtomicLong();
+        private final AtomicLong responseBytes = new AtomicLong();
+        private final AtomicBoolean completed = new AtomicBoolean();
+
+        private Exchange(EndpointMeters endpoint, long exchangeStart) {
+            this.endpoint = endpoint;
+            this.exchangeStart = exchangeStart;
+        }
+
+        private void writeStarted() {
+            long now = System.nanoTime();
+            if (writeStart.compareAndSet(0, now)) {
+                endpoint.acquire().record(now - exchangeStart, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private void complete(int status) {
+            if (!completed.compareAndSet(false, true)) {
+                return;
+            }
+            long start = writeStart.get();
+            ExchangeMeters meters = exchangeMeters.computeIfAbsent(
+                    new ExchangeKey(endpoint.key(), status), WebClientMetricsFilter.this::exchangeMeters);
+            meters.latency().record(System.nanoTime() - (start != 0 ? start : exchangeStart), TimeUnit.NANOSECONDS);
+            meters.requestSize().record(requestBytes.get());
+            meters.responseSize().record(responseBytes.get());
+        }
+    }
+
+    /**
+     * Request decorator marking the start of the write, which happens once a connection has been acquired,
+     * and counting the bytes written
+     */
+    private static final class MeasuringRequest extends ClientHttpRequestDecorator {
+        private final Exchange exchange;
+
+        private MeasuringRequest(ClientHttpRequest delegate, Exchange exchange) {
+            super(delegate);
+            this.exchange = exchange;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            exchange.writeStarted();
+            return super.writeWith(Flux.from(body)
+                    .doOnNext(buffer -> exchange.requestBytes.addAndGet(buffer.readableByteCount())));
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            exchange.writeStarted();
+            return super.writeAndFlushWith(Flux.from(body)
+                    .map(chunk -> Flux.from(chunk)
+                            .doOnNext(buffer -> exchange.requestBytes.addAndGet(buffer.readableByteCount()))));
+        }
+
+        @Override
+        public Mono<Void> setComplete() {
+            exchange.writeStarted();
+            return super.setComplete();
+        }
+    }
+}
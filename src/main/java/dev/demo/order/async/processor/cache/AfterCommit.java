@@ -0,0 +1,36 @@
+package dev.demo.order.async.processor.cache;
+
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.reactive.TransactionSynchronization;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import reactor.core.publisher.Mono;
+
+/**
+ * Defers side effects such as cache updates until the surrounding reactive transaction has committed
+ */
+public final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    /**
+     * Run an action once the current transaction has committed, or right away without one
+     *
+     * @param action Action to run
+     * @return Completes once the action has been run or scheduled
+     */
+    public static Mono<Void> run(Runnable action) {
+        return TransactionSynchronizationManager.forCurrentTransaction()
+                .filter(TransactionSynchronizationManager::isSynchronizationActive)
+                .doOnNext(synchronizationManager -> synchronizationManager.registerSynchronization(
+                        new TransactionSynchronization() {
+                            @Override
+                            public Mono<Void> afterCommit() {
+                                return Mono.fromRunnable(action);
+                            }
+                        }))
+                .switchIfEmpty(Mono.fromRunnable(action))
+                .onErrorResume(NoTransactionException.class, error -> Mono.fromRunnable(action))
+                .then();
+    }
+}
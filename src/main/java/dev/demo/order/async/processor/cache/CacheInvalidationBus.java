@@ -0,0 +1,310 @@
+package dev.demo.order.async.processor.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.postgresql.PostgresqlConnectionFactory;
+import io.r2dbc.postgresql.api.Notification;
+import io.r2dbc.postgresql.api.PostgresqlResult;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Cross-node cache invalidation over a Postgres NOTIFY channel.
+ * <p>
+ * Writers publish {@code type:id:version}, optionally followed by {@code :detail}, with {@code pg_notify},
+ * which Postgres delivers only once the writing transaction commits. Every node keeps one dedicated LISTEN
+ * connection, outside the pool, and evicts the entry from the cache registered for the entity type. Bursts are
+ * coalesced into batches with one invalidation per entity. While the listener is disconnected notifications can
+ * be missed, so caches fall back to a short TTL and are cleared once the listener is back.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CacheInvalidationBus {
+
+    /**
+     * NOTIFY channel, fixed because the customers triggers in the changelog notify it too
+     */
+    public static final String CHANNEL = "cache_invalidation";
+
+    // Postgres rejects longer NOTIFY payloads, failing the transaction that sent them
+    private static final int MAX_PAYLOAD_BYTES = 7999;
+
+    private final PostgresqlConnectionFactory postgresqlConnectionFactory;
+    private final DatabaseClient databaseClient;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, List<InvalidationHandler>> handlers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> received = new ConcurrentHashMap<>();
+    private final AtomicBoolean connected = new AtomicBoolean();
+
+    @Value("${cache.invalidation.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cache.invalidation.batch-size:500}")
+    private int batchSize;
+
+    @Value("${cache.invalidation.batch-window:50ms}")
+    private Duration batchWindow;
+
+    @Value("${cache.invalidation.fallback-ttl:5s}")
+    private Duration fallbackTtl;
+
+    private Counter published;
+    private Counter publishErrors;
+    private Disposable listener;
+
+    @PostConstruct
+    public void init() {
+        published = Counter.builder("cache.invalidation.published")
+                .description("Cache invalidations published to other nodes")
+                .register(meterRegistry);
+        publishErrors = Counter.builder("cache.invalidation.publish.errors")
+                .description("Cache invalidations that could not be published")
+                .register(meterRegistry);
+        Gauge.builder("cache.invalidation.listener.connected", connected, value -> value.get() ? 1 : 0)
+                .description("Whether the cache invalidation listener connection is up")
+                .register(meterRegistry);
+
+        if (!enabled) {
+            log.info("Cross-node cache invalidation is disabled");
+            return;
+        }
+
+        // Nothing has been heard yet, so caches start out degraded until the listener is up
+        allHandlers().forEach(handler -> handler.degrade(fallbackTtl));
+        listener = listen()
+                .bufferTimeout(batchSize, batchWindow)
+                .subscribe(this::dispatch, error -> log.error("Cache invalidation listener stopped", error));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (listener != null) {
+            listener.dispose();
+        }
+    }
+
+    /**
+     * Register a cache holding entities of a type; several caches can register for the same type
+     *
+     * @param entityType Entity type used in published invalidations
+     * @param handler    Cache to evict from
+     */
+    public void register(String entityType, InvalidationHandler handler) {
+        handlers.computeIfAbsent(entityType, type -> new CopyOnWriteArrayList<>()).add(handler);
+        if (enabled && !connected.get()) {
+            handler.degrade(fallbackTtl);
+        }
+    }
+
+    /**
+     * Whether invalidations from other nodes are currently being delivered, always true when disabled
+     */
+    public boolean isDelivering() {
+        return !enabled || connected.get();
+    }
+
+    /**
+     * Tell all nodes that an entity changed. Within a transaction the notification is delivered on commit.
+     * Nothing is published for a type no cache has registered for, as every node runs the same handlers.
+     *
+     * @param entityType Entity type
+     * @param id         Entity ID
+     * @param version    Version written, or null if unknown
+     * @return Completes once published; publishing errors are logged and not propagated
+     */
+    public Mono<Void> publish(String entityType, UUID id, Long version) {
+        return publish(entityType, id, version, null);
+    }
+
+    /**
+     * Tell all nodes that an entity changed, with what handlers need to know about the change so they don't
+     * have to read it back. Within a transaction the notification is delivered on commit.
+     *
+     * @param entityType Entity type
+     * @param id         Entity ID
+     * @param version    Version written, or null if unknown
+     * @param detail     Handler-specific detail of the change, or null; left out if the payload would not fit
+     * @return Completes once published; publishing errors are logged and not propagated
+     */
+    public Mono<Void> publish(String entityType, UUID id, Long version, String detail) {
+        if (!enabled || !handlers.containsKey(entityType)) {
+            return Mono.empty();
+        }
+        String invalidation = entityType + ":" + id + ":" + (version != null ? version : "");
+        String payload = detail != null ? invalidation + ":" + detail : invalidation;
+        if (payload.getBytes(StandardCharsets.UTF_8).length > MAX_PAYLOAD_BYTES) {
+            // Other nodes still evict, only what the detail would have saved them from reading is lost
+            log.warn("Cache invalidation detail of {} {} is too long to publish, leaving it out", entityType, id);
+            payload = invalidation;
+        }
+        String notified = payload;
+        return databaseClient.sql("SELECT pg_notify(:channel, :payload)")
+                .bind("channel", CHANNEL)
+                .bind("payload", notified)
+                .fetch()
+                .rowsUpdated()
+                .doOnSuccess(rows -> published.increment())
+                .onErrorResume(error -> {
+                    publishErrors.increment();
+                    log.warn("Failed to publish cache invalidation {}: {}", notified, error.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private Flux<Invalidation> listen() {
+        return Flux.usingWhen(
+                        postgresqlConnectionFactory.create(),
+                        connection -> connection.createStatement("LISTEN " + CHANNEL)
+                                .execute()
+                                .flatMap(PostgresqlResult::getRowsUpdated)
+                                .then(Mono.fromRunnable(this::onConnected))
+                                .thenMany(connection.getNotifications()),
+                        connection -> connection.close())
+                // The notification stream only completes when the connection is closed, treat it like an error
+                .concatWith(Mono.error(() -> new IllegalStateException("Listener connection closed")))
+                .doFinally(signal -> onDisconnected())
+                .mapNotNull(this::parse)
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                        .maxBackoff(Duration.ofSeconds(30))
+                        .transientErrors(true)
+                        .doBeforeRetry(retry -> log.warn("Cache invalidation listener failed, reconnecting: {}",
+                                retry.failure().getMessage())));
+    }
+
+    private void onConnected() {
+        if (connected.compareAndSet(false, true)) {
+            log.info("Listening for cache invalidations on channel {}", CHANNEL);
+            // Anything published while disconnected was missed
+            allHandlers().forEach(InvalidationHandler::recover);
+        }
+    }
+
+    private void onDisconnected() {
+        if (connected.compareAndSet(true, false)) {
+            log.warn("Cache invalidation listener disconnected, caching with a {} TTL", fallbackTtl);
+            allHandlers().forEach(handler -> handler.degrade(fallbackTtl));
+        }
+    }
+
+    private Invalidation parse(Notification notification) {
+        String payload = notification.getParameter();
+        if (payload == null) {
+            return null;
+        }
+        // The detail is last, so it may contain separators of its own
+        String[] parts = payload.split(":", 4);
+        try {
+            Long version = parts.length > 2 && !parts[2].isEmpty() ? Long.valueOf(parts[2]) : null;
+            String detail = parts.length > 3 && !parts[3].isEmpty() ? parts[3] : null;
+            return new Invalidation(parts[0], UUID.fromString(parts[1]), version, detail);
+        } catch (RuntimeException e) {
+            log.warn("Ignoring malformed cache invalidation: {}", payload);
+            return null;
+        }
+    }
+
+    private void dispatch(List<Invalidation> batch) {
+        // Coalesce: one invalidation per entity, with the highest version seen
+        Map<String, Invalidation> latest = new LinkedHashMap<>();
+        for (Invalidation invalidation : batch) {
+            latest.merge(invalidation.type() + ":" + invalidation.id(), invalidation, Invalidation::newest);
+        }
+
+        for (Invalidation invalidation : latest.values()) {
+            received.computeIfAbsent(invalidation.type(), type -> Counter.builder("cache.invalidation.received")
+                    .description("Cache invalidations received from the bus after coalescing")
+                    .tag("type", type)
+                    .register(meterRegistry)).increment();
+
+            for (InvalidationHandler handler : handlers.getOrDefault(invalidation.type(), List.of())) {
+                // A failing handler must not cancel the listener, which would leave every cache degraded
+                try {
+                    handler.invalidate(invalidation.id(), invalidation.version(), invalidation.detail());
+                } catch (RuntimeException e) {
+                    log.error("Cache invalidation handler {} failed for {}:{}", handler.getClass().getSimpleName(),
+                            invalidation.type(), invalidation.id(), e);
+                }
+            }
+        }
+    }
+
+    private List<InvalidationHandler> allHandlers() {
+        return handlers.values().stream().flatMap(List::stream).toList();
+    }
+
+    /**
+     * Cache that can be invalidated through the bus
+     */
+    public interface InvalidationHandler {
+
+        /**
+         * Evict an entity unless the cached copy is at least as new as the given version
+         *
+         * @param id      Entity ID
+         * @param version Version written, or null if unknown
+         */
+        void invalidate(UUID id, Long version);
+
+        /**
+         * Evict an entity, given the detail its writer published with the change
+         *
+         * @param id      Entity ID
+         * @param version Version written, or null if unknown
+         * @param detail  Detail of the change, or null if none was published
+         */
+        default void invalidate(UUID id, Long version, String detail) {
+            invalidate(id, version);
+        }
+
+        /**
+         * Invalidations may currently be missed, expire entries quickly
+         *
+         * @param ttl Time to live to use while degraded
+         */
+        void degrade(Duration ttl);
+
+        /**
+         * Invalidations are delivered again; drop entries that may have missed one and restore the TTL
+         */
+        void recover();
+    }
+
+    private record Invalidation(String type, UUID id, Long version, String detail) {
+
+        private Invalidation newest(Invalidation other) {
+            if (version == null) {
+                return this;
+            }
+            if (other.version == null) {
+                return other;
+            }
+            if (version.equals(other.version)) {
+                return detail != null ? this : other;
+            }
+            return version > other.version ? this : other;
+        }
+    }
+}
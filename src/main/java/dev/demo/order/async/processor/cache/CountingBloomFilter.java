@@ -0,0 +1,172 @@
+package dev.demo.order.async.processor.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe counting Bloom filter over strings.
+ * <p>
+ * Each slot is a 4-bit counter, sixteen to a {@code long}, so keys can be removed as well as added. A counter
+ * that reaches 15 sticks there: it is never decremented again, which can only cost false positives, never a
+ * false negative. {@link #mightContain} returning {@code false} means the key was definitely never added,
+ * or was removed as often as it was added.
+ */
+public class CountingBloomFilter {
+
+    private static final int COUNTERS_PER_WORD = 16;
+    private static final long COUNTER_MASK = 0xFL;
+    private static final long SATURATED = 0xFL;
+
+    private final AtomicLongArray words;
+    private final long counters;
+    private final int hashFunctions;
+    private final AtomicLong keys = new AtomicLong();
+
+    private CountingBloomFilter(long counters, int hashFunctions) {
+        this.counters = counters;
+        this.hashFunctions = hashFunctions;
+        this.words = new AtomicLongArray(Math.toIntExact((counters + COUNTERS_PER_WORD - 1) / COUNTERS_PER_WORD));
+    }
+
+    /**
+     * Create a filter sized for a number of keys and a target false-positive probability
+     *
+     * @param expectedInsertions Number of keys the filter should hold
+     * @param fpp                False-positive probability at that number of keys, between 0 and 1
+     * @return Empty filter
+     */
+    public static CountingBloomFilter create(long expectedInsertions, double fpp) {
+        if (expectedInsertions <= 0) {
+            throw new IllegalArgumentException("expectedInsertions must be positive");
+        }
+        if (fpp <= 0 || fpp >= 1) {
+            throw new IllegalArgumentException("fpp must be between 0 and 1");
+        }
+        long counters = Math.max(COUNTERS_PER_WORD,
+                (long) Math.ceil(-expectedInsertions * Math.log(fpp) / (Math.log(2) * Math.log(2))));
+        int hashFunctions = Math.max(1, (int) Math.round((double) counters / expectedInsertions * Math.log(2)));
+        return new CountingBloomFilter(counters, hashFunctions);
+    }
+
+    /**
+     * Add a key
+     */
+    public void add(String key) {
+        long hash1 = hash(key);
+        long hash2 = secondHash(hash1);
+        for (int i = 0; i < hashFunctions; i++) {
+            increment(slot(hash1, hash2, i));
+        }
+        keys.incrementAndGet();
+    }
+
+    /**
+     * Remove a key that was added before. Callers must remove a key only once per add: removing a key that was
+     * never added, or removing it twice, takes counts from other keys sharing its counters and can make them
+     * false negatives. A key the filter can't contain is ignored, which catches only some of those mistakes.
+     *
+     * @return Whether the key was removed
+     */
+    public boolean remove(String key) {
+        if (!mightContain(key)) {
+            return false;
+        }
+        long hash1 = hash(key);
+        long hash2 = secondHash(hash1);
+        for (int i = 0; i < hashFunctions; i++) {
+            decrement(slot(hash1, hash2, i));
+        }
+        keys.decrementAndGet();
+        return true;
+    }
+
+    /**
+     * Whether the key may have been added; {@code false} is definite
+     */
+    public boolean mightContain(String key) {
+        long hash1 = hash(key);
+        long hash2 = secondHash(hash1);
+        for (int i = 0; i < hashFunctions; i++) {
+            if (counter(slot(hash1, hash2, i)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Number of keys currently added
+     */
+    public long size() {
+        return Math.max(0, keys.get());
+    }
+
+    /**
+     * Expected false-positive probability at the current number of keys
+     */
+    public double expectedFpp() {
+        return Math.pow(1 - Math.exp(-(double) hashFunctions * size() / counters), hashFunctions);
+    }
+
+    private long slot(long hash1, long hash2, int i) {
+        return Long.remainderUnsigned(hash1 + i * hash2, counters);
+    }
+
+    private long counter(long slot) {
+        return (words.get((int) (slot / COUNTERS_PER_WORD)) >>> shift(slot)) & COUNTER_MASK;
+    }
+
+    private void increment(long slot) {
+        int index = (int) (slot / COUNTERS_PER_WORD);
+        int shift = shift(slot);
+        long current;
+        do {
+            current = words.get(index);
+            if (((current >>> shift) & COUNTER_MASK) == SATURATED) {
+                return;
+            }
+        } while (!words.compareAndSet(index, current, current + (1L << shift)));
+    }
+
+    private void decrement(long slot) {
+        int index = (int) (slot / COUNTERS_PER_WORD);
+        int shift = shift(slot);
+        long current;
+        do {
+            current = words.get(index);
+            long counter = (current >>> shift) & COUNTER_MASK;
+            if (counter == 0 || counter == SATURATED) {
+                return;
+            }
+        } while (!words.compareAndSet(index, current, current - (1L << shift)));
+    }
+
+    private static int shift(long slot) {
+        return (int) (slot % COUNTERS_PER_WORD) * 4;
+    }
+
+    private static long hash(String key) {
+        // FNV-1a over the UTF-8 bytes, finished with a 64-bit mixer for good avalanche
+        long hash = 0xCBF29CE484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001B3L;
+        }
+        return mix(hash);
+    }
+
+    private static long secondHash(long hash1) {
+        // Never zero, so the probes of a key don't all land on one slot
+        return mix(hash1 + 0x9E3779B97F4A7C15L) | 1;
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
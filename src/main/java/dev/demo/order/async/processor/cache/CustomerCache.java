@@ -0,0 +1,283 @@
+package dev.demo.order.async.processor.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.demo.order.async.processor.repository.model.Customer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of customers by id, with secondary indexes by tax id and external id.
+ * <p>
+ * Entries are bounded by size with Caffeine's W-TinyLFU eviction and expire after a TTL as a safety net.
+ * Writes replace an entry only with a newer version and are applied after the surrounding transaction
+ * commits, so a concurrent read of the old row can't overwrite the new one.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CustomerCache implements CacheInvalidationBus.InvalidationHandler {
+
+    public static final String ENTITY_TYPE = "customer";
+
+    private static final String CACHE_NAME = "customers";
+
+    private final MeterRegistry meterRegistry;
+    private final CacheInvalidationBus invalidationBus;
+
+    @Value("${cache.customers.maximum-size:10000}")
+    private long maximumSize;
+
+    @Value("${cache.customers.expire-after-write:10m}")
+    private Duration expireAfterWrite;
+
+    private AsyncCache<UUID, Customer> byId;
+    private Cache<String, UUID> byTaxId;
+    private Cache<String, UUID> byExternalId;
+
+    @PostConstruct
+    public void init() {
+        byId = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .buildAsync();
+        byTaxId = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        byExternalId = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, byId, CACHE_NAME);
+        CaffeineCacheMetrics.monitor(meterRegistry, byTaxId, CACHE_NAME + ".tax-id");
+        CaffeineCacheMetrics.monitor(meterRegistry, byExternalId, CACHE_NAME + ".external-id");
+        Gauge.builder("cache.hit.ratio", byId, cache -> cache.synchronous().stats().hitRate())
+                .description("Ratio of customer lookups served from the cache")
+                .tag("cache", CACHE_NAME)
+                .register(meterRegistry);
+
+        invalidationBus.register(ENTITY_TYPE, this);
+    }
+
+    /**
+     * Get a customer by id, loading it on a miss. Concurrent misses for the same id share one load.
+     *
+     * @param id     Customer ID
+     * @param loader Loads the customer when it isn't cached; an empty result is not cached
+     * @return Customer or empty
+     */
+    public Mono<Customer> get(UUID id, Function<UUID, Mono<Customer>> loader) {
+        // Cancellation of one subscriber must not cancel a load other subscribers are waiting for
+        return Mono.fromFuture(() -> byId.get(id, (key, executor) -> loader.apply(key)
+                        .doOnNext(this::index)
+                        .toFuture()), true);
+    }
+
+    /**
+     * Get a customer if it is cached, without loading or waiting for a load in progress
+     *
+     * @param id Customer ID
+     * @return Cached customer or null
+     */
+    public Customer getIfPresent(UUID id) {
+        CompletableFuture<Customer> future = byId.getIfPresent(id);
+        return future != null && future.isDone() && !future.isCompletedExceptionally() ? future.getNow(null) : null;
+    }
+
+    /**
+     * Get the customers that are cached, without loading or waiting for loads in progress
+     *
+     * @param ids Customer IDs
+     * @return Cached customers by id
+     */
+    public Map<UUID, Customer> getAllPresent(Collection<UUID> ids) {
+        return byId.synchronous().getAllPresent(ids);
+    }
+
+    /**
+     * Get a non-deleted customer by tax id
+     *
+     * @param taxId  Tax ID
+     * @param loader Loads the customer when the index has no entry for the tax id
+     * @return Customer or empty
+     */
+    public Mono<Customer> getByTaxId(String taxId, Function<String, Mono<Customer>> loader) {
+        return getBySecondaryKey(byTaxId, taxId, Customer::getTaxId, loader);
+    }
+
+    /**
+     * Get a non-deleted customer by external id
+     *
+     * @param externalId External ID
+     * @param loader     Loads the customer when the index has no entry for the external id
+     * @return Customer or empty
+     */
+    public Mono<Customer> getByExternalId(String externalId, Function<String, Mono<Customer>> loader) {
+        return getBySecondaryKey(byExternalId, externalId, Customer::getExternalId, loader);
+    }
+
+    /**
+     * Store a customer unless a newer version is already cached
+     *
+     * @param customer Customer as written to the database
+     */
+    public void put(Customer customer) {
+        CompletableFuture<Customer> stored = byId.asMap().compute(customer.getId(), (id, current) -> {
+            Customer cached = current != null && current.isDone() && !current.isCompletedExceptionally()
+                    ? current.getNow(null)
+                    : null;
+            if (cached != null && isNewer(cached, customer)) {
+                return current;
+            }
+            if (cached != null) {
+                unindex(cached);
+            }
+            return CompletableFuture.completedFuture(customer);
+        });
+        // A stale write must not point the indexes back at keys the newer version no longer has
+        if (stored.getNow(null) == customer) {
+            index(customer);
+        }
+    }
+
+    /**
+     * Remove a customer and its secondary index entries
+     *
+     * @param id Customer ID
+     */
+    public void invalidate(UUID id) {
+        CompletableFuture<Customer> removed = byId.asMap().remove(id);
+        if (removed != null && removed.isDone() && !removed.isCompletedExceptionally()) {
+            Customer cached = removed.getNow(null);
+            if (cached != null) {
+                unindex(cached);
+            }
+        }
+    }
+
+    @Override
+    public void invalidate(UUID id, Long version) {
+        byId.asMap().computeIfPresent(id, (key, current) -> {
+            Customer cached = current.isDone() && !current.isCompletedExceptionally() ? current.getNow(null) : null;
+            if (cached != null && version != null && cached.getVersion() != null && cached.getVersion() >= version) {
+                return current;
+            }
+            if (cached != null) {
+                unindex(cached);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void degrade(Duration ttl) {
+        setExpireAfterWrite(ttl.compareTo(expireAfterWrite) < 0 ? ttl : expireAfterWrite);
+    }
+
+    @Override
+    public void recover() {
+        invalidateAll();
+        setExpireAfterWrite(expireAfterWrite);
+    }
+
+    /**
+     * Remove all entries
+     */
+    public void invalidateAll() {
+        byId.synchronous().invalidateAll();
+        byTaxId.invalidateAll();
+        byExternalId.invalidateAll();
+    }
+
+    /**
+     * Store a written customer once the current transaction has committed, or right away without one
+     *
+     * @param customer Customer as written to the database
+     * @return Completes once the write has been applied or scheduled
+     */
+    public Mono<Void> putAfterCommit(Customer customer) {
+        return AfterCommit.run(() -> put(customer));
+    }
+
+    /**
+     * Invalidate a customer once the current transaction has committed, or right away without one
+     *
+     * @param id Customer ID
+     * @return Completes once the invalidation has been applied or scheduled
+     */
+    public Mono<Void> invalidateAfterCommit(UUID id) {
+        return AfterCommit.run(() -> invalidate(id));
+    }
+
+    private void setExpireAfterWrite(Duration ttl) {
+        byId.synchronous().policy().expireAfterWrite().ifPresent(expiration -> expiration.setExpiresAfter(ttl));
+        byTaxId.policy().expireAfterWrite().ifPresent(expiration -> expiration.setExpiresAfter(ttl));
+        byExternalId.policy().expireAfterWrite().ifPresent(expiration -> expiration.setExpiresAfter(ttl));
+    }
+
+    private Mono<Customer> getBySecondaryKey(Cache<String, UUID> index, String key,
+                                             Function<Customer, String> keyOf,
+                                             Function<String, Mono<Customer>> loader) {
+        return Mono.defer(() -> {
+            UUID id = index.getIfPresent(key);
+            if (id == null) {
+                return loader.apply(key).doOnNext(this::put);
+            }
+            return get(id, ignored -> loader.apply(key).filter(customer -> id.equals(customer.getId())))
+                    // The index entry may be stale if the customer was changed or deleted since
+                    .filter(customer -> !customer.isDeleted() && Objects.equals(keyOf.apply(customer), key))
+                    .switchIfEmpty(Mono.defer(() -> {
+                        index.invalidate(key);
+                        return loader.apply(key).doOnNext(this::put);
+                    }));
+        });
+    }
+
+    private void index(Customer customer) {
+        if (customer.isDeleted()) {
+            return;
+        }
+        if (customer.getTaxId() != null) {
+            byTaxId.put(customer.getTaxId(), customer.getId());
+        }
+        if (customer.getExternalId() != null) {
+            byExternalId.put(customer.getExternalId(), customer.getId());
+        }
+    }
+
+    private void unindex(Customer customer) {
+        if (customer.getTaxId() != null) {
+            byTaxId.asMap().remove(customer.getTaxId(), customer.getId());
+        }
+        if (customer.getExternalId() != null) {
+            byExternalId.asMap().remove(customer.getExternalId(), customer.getId());
+        }
+    }
+
+    private static boolean isNewer(Customer cached, Customer candidate) {
+        return cached.getVersion() != null
+                && candidate.getVersion() != null
+                && cached.getVersion() > candidate.getVersion();
+    }
+}
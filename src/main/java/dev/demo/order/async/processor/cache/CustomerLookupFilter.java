@@ -0,0 +1,285 @@
+package dev.demo.order.async.processor.cache;
+
+import dev.demo.order.async.processor.repository.model.Customer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Answers customer lookups by tax id or external id that are certain to miss without touching the database.
+ * <p>
+ * A {@link CountingBloomFilter} holds the tax ids and external ids of all non-deleted customers. It is built
+ * by streaming the customers table at startup and periodically, and kept current from local writes and from
+ * the invalidation bus, on which a trigger announces every insert and key change however the row was
+ * written. Keys are only removed on local deletes; anything left behind costs a false positive until the
+ * next rebuild, never a false negative. While the bus is disconnected inserts on other nodes may be missed,
+ * so every lookup goes to the database until the filter has been rebuilt.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CustomerLookupFilter implements CacheInvalidationBus.InvalidationHandler {
+
+    private static final String TAX_ID_PREFIX = "t:";
+    private static final String EXTERNAL_ID_PREFIX = "e:";
+
+    private final DatabaseClient databaseClient;
+    private final CacheInvalidationBus invalidationBus;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${cache.customer-lookup-filter.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cache.customer-lookup-filter.expected-insertions:1000000}")
+    private long expectedInsertions;
+
+    @Value("${cache.customer-lookup-filter.fpp:0.01}")
+    private double fpp;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final AtomicBoolean rebuildRequested = new AtomicBoolean();
+    private final AtomicLong degradations = new AtomicLong();
+
+    private volatile CountingBloomFilter filter;
+    private volatile boolean stale;
+    private List<String> replay;
+
+    private Counter negatives;
+    private Counter truePositives;
+    private Counter falsePositives;
+    private Counter bypassed;
+
+    @PostConstruct
+    public void init() {
+        negatives = outcomeCounter("negative");
+        truePositives = outcomeCounter("true_positive");
+        falsePositives = outcomeCounter("false_positive");
+        bypassed = outcomeCounter("bypassed");
+        Gauge.builder("customer.lookup.filter.fpp", this, lookupFilter -> lookupFilter.filter != null
+                        ? lookupFilter.filter.expectedFpp()
+                        : Double.NaN)
+                .description("Expected false-positive probability of the customer lookup filter")
+                .register(meterRegistry);
+        Gauge.builder("customer.lookup.filter.keys", this, lookupFilter -> lookupFilter.filter != null
+                        ? lookupFilter.filter.size()
+                        : 0)
+                .description("Tax ids and external ids held by the customer lookup filter")
+                .register(meterRegistry);
+
+        if (enabled) {
+            invalidationBus.register(CustomerCache.ENTITY_TYPE, this);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${cache.customer-lookup-filter.rebuild-interval:3600000}",
+            initialDelayString = "${cache.customer-lookup-filter.rebuild-interval:3600000}")
+    public void scheduledRebuild() {
+        rebuild();
+    }
+
+    /**
+     * Look up a non-deleted customer by tax id unless the filter rules it out
+     *
+     * @param taxId  Tax ID
+     * @param lookup Performs the lookup
+     * @return Customer or empty
+     */
+    public Mono<Customer> findByTaxId(String taxId, Function<String, Mono<Customer>> lookup) {
+        return find(TAX_ID_PREFIX, taxId, lookup);
+    }
+
+    /**
+     * Look up a non-deleted customer by external id unless the filter rules it out
+     *
+     * @param externalId External ID
+     * @param lookup     Performs the lookup
+     * @return Customer or empty
+     */
+    public Mono<Customer> findByExternalId(String externalId, Function<String, Mono<Customer>> lookup) {
+        return find(EXTERNAL_ID_PREFIX, externalId, lookup);
+    }
+
+    /**
+     * Add the keys of a created or updated customer
+     *
+     * @param customer Customer as written
+     */
+    public synchronized void add(Customer customer) {
+        if (customer.isDeleted()) {
+            return;
+        }
+        for (String key : keys(customer.getTaxId(), customer.getExternalId())) {
+            if (filter != null) {
+                filter.add(key);
+            }
+            if (replay != null) {
+                replay.add(key);
+            }
+        }
+    }
+
+    /**
+     * Remove the keys of a deleted customer once the current transaction has committed
+     *
+     * @param customer Customer as it was before the delete
+     * @return Completes once the removal has been applied or scheduled
+     */
+    public Mono<Void> removeAfterCommit(Customer customer) {
+        return AfterCommit.run(() -> remove(customer));
+    }
+
+    private synchronized void remove(Customer customer) {
+        if (filter == null) {
+            return;
+        }
+        keys(customer.getTaxId(), customer.getExternalId()).forEach(filter::remove);
+    }
+
+    @Override
+    public void invalidate(UUID id, Long version) {
+        // The customer was inserted or its keys changed, possibly on another node or outside the service
+        databaseClient.sql("SELECT tax_id, external_id, deleted FROM customers WHERE id = :id")
+                .bind("id", id)
+                .map(row -> Customer.builder()
+                        .id(id)
+                        .taxId(row.get("tax_id", String.class))
+                        .externalId(row.get("external_id", String.class))
+                        .deleted(Boolean.TRUE.equals(row.get("deleted", Boolean.class)))
+                        .build())
+                .one()
+                .subscribe(this::add, error -> {
+                    log.warn("Failed to read keys of customer {}, rebuilding lookup filter: {}", id, error.getMessage());
+                    markStale();
+                    rebuild();
+                });
+    }
+
+    @Override
+    public void degrade(Duration ttl) {
+        markStale();
+    }
+
+    @Override
+    public void recover() {
+        rebuild();
+    }
+
+    /**
+     * Rebuild the filter from the customers table. Lookups keep using the current filter meanwhile;
+     * a rebuild requested while one is running starts once it has finished.
+     */
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        if (!rebuilding.compareAndSet(false, true)) {
+            rebuildRequested.set(true);
+            return;
+        }
+
+        long generation = degradations.get();
+        boolean delivering = invalidationBus.isDelivering();
+        long start = System.nanoTime();
+        synchronized (this) {
+            replay = new ArrayList<>();
+        }
+
+        databaseClient.sql("SELECT count(*) AS customers FROM customers WHERE deleted = false")
+                .map(row -> row.get("customers", Long.class))
+                .one()
+                .defaultIfEmpty(0L)
+                // Two keys per customer, with headroom for growth until the next rebuild
+                .map(customers -> CountingBloomFilter.create(Math.max(expectedInsertions, customers * 4), fpp))
+                .flatMap(fresh -> databaseClient.sql("SELECT tax_id, external_id FROM customers WHERE deleted = false")
+                        .map(row -> keys(row.get("tax_id", String.class), row.get("external_id", String.class)))
+                        .all()
+                        .doOnNext(keys -> keys.forEach(fresh::add))
+                        .then(Mono.just(fresh)))
+                .doOnNext(fresh -> {
+                    synchronized (this) {
+                        // Keys added while the table was being read may not be in the snapshot
+                        replay.forEach(fresh::add);
+                        filter = fresh;
+                    }
+                    if (delivering && generation == degradations.get()) {
+                        stale = false;
+                    }
+                    log.info("Built customer lookup filter with {} keys in {}ms, expected false-positive rate {}",
+                            fresh.size(), Duration.ofNanos(System.nanoTime() - start).toMillis(),
+                            String.format("%.4f", fresh.expectedFpp()));
+                })
+                .doFinally(signal -> {
+                    synchronized (this) {
+                        replay = null;
+                    }
+                    rebuilding.set(false);
+                    if (rebuildRequested.getAndSet(false)) {
+                        rebuild();
+                    }
+                })
+                .subscribe(null, error -> log.warn("Failed to build customer lookup filter: {}", error.getMessage()));
+    }
+
+    private Mono<Customer> find(String prefix, String key, Function<String, Mono<Customer>> lookup) {
+        return Mono.defer(() -> {
+            CountingBloomFilter current = filter;
+            if (key == null || current == null || stale || !invalidationBus.isDelivering()) {
+                bypassed.increment();
+                return lookup.apply(key);
+            }
+            if (!current.mightContain(prefix + key)) {
+                negatives.increment();
+                return Mono.empty();
+            }
+            return lookup.apply(key)
+                    .doOnNext(customer -> truePositives.increment())
+                    .switchIfEmpty(Mono.<Customer>fromRunnable(falsePositives::increment));
+        });
+    }
+
+    private void markStale() {
+        degradations.incrementAndGet();
+        stale = true;
+    }
+
+    private Counter outcomeCounter(String outcome) {
+        return Counter.builder("customer.lookup.filter")
+                .description("Customer lookups by tax id or external id, by lookup filter outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static List<String> keys(String taxId, String externalId) {
+        List<String> keys = new ArrayList<>(2);
+        if (taxId != null) {
+            keys.add(TAX_ID_PREFIX + taxId);
+        }
+        if (externalId != null) {
+            keys.add(EXTERNAL_ID_PREFIX + externalId);
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,76 @@
+package dev.demo.order.async.processor.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent lookups of the same key into one in-flight execution.
+ * <p>
+ * The first caller for a key runs the loader; callers arriving while it is in flight share its result.
+ * The entry is dropped as soon as the execution terminates, so nothing is cached: a lookup never returns
+ * data older than a query that was still running when it was made.
+ *
+ * @param <K> Key type
+ * @param <V> Value type
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, Mono<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter executions;
+    private final Counter coalesced;
+
+    public SingleFlight(String name, MeterRegistry meterRegistry) {
+        this.executions = Counter.builder("singleflight.executions")
+                .description("Lookups that ran their loader")
+                .tag("name", name)
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("singleflight.coalesced")
+                .description("Lookups that joined an execution already in flight")
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Look up a key, joining an in-flight lookup of the same key if there is one
+     *
+     * @param key    Key to look up
+     * @param loader Executes the lookup
+     * @return Result shared with concurrent callers for the same key
+     */
+    public Mono<V> execute(K key, Function<K, Mono<V>> loader) {
+        return Mono.defer(() -> {
+            Mono<V> existing = inFlight.get(key);
+            if (existing != null) {
+                coalesced.increment();
+                return existing;
+            }
+
+            AtomicReference<Mono<V>> self = new AtomicReference<>();
+            Mono<V> execution = Mono.defer(() -> loader.apply(key))
+                    .doFinally(signal -> inFlight.remove(key, self.get()))
+                    .share();
+            self.set(execution);
+
+            Mono<V> winner = inFlight.putIfAbsent(key, execution);
+            if (winner != null) {
+                coalesced.increment();
+                return winner;
+            }
+            executions.increment();
+            return execution;
+        });
+    }
+
+    /**
+     * Number of keys currently in flight
+     */
+    public int inFlight() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,193 @@
+package dev.demo.order.async.processor.client;
+
+import io.github.resilience4j.reactor.timelimiter.TimeLimiterOperator;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiter;
+import io.github.resilience4j.timelimiter.TimeLimiterConfig;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Per-endpoint timeouts derived from a rolling latency histogram.
+ * <p>
+ * Every call to an external endpoint is recorded in a windowed timer. The timeout for the endpoint is
+ * {@code p99 * multiplier}, clamped between the configured floor and ceiling, and is pushed into a
+ * resilience4j {@link TimeLimiter} of the same name so it shows up with the other resilience metrics.
+ * Until an endpoint has seen enough samples the ceiling ({@code service.external.timeout}) applies. While
+ * no call was recorded within the window the last timeout stays in place, so a lull doesn't drop it to
+ * the floor.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AdaptiveTimeoutRegistry {
+
+    private final MeterRegistry meterRegistry;
+    private final TimeLimiterRegistry timeLimiterRegistry;
+    private final RetryRegistry retryRegistry;
+    private final Map<String, EndpointTimeout> endpoints = new ConcurrentHashMap<>();
+
+    @Value("${service.external.adaptive-timeout.enabled:true}")
+    private boolean enabled;
+
+    @Value("${service.external.adaptive-timeout.multiplier:3.0}")
+    private double multiplier;
+
+    @Value("${service.external.adaptive-timeout.floor:250ms}")
+    private Duration floor;
+
+    @Value("${service.external.adaptive-timeout.ceiling:${service.external.timeout:30s}}")
+    private Duration ceiling;
+
+    @Value("${service.external.adaptive-timeout.window:60s}")
+    private Duration window;
+
+    @Value("${service.external.adaptive-timeout.min-samples:50}")
+    private long minSamples;
+
+    /**
+     * Apply the current time limit of an endpoint to a call and record its latency
+     *
+     * @param endpoint Endpoint name, shared with the circuit breaker and retry instances
+     * @return Transformer to use with {@code transformDeferred}
+     */
+    public <T> Function<Mono<T>, Mono<T>> timed(String endpoint) {
+        return call -> Mono.defer(() -> {
+            EndpointTimeout state = endpoint(endpoint);
+            long start = System.nanoTime();
+            return call
+                    .transform(TimeLimiterOperator.of(timeLimiter(endpoint)))
+                    .doOnSuccess(result -> state.latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS))
+                    // Timeouts are recorded so that the estimate can grow back when the endpoint slows down;
+                    // other failures tend to be fast and would only drag the percentile down.
+                    .doOnError(TimeoutException.class,
+                            error -> state.latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    /**
+     * Current timeout for an endpoint
+     *
+     * @param endpoint Endpoint name
+     * @return Timeout currently applied to calls
+     */
+    public Duration currentTimeout(String endpoint) {
+        return endpoint(endpoint).current;
+    }
+
+    /**
+     * Combined time budget of a sequence of calls, allowing every call its configured retry attempts
+     *
+     * @param endpointNames Endpoints called one after another
+     * @return Sum of their current timeouts multiplied by their retry attempts
+     */
+    public Duration budget(String... endpointNames) {
+        Duration total = Duration.ZERO;
+        for (String endpoint : endpointNames) {
+            int attempts = retryRegistry.retry(endpoint).getRetryConfig().getMaxAttempts();
+            total = total.plus(currentTimeout(endpoint).multipliedBy(attempts));
+        }
+        return total;
+    }
+
+    /**
+     * Recompute the timeouts from the latest latency snapshots
+     */
+    @Scheduled(fixedDelayString = "${service.external.adaptive-timeout.refresh-interval:5000}")
+    public void refresh() {
+        endpoints.forEach((endpoint, state) -> {
+            Duration updated = computeTimeout(state.latency.takeSnapshot(), state.current);
+            if (!updated.equals(state.current)) {
+                log.debug("Adjusting timeout for {} from {} to {}", endpoint, state.current, updated);
+                state.current = updated;
+                timeLimiterRegistry.replace(endpoint, TimeLimiter.of(endpoint, timeLimiterConfig(updated)));
+            }
+        });
+    }
+
+    TimeLimiter timeLimiter(String endpoint) {
+        return timeLimiterRegistry.timeLimiter(endpoint, () -> timeLimiterConfig(currentTimeout(endpoint)));
+    }
+
+    Duration computeTimeout(HistogramSnapshot snapshot, Duration current) {
+        if (!enabled || snapshot.count() < minSamples) {
+            return ceiling;
+        }
+
+        for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+            if (percentile.percentile() == 0.99) {
+                double p99 = percentile.value(TimeUnit.NANOSECONDS);
+                if (p99 <= 0) {
+                    // The window holds no samples: the count is cumulative, the histogram is not
+                    return current;
+                }
+                long nanos = (long) (p99 * multiplier);
+                // Round up to whole milliseconds so tiny fluctuations don't churn the time limiters
+                Duration candidate = Duration.ofMillis(TimeUnit.NANOSECONDS.toMillis(nanos) + 1);
+                if (candidate.compareTo(floor) < 0) {
+                    return floor;
+                }
+                return candidate.compareTo(ceiling) > 0 ? ceiling : candidate;
+            }
+        }
+        return ceiling;
+    }
+
+    private EndpointTimeout endpoint(String endpoint) {
+        return endpoints.computeIfAbsent(endpoint, this::register);
+    }
+
+    private EndpointTimeout register(String endpoint) {
+        Timer latency = Timer.builder("external.service.latency")
+                .description("Latency of external service calls used to derive adaptive timeouts")
+                .tag("endpoint", endpoint)
+                .publishPercentiles(0.99)
+                .distributionStatisticExpiry(window)
+                .distributionStatisticBufferLength(3)
+                .register(meterRegistry);
+
+        EndpointTimeout state = new EndpointTimeout(latency, ceiling);
+
+        Gauge.builder("external.service.timeout", state, s -> s.current.toNanos() / 1_000_000_000.0)
+                .description("Timeout currently applied to external service calls")
+                .tag("endpoint", endpoint)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+
+        return state;
+    }
+
+    private static TimeLimiterConfig timeLimiterConfig(Duration timeout) {
+        return TimeLimiterConfig.custom()
+                .timeoutDuration(timeout)
+                .cancelRunningFuture(true)
+                .build();
+    }
+
+    private static final class EndpointTimeout {
+        private final Timer latency;
+        private volatile Duration current;
+
+        private EndpointTimeout(Timer latency, Duration initial) {
+            this.latency = latency;
+            this.current = initial;
+        }
+    }
+}
@@ -1,9 +1,16 @@
 package dev.demo.order.async.processor.client;
 
+import dev.demo.order.async.processor.CodecConfig;
+import dev.demo.order.async.processor.config.TailSamplingSpanHandler;
+import dev.demo.order.async.processor.jfr.ExternalCallEvent;
 import dev.demo.order.async.processor.repository.model.Order;
+import dev.demo.order.async.processor.retry.RetryBudget;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import io.github.resilience4j.retry.annotation.Retry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import io.micrometer.observation.annotation.Observed;
+import jakarta.annotation.PostConstruct;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -11,9 +18,10 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
 
-import java.time.Duration;
+import java.util.Locale;
 import java.util.UUID;
 
 @Component
@@ -21,40 +29,55 @@ import java.util.UUID;
 @Slf4j
 public class ExternalServiceClient {
 
+    public static final String VALIDATE = "externalServiceValidate";
+    public static final String PROCESS = "externalServiceProcess";
+    public static final String NOTIFY = "externalServiceNotify";
+
     private final WebClient.Builder webClientBuilder;
+    private final AdaptiveTimeoutRegistry adaptiveTimeouts;
+    private final RetryBudget retryBudget;
+    private final ObservationRegistry observationRegistry;
 
     @Value("${service.external.url}")
     private String serviceUrl;
 
-    @Value("${service.external.timeout:30s}")
-    private Duration timeout;
+    @Value("${service.external.encoding:json}")
+    private String encoding;
+
+    private volatile MediaType requestType = MediaType.APPLICATION_JSON;
+
+    @PostConstruct
+    public void init() {
+        requestType = switch (encoding.toLowerCase(Locale.ROOT)) {
+            case "json" -> MediaType.APPLICATION_JSON;
+            case "cbor" -> MediaType.APPLICATION_CBOR;
+            case "smile" -> CodecConfig.APPLICATION_SMILE;
+            default -> throw new IllegalStateException("Unknown service.external.encoding: " + encoding);
+        };
+    }
 
     /**
      * Validate an order with the external validation service
      *
      * @param order Order to validate
-     * @return True if valid, false otherwise
+     * @return True if valid, false if the service found it invalid, or error if the service could not tell
      */
-    @CircuitBreaker(name = "externalServiceValidate")
-    @Retry(name = "externalServiceValidate")
+    @CircuitBreaker(name = VALIDATE)
+    @Retry(name = VALIDATE)
     @Observed(name = "external.service.validate", contextualName = "validateOrder")
     public Mono<Boolean> validateOrder(Order order) {
         log.debug("Validating order: {}", order.getId());
+        tagOrderType(order);
 
-        return webClientBuilder
-                .build()
-                .post()
-                .uri(serviceUrl + "/api/orders/validate")
-                .contentType(MediaType.APPLICATION_JSON)
-                .bodyValue(order)
-                .retrieve()
-                .bodyToMono(ValidationResponse.class)
-                .timeout(timeout)
+        return post("/api/orders/validate", order, ValidationResponse.class)
+                .transformDeferred(adaptiveTimeouts.timed(VALIDATE))
+                .transformDeferred(ExternalCallEvent.recorded(VALIDATE, order))
+                .doOnSuccess(result -> retryBudget.recordSuccess())
                 .map(ValidationResponse::isValid)
                 .doOnSuccess(result -> log.debug("Validation result for order {}: {}", order.getId(), result))
+                // Errors are not a verdict, they reach the breaker, the retry and the scheduler
                 .doOnError(
-                        error -> log.error("Error validating order {}: {}", order.getId(), error.getMessage(), error))
-                .onErrorReturn(false);
+                        error -> log.error("Error validating order {}: {}", order.getId(), error.getMessage(), error));
     }
 
     /**
@@ -63,21 +86,17 @@ public class ExternalServiceClient {
      * @param order Order to process
      * @return Processed order or error
      */
-    @CircuitBreaker(name = "externalServiceProcess")
-    @Retry(name = "externalServiceProcess")
+    @CircuitBreaker(name = PROCESS)
+    @Retry(name = PROCESS)
     @Observed(name = "external.service.process", contextualName = "processOrder")
     public Mono<Order> processOrder(Order order) {
         log.debug("Sending order for processing: {}", order.getId());
+        tagOrderType(order);
 
-        return webClientBuilder
-                .build()
-                .post()
-                .uri(serviceUrl + "/api/orders/process")
-                .contentType(MediaType.APPLICATION_JSON)
-                .bodyValue(order)
-                .retrieve()
-                .bodyToMono(Order.class)
-                .timeout(timeout)
+        return post("/api/orders/process", order, Order.class)
+                .transformDeferred(adaptiveTimeouts.timed(PROCESS))
+                .transformDeferred(ExternalCallEvent.recorded(PROCESS, order))
+                .doOnSuccess(result -> retryBudget.recordSuccess())
                 .doOnSuccess(result -> log.debug("Order processed successfully: {}", result.getId()))
                 .doOnError(
                         error -> log.error("Error processing order {}: {}", order.getId(), error.getMessage(), error));
@@ -89,21 +108,17 @@ public class ExternalServiceClient {
      * @param order Completed order
      * @return Notification ID or error
      */
-    @CircuitBreaker(name = "externalServiceNotify")
-    @Retry(name = "externalServiceNotify")
+    @CircuitBreaker(name = NOTIFY)
+    @Retry(name = NOTIFY)
     @Observed(name = "external.service.notify", contextualName = "notifyOrderComplete")
     public Mono<UUID> notifyOrderComplete(Order order) {
         log.debug("Sending completion notification for order: {}", order.getId());
+        tagOrderType(order);
 
-        return webClientBuilder
-                .build()
-                .post()
-                .uri(serviceUrl + "/api/orders/notify")
-                .contentType(MediaType.APPLICATION_JSON)
-                .bodyValue(order)
-                .retrieve()
-                .bodyToMono(NotificationResponse.class)
-                .timeout(timeout)
+        return post("/api/orders/notify", order, NotificationResponse.class)
+                .transformDeferred(adaptiveTimeouts.timed(NOTIFY))
+                .transformDeferred(ExternalCallEvent.recorded(NOTIFY, order))
+                .doOnSuccess(result -> retryBudget.recordSuccess())
                 .map(NotificationResponse::getNotificationId)
                 .doOnSuccess(result ->
                         log.debug("Notification sent for order: {}, notification ID: {}", order.getId(), result))
@@ -111,6 +126,44 @@ public class ExternalServiceClient {
                         "Error sending notification for order {}: {}", order.getId(), error.getMessage(), error));
     }
 
+    /**
+     * Tag the span of the current call with the order type, so the tail sampler can keep traces of URGENT orders
+     */
+    private void tagOrderType(Order order) {
+        Observation observation = observationRegistry.getCurrentObservation();
+        if (observation != null && order.getType() != null) {
+            observation.highCardinalityKeyValue(TailSamplingSpanHandler.ORDER_TYPE_TAG, order.getType());
+        }
+    }
+
+    /**
+     * Post an order in the configured encoding, accepting the same encoding or JSON in return. A peer that
+     * rejects a binary encoding with 415 is sent JSON from then on.
+     */
+    private <T> Mono<T> post(String path, Order order, Class<T> responseType) {
+        MediaType bodyType = requestType;
+        WebClient.RequestBodySpec request = webClientBuilder
+                .build()
+                .post()
+                .uri(serviceUrl + path)
+                .contentType(bodyType);
+        if (!MediaType.APPLICATION_JSON.equals(bodyType)) {
+            request = request.accept(bodyType, MediaType.APPLICATION_JSON);
+        }
+        return request
+                .bodyValue(order)
+                .retrieve()
+                .bodyToMono(responseType)
+                .onErrorResume(WebClientResponseException.UnsupportedMediaType.class, error -> {
+                    if (MediaType.APPLICATION_JSON.equals(bodyType)) {
+                        return Mono.error(error);
+                    }
+                    log.warn("{} does not accept {}, falling back to JSON", serviceUrl, bodyType);
+                    requestType = MediaType.APPLICATION_JSON;
+                    return post(path, order, responseType);
+                });
+    }
+
     @Data
     public static class ValidationResponse {
         private boolean valid;
@@ -0,0 +1,24 @@
+package dev.demo.order.async.processor.config;
+
+import reactor.blockhound.BlockHound;
+import reactor.blockhound.integration.BlockHoundIntegration;
+
+/**
+ * Frames that may block on a non-blocking thread without hurting latency: short, bounded waits that only
+ * happen under contention or once. Registered as a service, so it applies wherever BlockHound is installed.
+ */
+public class BlockingCallAllowlist implements BlockHoundIntegration {
+
+    @Override
+    public void applyTo(BlockHound.Builder builder) {
+        builder
+                // Reads a few bytes from /dev/urandom
+                .allowBlockingCallsInside("java.util.UUID", "randomUUID")
+                // Eviction lock of the customer cache, held for a bounded maintenance pass
+                .allowBlockingCallsInside("com.github.benmanes.caffeine.cache.BoundedLocalCache", "performCleanUp")
+                // Segment lock of Spring's reflection and annotation caches, contended only while they warm up
+                .allowBlockingCallsInside("org.springframework.util.ConcurrentReferenceHashMap$Segment", "restructure")
+                // Class loading and static initialization, once per class
+                .allowBlockingCallsInside("java.lang.ClassLoader", "loadClass");
+    }
+}
@@ -0,0 +1,87 @@
+package dev.demo.order.async.processor.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.blockhound.BlockHound;
+import reactor.blockhound.BlockingMethod;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reports blocking calls made on Reactor and Netty event loop threads instead of failing them. Each call
+ * increments {@code reactor.blocking.calls} tagged with the blocking method, and the stack of the first call
+ * to a method in each {@code stack-interval} is logged.
+ * <p>
+ * BlockHound needs {@code -XX:+AllowRedefinitionToAddDeleteMethods} on the JVM command line; without it the
+ * detector logs why it could not be installed and the application runs as usual.
+ */
+@Component
+@ConditionalOnProperty(value = "diagnostics.blockhound.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class BlockingCallDetector {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${diagnostics.blockhound.stack-interval:60s}")
+    private Duration stackInterval;
+
+    private final Map<String, BlockingSite> sites = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void install() {
+        try {
+            BlockHound.install(builder -> builder.blockingMethodCallback(this::report));
+            log.info("BlockHound installed, reporting blocking calls on non-blocking threads");
+        } catch (Throwable e) {
+            log.error("Could not install BlockHound, blocking calls are not reported: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Count a blocking call and sample its stack
+     *
+     * @param method Blocking method that was called
+     */
+    public void report(BlockingMethod method) {
+        String name = method.getClassName() + "." + method.getName();
+        BlockingSite site = sites.computeIfAbsent(name, key -> new BlockingSite(Counter.builder("reactor.blocking.calls")
+                .description("Blocking calls made on non-blocking threads")
+                .tag("method", key)
+                .register(meterRegistry)));
+        site.calls.increment();
+
+        long now = System.nanoTime();
+        long last = site.lastStackNanos.get();
+        if ((last == 0 || now - last >= stackInterval.toNanos()) && site.lastStackNanos.compareAndSet(last, now)) {
+            log.warn("Blocking call to {} on thread {}", method, Thread.currentThread().getName(),
+                    new BlockingCallException(method));
+        }
+    }
+
+    private record BlockingSite(Counter calls, AtomicLong lastStackNanos) {
+
+        BlockingSite(Counter calls) {
+            this(calls, new AtomicLong());
+        }
+    }
+
+    /**
+     * Carries the stack of a reported blocking call
+     */
+    static class BlockingCallException extends RuntimeException {
+
+        BlockingCallException(BlockingMethod method) {
+            super("Blocking call to " + method);
+        }
+    }
+}
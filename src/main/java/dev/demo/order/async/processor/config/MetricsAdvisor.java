@@ -1,5 +1,7 @@
 package dev.demo.order.async.processor.config;
 
+import dev.demo.order.async.processor.QueryMetricsListener;
+import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
@@ -9,11 +11,25 @@ import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.reflect.MethodSignature;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
 
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
- * Aspect that adds performance metrics for all service methods
+ * Aspect that adds performance metrics for all service and repository methods.
+ * <p>
+ * A method returning a {@link Mono} or {@link Flux} only assembles the pipeline, so for those the timer
+ * measures each subscription from subscribe to the terminal signal and counts the elements emitted.
+ * Cancelled subscriptions are counted but not timed. Meters are created once per method and reused.
+ * <p>
+ * Repository methods also put their name in the Reactor context under {@link QueryMetricsListener#ORIGIN},
+ * so the statements they execute are tagged with the method that issued them.
  */
 @Aspect
 @Component
@@ -21,71 +37,124 @@ import java.util.concurrent.TimeUnit;
 @Slf4j
 public class MetricsAdvisor {
 
+    private static final String REPOSITORY_PACKAGE = "dev.demo.order.async.processor.repository";
+
     private final MeterRegistry meterRegistry;
 
+    private final Map<MethodKey, MethodMeters> meters = new ConcurrentHashMap<>();
+
     @Around("execution(* dev.demo.order.async.processor.service.*.*(..))")
     public Object measureServiceMethods(ProceedingJoinPoint joinPoint) throws Throwable {
-        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
-        String className = joinPoint.getTarget().getClass().getSimpleName();
-        String methodName = signature.getMethod().getName();
+        return measure("service.method", joinPoint, false);
+    }
 
-        // Create the timer
-        Timer timer = meterRegistry.timer(
-                "service.method.timer",
-                "class", className,
-                "method", methodName);
+    @Around("execution(* dev.demo.order.async.processor.repository.*.*(..))")
+    public Object measureRepositoryMethods(ProceedingJoinPoint joinPoint) throws Throwable {
+        return measure("repository.method", joinPoint, true);
+    }
 
-        // Start the timer
-        long start = System.nanoTime();
+    private Object measure(String prefix, ProceedingJoinPoint joinPoint, boolean repository) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        MethodMeters methodMeters = meters.computeIfAbsent(
+                new MethodKey(prefix, joinPoint.getTarget().getClass(), method),
+                key -> new MethodMeters(key.prefix(), key.targetClass().getSimpleName(), key.method().getName(),
+                        repository ? origin(key.targetClass(), key.method()) : null));
 
+        long start = System.nanoTime();
+        Object result;
         try {
             // Execute the method
-            return joinPoint.proceed();
+            result = joinPoint.proceed();
         } catch (Throwable throwable) {
-            // Record exceptions
-            meterRegistry.counter(
-                    "service.method.errors",
-                    "class", className,
-                    "method", methodName,
-                    "exception", throwable.getClass().getSimpleName()
-            ).increment();
+            methodMeters.recordError(throwable);
+            methodMeters.recordTime(start);
             throw throwable;
-        } finally {
-            // Record the timing
-            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
         }
+
+        if (result instanceof Mono<?> mono) {
+            return Mono.defer(() -> {
+                long subscribed = System.nanoTime();
+                return mono.doOnNext(value -> methodMeters.elements.increment())
+                        .doOnError(methodMeters::recordError)
+                        .doOnTerminate(() -> methodMeters.recordTime(subscribed))
+                        .doOnCancel(methodMeters.cancellations::increment);
+            }).contextWrite(methodMeters::withOrigin);
+        }
+        if (result instanceof Flux<?> flux) {
+            return Flux.defer(() -> {
+                long subscribed = System.nanoTime();
+                return flux.doOnNext(value -> methodMeters.elements.increment())
+                        .doOnError(methodMeters::recordError)
+                        .doOnTerminate(() -> methodMeters.recordTime(subscribed))
+                        .doOnCancel(methodMeters.cancellations::increment);
+            }).contextWrite(methodMeters::withOrigin);
+        }
+        methodMeters.recordTime(start);
+        return result;
     }
 
-    @Around("execution(* dev.demo.order.async.processor.repository.*.*(..))")
-    public Object measureRepositoryMethods(ProceedingJoinPoint joinPoint) throws Throwable {
-        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
-        String className = joinPoint.getTarget().getClass().getSimpleName();
-        String methodName = signature.getMethod().getName();
+    /**
+     * Name of a repository method by the repository it belongs to, rather than the proxy implementing it
+     */
+    private static String origin(Class<?> targetClass, Method method) {
+        Class<?> repository = Arrays.stream(targetClass.getInterfaces())
+                .filter(type -> type.getPackageName().equals(REPOSITORY_PACKAGE))
+                .findFirst()
+                .orElse(targetClass);
+        return repository.getSimpleName() + "." + method.getName();
+    }
 
-        // Create the timer
-        Timer timer = meterRegistry.timer(
-                "repository.method.timer",
-                "class", className,
-                "method", methodName);
+    private record MethodKey(String prefix, Class<?> targetClass, Method method) {
+    }
 
-        // Start the timer
-        long start = System.nanoTime();
+    private class MethodMeters {
 
-        try {
-            // Execute the method
-            return joinPoint.proceed();
-        } catch (Throwable throwable) {
-            // Record exceptions
-            meterRegistry.counter(
-                    "repository.method.errors",
-                    "class", className,
-                    "method", methodName,
-                    "exception", throwable.getClass().getSimpleName()
-            ).increment();
-            throw throwable;
-        } finally {
-            // Record the timing
+        private final String prefix;
+        private final String className;
+        private final String methodName;
+        private final String origin;
+        private final Timer timer;
+        private final Counter elements;
+        private final Counter cancellations;
+        private final Map<Class<?>, Counter> errors = new ConcurrentHashMap<>();
+
+        MethodMeters(String prefix, String className, String methodName, String origin) {
+            this.prefix = prefix;
+            this.className = className;
+            this.methodName = methodName;
+            this.origin = origin;
+            this.timer = Timer.builder(prefix + ".timer")
+                    .description("Time from subscription to completion, or of the call for non-reactive methods")
+                    .tag("class", className)
+                    .tag("method", methodName)
+                    .register(meterRegistry);
+            this.elements = Counter.builder(prefix + ".elements")
+                    .description("Elements emitted by reactive methods")
+                    .tag("class", className)
+                    .tag("method", methodName)
+                    .register(meterRegistry);
+            this.cancellations = Counter.builder(prefix + ".cancellations")
+                    .description("Subscriptions to reactive methods cancelled before completion")
+                    .tag("class", className)
+                    .tag("method", methodName)
+                    .register(meterRegistry);
+        }
+
+        Context withOrigin(Context context) {
+            return origin != null ? context.put(QueryMetricsListener.ORIGIN, origin) : context;
+        }
+
+        void recordTime(long start) {
             timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
         }
+
+        void recordError(Throwable throwable) {
+            errors.computeIfAbsent(throwable.getClass(), type -> Counter.builder(prefix + ".errors")
+                            .tag("class", className)
+                            .tag("method", methodName)
+                            .tag("exception", type.getSimpleName())
+                            .register(meterRegistry))
+                    .increment();
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,18 +1,34 @@
 package dev.demo.order.async.processor.config;
 
+import io.micrometer.common.KeyValue;
+import io.micrometer.common.KeyValues;
 import io.micrometer.observation.Observation;
 import io.micrometer.observation.ObservationRegistry;
 import io.micrometer.observation.annotation.Observed;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 
+/**
+ * Observes public {@link Observed} methods.
+ * <p>
+ * Everything derived from the method is computed once per method. An invocation that is not sampled, or
+ * whose observation is a no-op, runs without creating a context or touching its arguments; otherwise the
+ * {@code args} key-value is only rendered if a handler reads it. Sampling rates are set per observation
+ * name with {@code observation.sampling.rates}, e.g. {@code communication.scheduler.process.single=0.1}.
+ */
 @Aspect
 @Component
 @RequiredArgsConstructor
@@ -21,59 +37,141 @@ public class ObservationAspect {
 
     private final ObservationRegistry observationRegistry;
 
-    @Around("@annotation(io.micrometer.observation.annotation.Observed)")
+    @Value("${observation.sampling.default-rate:1.0}")
+    private double defaultRate;
+
+    @Value("${observation.sampling.rates:}")
+    private String rates;
+
+    private final Map<String, Double> ratesByName = new HashMap<>();
+    private final Map<MethodKey, ObservedMethod> methods = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        for (String entry : rates.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] nameAndRate = entry.split("=", 2);
+            if (nameAndRate.length != 2) {
+                throw new IllegalStateException("Expected name=rate in observation.sampling.rates, got " + entry);
+            }
+            ratesByName.put(nameAndRate[0].trim(), Double.parseDouble(nameAndRate[1].trim()));
+        }
+    }
+
+    // Binding the annotation as an argument would make the pointcut dynamic, matched again on every call
+    @Around("execution(public * dev.demo.order.async.processor..*(..)) "
+            + "&& @annotation(io.micrometer.observation.annotation.Observed)")
     public Object trace(ProceedingJoinPoint joinPoint) throws Throwable {
-        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
-        Method method = signature.getMethod();
+        Class<?> targetClass = joinPoint.getTarget().getClass();
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        ObservedMethod observedMethod = methods.computeIfAbsent(new MethodKey(targetClass, method), key -> {
+            Observed observed = method.getAnnotation(Observed.class);
+            return new ObservedMethod(observed.name(), observed.contextualName(),
+                    targetClass.getSimpleName(), method.getName(),
+                    ratesByName.getOrDefault(observed.name(), defaultRate));
+        });
 
-        Observed observed = method.getAnnotation(Observed.class);
-        String observationName = observed.name();
-        String contextualName = observed.contextualName();
+        Observation observation = observedMethod.sample()
+                ? Observation.createNotStarted(observedMethod.name(),
+                        () -> new ObservedMethodContext(joinPoint.getArgs()), observationRegistry)
+                : Observation.NOOP;
+        if (observation.isNoop()) {
+            return proceed(joinPoint, observedMethod);
+        }
 
-        Observation observation = Observation.createNotStarted(observationName, observationRegistry)
-                .contextualName(contextualName)
-                .lowCardinalityKeyValue("class", joinPoint.getTarget().getClass().getSimpleName())
-                .lowCardinalityKeyValue("method", method.getName())
-                .highCardinalityKeyValue("args", getArgsString(joinPoint));
+        observation.contextualName(observedMethod.contextualName())
+                .lowCardinalityKeyValues(observedMethod.keyValues())
+                .start();
+        try (Observation.Scope scope = observation.openScope()) {
+            return proceed(joinPoint, observedMethod);
+        } catch (Throwable throwable) {
+            observation.error(throwable);
+            throw throwable;
+        } finally {
+            observation.stop();
+        }
+    }
 
+    private Object proceed(ProceedingJoinPoint joinPoint, ObservedMethod observedMethod) throws Throwable {
         try {
-            return observation.observe(() -> {
-                try {
-                    return joinPoint.proceed();
-                } catch (Throwable e) {
-                    throw new RuntimeException(e);
-                }
-            });
+            return joinPoint.proceed();
         } catch (Throwable throwable) {
             log.error("Error in observed method {}.{}: {}",
-                    joinPoint.getTarget().getClass().getSimpleName(),
-                    method.getName(),
+                    observedMethod.className(),
+                    observedMethod.methodName(),
                     throwable.getMessage());
             throw throwable;
         }
     }
 
-    private String getArgsString(ProceedingJoinPoint joinPoint) {
-        StringBuilder sb = new StringBuilder();
-        Object[] args = joinPoint.getArgs();
+    private record MethodKey(Class<?> targetClass, Method method) {
+    }
+
+    private record ObservedMethod(String name, String contextualName, String className, String methodName,
+                                  double rate, KeyValues keyValues) {
 
-        if (args.length == 0) {
-            return "none";
+        ObservedMethod(String name, String contextualName, String className, String methodName, double rate) {
+            this(name, contextualName, className, methodName, rate,
+                    KeyValues.of("class", className, "method", methodName));
         }
 
-        for (int i = 0; i < args.length; i++) {
-            Object arg = args[i];
-            if (arg == null) {
-                sb.append("null");
-            } else if (arg instanceof String || arg instanceof Number || arg instanceof Boolean) {
-                sb.append(arg);
-            } else {
-                sb.append(arg.getClass().getSimpleName());
+        boolean sample() {
+            return rate >= 1 || (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate);
+        }
+    }
+
+    /**
+     * Context that renders the {@code args} key-value from the invocation's arguments when first read
+     */
+    static class ObservedMethodContext extends Observation.Context {
+
+        static final String ARGS = "args";
+
+        private final Object[] args;
+        private KeyValue argsKeyValue;
+
+        ObservedMethodContext(Object[] args) {
+            this.args = args;
+        }
+
+        @Override
+        public KeyValues getHighCardinalityKeyValues() {
+            return super.getHighCardinalityKeyValues().and(argsKeyValue());
+        }
+
+        @Override
+        public KeyValue getHighCardinalityKeyValue(String key) {
+            return ARGS.equals(key) ? argsKeyValue() : super.getHighCardinalityKeyValue(key);
+        }
+
+        private KeyValue argsKeyValue() {
+            if (argsKeyValue == null) {
+                argsKeyValue = KeyValue.of(ARGS, render(args));
+            }
+            return argsKeyValue;
+        }
+
+        private static String render(Object[] args) {
+            if (args.length == 0) {
+                return "none";
             }
-            if (i < args.length - 1) {
-                sb.append(", ");
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < args.length; i++) {
+                Object arg = args[i];
+                if (arg == null) {
+                    sb.append("null");
+                } else if (arg instanceof String || arg instanceof Number || arg instanceof Boolean) {
+                    sb.append(arg);
+                } else {
+                    sb.append(arg.getClass().getSimpleName());
+                }
+                if (i < args.length - 1) {
+                    sb.append(", ");
+                }
             }
+            return sb.toString();
         }
-        return sb.toString();
     }
-}
\ No newline at end of file
+}
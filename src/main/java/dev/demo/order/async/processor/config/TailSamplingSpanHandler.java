@@ -0,0 +1,358 @@
+package dev.demo.order.async.processor.config;
+
+import brave.Tracing;
+import brave.TracingCustomizer;
+import brave.handler.MutableSpan;
+import brave.handler.SpanHandler;
+import brave.propagation.TraceContext;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tail-based trace sampling. Every span is still recorded, but finished spans are buffered per trace and only
+ * handed to the exporting span handlers once the trace is decided: when its local root finishes after all
+ * other spans of the trace, or otherwise once it has been buffered for the decision window.
+ * <p>
+ * Spans in flight are counted per trace. A root that finishes with nothing in flight and children already
+ * finished closes a complete trace. A root that finishes first, like a {@code @Scheduled} method that only
+ * subscribes to its pipeline, leaves the trace open: its children may not even have started, and a trace
+ * that is briefly idle between sequential stages is not finished either, so such traces wait for the window.
+ * <p>
+ * A trace is kept if one of its spans failed, ran longer than the latency threshold for its name or carries an
+ * {@value #ORDER_TYPE_TAG} listed in {@code keep-order-types}. Other traces are kept at the base rate, chosen
+ * by trace id so that every service keeps the same ones. At most {@code max-spans} spans are buffered; past
+ * that, spans of undecided traces are exported only if they are worth keeping themselves.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TailSamplingSpanHandler extends SpanHandler implements TracingCustomizer {
+
+    /**
+     * Span tag with the type of the order a span worked on
+     */
+    public static final String ORDER_TYPE_TAG = "order.type";
+
+    private static final int RATE_SCALE = 10_000;
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${tracing.tail-sampling.enabled:true}")
+    private boolean enabled;
+
+    @Value("${tracing.tail-sampling.window:5s}")
+    private Duration window;
+
+    @Value("${tracing.tail-sampling.rate:0.01}")
+    private double rate;
+
+    @Value("${tracing.tail-sampling.max-spans:10000}")
+    private int maxSpans;
+
+    @Value("${tracing.tail-sampling.default-latency-threshold:1s}")
+    private Duration defaultLatencyThreshold;
+
+    @Value("${tracing.tail-sampling.latency-thresholds:}")
+    private String latencyThresholds;
+
+    @Value("${tracing.tail-sampling.keep-order-types:URGENT}")
+    private Set<String> keepOrderTypes;
+
+    private final Map<String, Long> thresholdMicrosByName = new HashMap<>();
+    private final Map<TraceKey, Trace> traces = new ConcurrentHashMap<>();
+    private final AtomicInteger bufferedSpans = new AtomicInteger();
+    private final Map<Reason, Counter> keptTraces = new EnumMap<>(Reason.class);
+    private Cache<TraceKey, Boolean> decisions;
+    private Counter droppedTraces;
+    private Counter exportedSpans;
+    private Counter unsampledSpans;
+    private Counter overflowSpans;
+    private List<SpanHandler> exporters = List.of();
+    private boolean exportersHandleAbandoned;
+
+    @PostConstruct
+    public void init() {
+        for (String entry : latencyThresholds.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] nameAndThreshold = entry.split("=", 2);
+            if (nameAndThreshold.length != 2) {
+                throw new IllegalStateException(
+                        "Expected name=duration in tracing.tail-sampling.latency-thresholds, got " + entry);
+            }
+            thresholdMicrosByName.put(nameAndThreshold[0].trim(),
+                    DurationStyle.detectAndParse(nameAndThreshold[1].trim()).toNanos() / 1000);
+        }
+        // Spans that finish after their trace was decided follow the decision
+        decisions = Caffeine.newBuilder()
+                .expireAfterWrite(window.multipliedBy(2))
+                .maximumSize(maxSpans)
+                .build();
+
+        Gauge.builder("tracing.tail.buffered.spans", bufferedSpans, AtomicInteger::get)
+                .description("Finished spans waiting for the sampling decision of their trace")
+                .register(meterRegistry);
+        Gauge.builder("tracing.tail.buffered.traces", traces, Map::size)
+                .description("Traces waiting for a sampling decision")
+                .register(meterRegistry);
+        for (Reason reason : Reason.values()) {
+            keptTraces.put(reason, traceCounter("kept", reason.tag));
+        }
+        droppedTraces = traceCounter("dropped", "none");
+        exportedSpans = Counter.builder("tracing.tail.spans.exported")
+                .description("Spans handed to the exporters")
+                .register(meterRegistry);
+        unsampledSpans = droppedSpanCounter("unsampled");
+        overflowSpans = droppedSpanCounter("overflow");
+    }
+
+    /**
+     * Put this handler in front of the exporting span handlers
+     */
+    @Override
+    public void customize(Tracing.Builder builder) {
+        if (!enabled) {
+            return;
+        }
+        // Boot has already added this handler along with the other SpanHandler beans
+        exporters = builder.spanHandlers().stream().filter(handler -> handler != this).toList();
+        exportersHandleAbandoned = exporters.stream().anyMatch(SpanHandler::handlesAbandoned);
+        builder.clearSpanHandlers().addSpanHandler(this);
+        log.info("Tail sampling traces: window {}, base rate {}, at most {} buffered spans", window, rate, maxSpans);
+    }
+
+    @Override
+    public boolean begin(TraceContext context, MutableSpan span, TraceContext parent) {
+        for (SpanHandler exporter : exporters) {
+            if (!exporter.begin(context, span, parent)) {
+                return false;
+            }
+        }
+        TraceKey key = new TraceKey(context.traceIdHigh(), context.traceId());
+        if (decisions.getIfPresent(key) == null && (traces.containsKey(key) || bufferedSpans.get() < maxSpans)) {
+            traces.computeIfAbsent(key, k -> new Trace(System.nanoTime())).begin();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean end(TraceContext context, MutableSpan span, Cause cause) {
+        TraceKey key = new TraceKey(context.traceIdHigh(), context.traceId());
+        if (cause != Cause.FINISHED) {
+            Trace trace = traces.get(key);
+            if (trace != null) {
+                trace.abandon();
+            }
+            return forward(context, span, cause);
+        }
+        Reason reason = reason(span);
+
+        Boolean keep = decisions.getIfPresent(key);
+        if (keep == null) {
+            Trace trace = traces.get(key);
+            if (trace == null && bufferedSpans.get() >= maxSpans) {
+                if (reason != null) {
+                    export(context, span);
+                } else {
+                    overflowSpans.increment();
+                }
+                return true;
+            }
+            if (trace == null) {
+                trace = traces.computeIfAbsent(key, k -> new Trace(System.nanoTime()));
+            }
+            if (trace.add(context, span, reason)) {
+                bufferedSpans.incrementAndGet();
+                if (context.isLocalRoot() && trace.isComplete()) {
+                    decide(key, trace);
+                }
+                return true;
+            }
+            // Decided while this span was being added
+            keep = decisions.getIfPresent(key);
+        }
+        if (Boolean.TRUE.equals(keep) || reason != null) {
+            export(context, span);
+        } else {
+            unsampledSpans.increment();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean handlesAbandoned() {
+        return exportersHandleAbandoned;
+    }
+
+    /**
+     * Decide traces that have not been closed by their local root within the window
+     */
+    @Scheduled(fixedDelayString = "${tracing.tail-sampling.sweep-interval:1000}")
+    public void sweep() {
+        long cutoff = System.nanoTime() - window.toNanos();
+        traces.forEach((key, trace) -> {
+            if (trace.firstSeenNanos - cutoff <= 0) {
+                decide(key, trace);
+            }
+        });
+    }
+
+    private void decide(TraceKey key, Trace trace) {
+        List<PendingSpan> spans;
+        Reason reason;
+        synchronized (trace) {
+            if (trace.decided) {
+                return;
+            }
+            reason = trace.reason != null ? trace.reason : sampled(key) ? Reason.SAMPLED : null;
+            decisions.put(key, reason != null);
+            trace.decided = true;
+            spans = trace.spans;
+        }
+        traces.remove(key, trace);
+        bufferedSpans.addAndGet(-spans.size());
+
+        if (reason == null) {
+            droppedTraces.increment();
+            unsampledSpans.increment(spans.size());
+            return;
+        }
+        keptTraces.get(reason).increment();
+        for (PendingSpan pending : spans) {
+            export(pending.context(), pending.span());
+        }
+    }
+
+    private void export(TraceContext context, MutableSpan span) {
+        exportedSpans.increment();
+        forward(context, span, Cause.FINISHED);
+    }
+
+    private boolean forward(TraceContext context, MutableSpan span, Cause cause) {
+        for (SpanHandler exporter : exporters) {
+            if (!exporter.end(context, span, cause)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Reason reason(MutableSpan span) {
+        if (span.error() != null || span.tag("error") != null || "SERVER_ERROR".equals(span.tag("outcome"))) {
+            return Reason.ERROR;
+        }
+        String orderType = span.tag(ORDER_TYPE_TAG);
+        if (orderType != null && keepOrderTypes.contains(orderType)) {
+            return Reason.ORDER_TYPE;
+        }
+        long threshold = span.name() != null
+                ? thresholdMicrosByName.getOrDefault(span.name(), defaultLatencyThreshold.toNanos() / 1000)
+                : defaultLatencyThreshold.toNanos() / 1000;
+        if (span.finishTimestamp() - span.startTimestamp() > threshold) {
+            return Reason.SLOW;
+        }
+        return null;
+    }
+
+    private boolean sampled(TraceKey key) {
+        return rate >= 1 || Math.floorMod(key.traceId(), RATE_SCALE) < rate * RATE_SCALE;
+    }
+
+    private Counter traceCounter(String decision, String reason) {
+        return Counter.builder("tracing.tail.traces")
+                .description("Traces decided by the tail sampler")
+                .tag("decision", decision)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private Counter droppedSpanCounter(String reason) {
+        return Counter.builder("tracing.tail.spans.dropped")
+                .description("Spans not exported: their trace was not sampled, or the buffer was full")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Why a trace is kept, strongest first
+     */
+    private enum Reason {
+        ERROR("error"),
+        ORDER_TYPE("order_type"),
+        SLOW("slow"),
+        SAMPLED("sampled");
+
+        private final String tag;
+
+        Reason(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private record TraceKey(long traceIdHigh, long traceId) {
+    }
+
+    private record PendingSpan(TraceContext context, MutableSpan span) {
+    }
+
+    private static class Trace {
+
+        private final long firstSeenNanos;
+        private final List<PendingSpan> spans = new ArrayList<>();
+        private Reason reason;
+        private boolean decided;
+        private int inFlight;
+
+        Trace(long firstSeenNanos) {
+            this.firstSeenNanos = firstSeenNanos;
+        }
+
+        synchronized void begin() {
+            inFlight++;
+        }
+
+        synchronized void abandon() {
+            inFlight = Math.max(0, inFlight - 1);
+        }
+
+        /**
+         * Whether nothing is in flight and the root is not the only finished span, so it finished last
+         */
+        synchronized boolean isComplete() {
+            return inFlight == 0 && spans.size() > 1;
+        }
+
+        synchronized boolean add(TraceContext context, MutableSpan span, Reason spanReason) {
+            if (decided) {
+                return false;
+            }
+            inFlight = Math.max(0, inFlight - 1);
+            spans.add(new PendingSpan(context, span));
+            if (spanReason != null && (reason == null || spanReason.ordinal() < reason.ordinal())) {
+                reason = spanReason;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package dev.demo.order.async.processor.controller;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Result of a batch-get request that asked for missing IDs to be reported
+ *
+ * @param found   Entities found, in no particular order
+ * @param missing Requested IDs that were not found
+ * @param <T>     Entity type
+ */
+public record BatchGetResponse<T>(List<T> found, List<UUID> missing) {
+}
@@ -0,0 +1,64 @@
+package dev.demo.order.async.processor.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Request validation and missing-ID reporting shared by the batch-get endpoints
+ */
+@Component
+public class BatchGetSupport {
+
+    @Value("${api.batch-get.max-ids:200}")
+    private int maxIds;
+
+    /**
+     * Validate requested IDs
+     *
+     * @param ids IDs from the request body
+     * @return Distinct IDs in request order
+     * @throws ResponseStatusException 400 if more than the allowed number of IDs were requested
+     */
+    public List<UUID> ids(List<UUID> ids) {
+        Set<UUID> distinct = new LinkedHashSet<>();
+        if (ids != null) {
+            ids.stream().filter(Objects::nonNull).forEach(distinct::add);
+        }
+        if (distinct.size() > maxIds) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + maxIds + " IDs can be requested at once, got " + distinct.size());
+        }
+        return List.copyOf(distinct);
+    }
+
+    /**
+     * Collect found entities and report which requested IDs were not among them
+     *
+     * @param ids   Requested IDs
+     * @param found Entities found
+     * @param idOf  ID of an entity
+     * @param <T>   Entity type
+     * @return Found entities with the missing IDs
+     */
+    public <T> Mono<BatchGetResponse<T>> withMissing(List<UUID> ids, Flux<T> found, Function<T, UUID> idOf) {
+        return found.collectList()
+                .map(entities -> {
+                    Set<UUID> foundIds = new HashSet<>();
+                    entities.forEach(entity -> foundIds.add(idOf.apply(entity)));
+                    List<UUID> missing = ids.stream().filter(id -> !foundIds.contains(id)).toList();
+                    return new BatchGetResponse<>(entities, missing);
+                });
+    }
+}
@@ -1,5 +1,6 @@
 package dev.demo.order.async.processor.controller;
 
+import dev.demo.order.async.processor.CodecConfig;
 import dev.demo.order.async.processor.repository.model.OrderCommunication;
 import dev.demo.order.async.processor.service.CommunicationService;
 import io.micrometer.observation.annotation.Observed;
@@ -7,6 +8,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
@@ -21,6 +23,8 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -33,6 +37,7 @@ import java.util.UUID;
 public class CommunicationController {
 
     private final CommunicationService communicationService;
+    private final PaginationSupport pagination;
 
     /**
      * Get a communication by ID
@@ -47,24 +52,80 @@ public class CommunicationController {
     }
 
     /**
-     * Get communications for an order
+     * Get communications for an order, newest first, as a JSON array or NDJSON stream; with {@code after}
+     * and/or {@code limit} one page is returned
      */
-    @GetMapping("/order/{orderId}")
+    @GetMapping(value = "/order/{orderId}",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE,
+                    MediaType.APPLICATION_CBOR_VALUE, CodecConfig.APPLICATION_SMILE_VALUE})
     @Observed(name = "api.communication.find.by.order", contextualName = "apiFindCommunicationsByOrder")
-    public Flux<OrderCommunication> getCommunicationsByOrder(@PathVariable UUID orderId) {
-        return communicationService.findCommunicationsByOrder(orderId)
+    public Flux<OrderCommunication> getCommunicationsByOrder(
+            @PathVariable UUID orderId,
+            @RequestParam(required = false) UUID after,
+            @RequestParam(required = false) Integer limit) {
+        Flux<OrderCommunication> communications = pagination.isPaged(after, limit)
+                ? communicationService.findCommunicationsByOrder(orderId, after, pagination.limit(limit))
+                : communicationService.findCommunicationsByOrder(orderId);
+        return pagination.stream(communications)
                 .doOnComplete(() -> log.info("Retrieved communications for order: {}", orderId))
                 .doOnError(error -> log.error("Error retrieving communications for order {}: {}",
                         orderId, error.getMessage(), error));
     }
 
     /**
-     * Get communications for a customer
+     * Get only the requested fields of an order's communications, e.g. {@code ?fields=status,sentAt}; the
+     * other columns, such as the message body, are not read
      */
-    @GetMapping("/customer/{customerId}")
+    @GetMapping(value = "/order/{orderId}", params = "fields",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE,
+                    MediaType.APPLICATION_CBOR_VALUE, CodecConfig.APPLICATION_SMILE_VALUE})
+    @Observed(name = "api.communication.find.by.order", contextualName = "apiFindCommunicationFieldsByOrder")
+    public Flux<Map<String, Object>> getCommunicationFieldsByOrder(
+            @PathVariable UUID orderId,
+            @RequestParam List<String> fields,
+            @RequestParam(required = false) UUID after,
+            @RequestParam(required = false) Integer limit) {
+        Integer pageLimit = pagination.isPaged(after, limit) ? pagination.limit(limit) : null;
+        return pagination.stream(communicationService.findCommunicationFieldsByOrder(orderId, fields, after, pageLimit))
+                .doOnError(error -> log.error("Error retrieving communication fields for order {}: {}",
+                        orderId, error.getMessage(), error));
+    }
+
+    /**
+     * Get only the requested fields of a customer's communications; the other columns are not read
+     */
+    @GetMapping(value = "/customer/{customerId}", params = "fields",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE,
+                    MediaType.APPLICATION_CBOR_VALUE, CodecConfig.APPLICATION_SMILE_VALUE})
+    @Observed(name = "api.communication.find.by.customer", contextualName = "apiFindCommunicationFieldsByCustomer")
+    public Flux<Map<String, Object>> getCommunicationFieldsByCustomer(
+            @PathVariable UUID customerId,
+            @RequestParam List<String> fields,
+            @RequestParam(required = false) UUID after,
+            @RequestParam(required = false) Integer limit) {
+        Integer pageLimit = pagination.isPaged(after, limit) ? pagination.limit(limit) : null;
+        return pagination.stream(
+                        communicationService.findCommunicationFieldsByCustomer(customerId, fields, after, pageLimit))
+                .doOnError(error -> log.error("Error retrieving communication fields for customer {}: {}",
+                        customerId, error.getMessage(), error));
+    }
+
+    /**
+     * Get communications for a customer, newest first, as a JSON array or NDJSON stream; with {@code after}
+     * and/or {@code limit} one page is returned
+     */
+    @GetMapping(value = "/customer/{customerId}",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE,
+                    MediaType.APPLICATION_CBOR_VALUE, CodecConfig.APPLICATION_SMILE_VALUE})
     @Observed(name = "api.communication.find.by.customer", contextualName = "apiFindCommunicationsByCustomer")
-    public Flux<OrderCommunication> getCommunicationsByCustomer(@PathVariable UUID customerId) {
-        return communicationService.findCommunicationsByCustomer(customerId)
+    public Flux<OrderCommunication> getCommunicationsByCustomer(
+            @PathVariable UUID customerId,
+            @RequestParam(required = false) UUID after,
+            @RequestParam(required = false) Integer limit) {
+        Flux<OrderCommunication> communications = pagination.isPaged(after, limit)
+                ? communicationService.findCommunicationsByCustomer(customerId, after, pagination.limit(limit))
+                : communicationService.findCommunicationsByCustomer(customerId);
+        return pagination.stream(communications)
                 .doOnComplete(() -> log.info("Retrieved communications for customer: {}", customerId))
                 .doOnError(error -> log.error("Error retrieving communications for customer {}: {}",
                         customerId, error.getMessage(), error));
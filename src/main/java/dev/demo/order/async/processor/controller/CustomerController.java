@@ -1,11 +1,13 @@
 package dev.demo.order.async.processor.controller;
 
+import dev.demo.order.async.processor.CodecConfig;
 import dev.demo.order.async.processor.repository.model.Customer;
 import dev.demo.order.async.processor.service.CustomerService;
 import io.micrometer.observation.annotation.Observed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -14,12 +16,15 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -32,26 +37,63 @@ import java.util.UUID;
 public class CustomerController {
 
     private final CustomerService customerService;
+    private final BatchGetSupport batchGetSupport;
+    private final PaginationSupport pagination;
 
-    @GetMapping("/all")
+    /**
+     * Get all customers as a JSON array or NDJSON stream. The whole list answers 304 if none of the customers
+     * changed since {@code If-None-Match}; with {@code after} and/or {@code limit} one page is returned.
+     */
+    @GetMapping(value = "/all",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE,
+                    MediaType.APPLICATION_CBOR_VALUE, CodecConfig.APPLICATION_SMILE_VALUE})
     @Observed(name = "api.customer.find.all", contextualName = "apiFindAllCustomers")
-    public Flux<Customer> findAllCustomers() {
-        return customerService.findAllCustomers();
+    public Mono<ResponseEntity<Flux<Customer>>> findAllCustomers(
+            @RequestParam(required = false) UUID after,
+            @RequestParam(required = false) Integer limit,
+            ServerWebExchange exchange) {
+        if (pagination.isPaged(after, limit)) {
+            return Mono.just(ResponseEntity.ok(
+                    pagination.stream(customerService.findAllCustomers(after, pagination.limit(limit)))));
+        }
+        return EntityTags.list(exchange, customerService.findAllCustomerVersions(),
+                pagination.stream(customerService.findAllCustomers()));
     }
 
     /**
-     * Get a customer by ID
+     * Get a customer by ID, or 304 if it still matches {@code If-None-Match}
      */
     @GetMapping("/{id}")
     @Observed(name = "api.customer.get", contextualName = "apiGetCustomerById")
-    public Mono<ResponseEntity<Customer>> getCustomerById(@PathVariable UUID id) {
-        return customerService
-                .getCustomerById(id)
-                .map(ResponseEntity::ok)
-                .defaultIfEmpty(ResponseEntity.notFound().build())
+    public Mono<ResponseEntity<Customer>> getCustomerById(@PathVariable UUID id, ServerWebExchange exchange) {
+        return EntityTags.get(exchange, id, customerService.getCustomerVersion(id), customerService.getCustomerById(id),
+                        Customer::getVersion)
                 .doOnError(error -> log.error("Error retrieving customer {}: {}", id, error.getMessage(), error));
     }
 
+    /**
+     * Get up to {@code api.batch-get.max-ids} customers by ID, from the cache where possible and with one
+     * query for the rest, streamed as they are read
+     */
+    @PostMapping("/batch-get")
+    @Observed(name = "api.customer.batch.get", contextualName = "apiBatchGetCustomers")
+    public Flux<Customer> batchGetCustomers(@RequestBody List<UUID> ids) {
+        List<UUID> distinctIds = batchGetSupport.ids(ids);
+        return customerService.getCustomersByIds(distinctIds)
+                .doOnError(error -> log.error("Error batch-getting customers: {}", error.getMessage(), error));
+    }
+
+    /**
+     * Get customers by ID, reporting the IDs that were not found
+     */
+    @PostMapping(value = "/batch-get", params = "includeMissing=true")
+    @Observed(name = "api.customer.batch.get", contextualName = "apiBatchGetCustomers")
+    public Mono<BatchGetResponse<Customer>> batchGetCustomersWithMissing(@RequestBody List<UUID> ids) {
+        List<UUID> distinctIds = batchGetSupport.ids(ids);
+        return batchGetSupport.withMissing(distinctIds, customerService.getCustomersByIds(distinctIds), Customer::getId)
+                .doOnError(error -> log.error("Error batch-getting customers: {}", error.getMessage(), error));
+    }
+
     /**
      * Find customer by tax ID
      */
@@ -130,15 +172,29 @@ public class CustomerController {
     }
 
     /**
-     * Find customers by segment
+     * Find customers by segment as a JSON array or NDJSON stream. The whole list answers 304 if none of the
+     * customers changed since {@code If-None-Match}; with {@code after} and/or {@code limit} one page is returned.
      */
-    @GetMapping("/segment/{segment}")
+    @GetMapping(value = "/segment/{segment}",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE,
+                    MediaType.APPLICATION_CBOR_VALUE, CodecConfig.APPLICATION_SMILE_VALUE})
     @Observed(name = "api.customer.find.by.segment", contextualName = "apiFindCustomersBySegment")
-    public Flux<Customer> findCustomersBySegment(@PathVariable String segment) {
-        return customerService
-                .findCustomersBySegment(segment)
+    public Mono<ResponseEntity<Flux<Customer>>> findCustomersBySegment(
+            @PathVariable String segment,
+            @RequestParam(required = false) UUID after,
+            @RequestParam(required = false) Integer limit,
+            ServerWebExchange exchange) {
+        boolean paged = pagination.isPaged(after, limit);
+        Flux<Customer> customers = (paged
+                ? customerService.findCustomersBySegment(segment, after, pagination.limit(limit))
+                : customerService.findCustomersBySegment(segment))
                 .doOnComplete(() -> log.info("Retrieved customers for segment: {}", segment))
                 .doOnError(error ->
                         log.error("Error retrieving customers for segment {}: {}", segment, error.getMessage(), error));
+        if (paged) {
+            return Mono.just(ResponseEntity.ok(pagination.stream(customers)));
+        }
+        return EntityTags.list(exchange, customerService.findCustomerVersionsBySegment(segment),
+                pagination.stream(customers));
     }
 }
\ No newline at end of file
@@ -21,6 +21,7 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalDate;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -33,6 +34,7 @@ import java.util.UUID;
 public class DocumentController {
 
     private final DocumentService documentService;
+    private final BatchGetSupport batchGetSupport;
 
     /**
      * Get a document by ID
@@ -46,6 +48,28 @@ public class DocumentController {
                 .doOnError(error -> log.error("Error retrieving document {}: {}", id, error.getMessage(), error));
     }
 
+    /**
+     * Get up to {@code api.batch-get.max-ids} documents by ID with one query, streamed as they are read
+     */
+    @PostMapping("/batch-get")
+    @Observed(name = "api.document.batch.get", contextualName = "apiBatchGetDocuments")
+    public Flux<OrderDocument> batchGetDocuments(@RequestBody List<UUID> ids) {
+        List<UUID> distinctIds = batchGetSupport.ids(ids);
+        return documentService.getDocumentsByIds(distinctIds)
+                .doOnError(error -> log.error("Error batch-getting documents: {}", error.getMessage(), error));
+    }
+
+    /**
+     * Get documents by ID with one query, reporting the IDs that were not found
+     */
+    @PostMapping(value = "/batch-get", params = "includeMissing=true")
+    @Observed(name = "api.document.batch.get", contextualName = "apiBatchGetDocuments")
+    public Mono<BatchGetResponse<OrderDocument>> batchGetDocumentsWithMissing(@RequestBody List<UUID> ids) {
+        List<UUID> distinctIds = batchGetSupport.ids(ids);
+        return batchGetSupport.withMissing(distinctIds, documentService.getDocumentsByIds(distinctIds), OrderDocument::getId)
+                .doOnError(error -> log.error("Error batch-getting documents: {}", error.getMessage(), error));
+    }
+
     /**
      * Get documents for an order
      */
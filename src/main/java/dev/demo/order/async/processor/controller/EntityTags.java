@@ -0,0 +1,134 @@
+package dev.demo.order.async.processor.controller;
+
+import dev.demo.order.async.processor.repository.model.EntityVersion;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Weak ETags derived from the {@code @Version} column, and conditional GETs that answer a matching
+ * {@code If-None-Match} with 304 after reading only versions instead of the full entities. Lists carry an
+ * ETag only on conditional requests, as computing it costs an extra query.
+ */
+final class EntityTags {
+
+    private EntityTags() {
+    }
+
+    /**
+     * ETag of a single entity
+     */
+    static String of(UUID id, Long version) {
+        return "W/\"" + id + "-" + version + "\"";
+    }
+
+    /**
+     * ETag of a list of entities, independent of the order they are returned in
+     */
+    static String of(List<EntityVersion> versions) {
+        MessageDigest digest = sha256();
+        ByteBuffer buffer = ByteBuffer.allocate(3 * Long.BYTES);
+        versions.stream()
+                .sorted(Comparator.comparing(EntityVersion::id))
+                .forEach(entity -> {
+                    buffer.clear();
+                    buffer.putLong(entity.id().getMostSignificantBits())
+                            .putLong(entity.id().getLeastSignificantBits())
+                            .putLong(entity.version() != null ? entity.version() : -1);
+                    digest.update(buffer.array());
+                });
+        return "W/\"" + versions.size() + "-" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+    }
+
+    /**
+     * Conditional GET of a single entity. With {@code If-None-Match} only the version is read first.
+     *
+     * @param exchange  Current exchange
+     * @param id        Entity ID
+     * @param version   Current version of the entity, empty if it doesn't exist
+     * @param entity    The entity, empty if it doesn't exist
+     * @param versionOf Version of a loaded entity
+     * @return 200 with ETag, 304, or 404
+     */
+    static <T> Mono<ResponseEntity<T>> get(ServerWebExchange exchange, UUID id, Mono<Long> version, Mono<T> entity,
+                                           Function<T, Long> versionOf) {
+        Mono<ResponseEntity<T>> full = entity.map(loaded -> ResponseEntity.ok()
+                .eTag(of(id, versionOf.apply(loaded)))
+                .body(loaded));
+        String ifNoneMatch = exchange.getRequest().getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch == null) {
+            return full.defaultIfEmpty(ResponseEntity.notFound().build());
+        }
+        return version
+                .flatMap(current -> {
+                    String tag = of(id, current);
+                    return matches(ifNoneMatch, tag) ? Mono.just(EntityTags.<T>notModified(tag)) : full;
+                })
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Conditional GET of a list of entities. Versions are read before the entities, so a change between the
+     * two queries can only make the ETag older than the body, which costs the client one extra full GET.
+     * Without {@code If-None-Match} the versions are not read and the list is returned without an ETag.
+     *
+     * @param exchange Current exchange
+     * @param versions ID and version of each entity in the list
+     * @param entities The entities, streamed when the list has changed
+     * @return 200, with ETag if the request was conditional, or 304
+     */
+    static <T> Mono<ResponseEntity<Flux<T>>> list(ServerWebExchange exchange, Flux<EntityVersion> versions,
+                                                  Flux<T> entities) {
+        String ifNoneMatch = exchange.getRequest().getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch == null) {
+            return Mono.just(ResponseEntity.ok().body(entities));
+        }
+        return versions.collectList()
+                .map(EntityTags::of)
+                .map(tag -> matches(ifNoneMatch, tag)
+                        ? EntityTags.<Flux<T>>notModified(tag)
+                        : ResponseEntity.ok().eTag(tag).body(entities));
+    }
+
+    /**
+     * Weak comparison of an {@code If-None-Match} header against an ETag
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        String opaque = stripWeak(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.equals("*") || stripWeak(trimmed).equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+    }
+
+    private static String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -1,17 +1,27 @@
 package dev.demo.order.async.processor.controller;
 
+import dev.demo.order.async.processor.CodecConfig;
+import dev.demo.order.async.processor.event.OrderStatusEvent;
+import dev.demo.order.async.processor.event.OrderStatusEvents;
 import dev.demo.order.async.processor.repository.model.Order;
 import dev.demo.order.async.processor.service.OrderService;
 import io.micrometer.observation.annotation.Observed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -24,19 +34,65 @@ import java.util.UUID;
 public class OrderController {
 
     private final OrderService orderService;
+    private final BatchGetSupport batchGetSupport;
+    private final OrderStatusEvents orderStatusEvents;
+    private final PaginationSupport pagination;
+
+    @Value("${order.events.heartbeat-interval:15s}")
+    private Duration heartbeatInterval;
 
     /**
-     * Get an order by ID
+     * Stream status changes of all orders as Server-Sent Events, resuming after {@code Last-Event-ID}
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<OrderStatusEvent>> streamOrderStatus(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return serverSentEvents(orderStatusEvents.stream(lastEventId));
+    }
+
+    /**
+     * Stream status changes of a customer's orders as Server-Sent Events, resuming after {@code Last-Event-ID}
+     */
+    @GetMapping(value = "/customer/{customerId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<OrderStatusEvent>> streamCustomerOrderStatus(
+            @PathVariable UUID customerId,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return serverSentEvents(orderStatusEvents.streamForCustomer(customerId, lastEventId));
+    }
+
+    /**
+     * Get an order by ID, or 304 if it still matches {@code If-None-Match}
      */
     @GetMapping("/{id}")
     @Observed(name = "api.order.get", contextualName = "apiGetOrderById")
-    public Mono<ResponseEntity<Order>> getOrderById(@PathVariable UUID id) {
-        return orderService.getOrderById(id)
-                .map(ResponseEntity::ok)
-                .defaultIfEmpty(ResponseEntity.notFound().build())
+    public Mono<ResponseEntity<Order>> getOrderById(@PathVariable UUID id, ServerWebExchange exchange) {
+        return EntityTags.get(exchange, id, orderService.getOrderVersion(id), orderService.getOrderById(id),
+                        Order::getVersion)
                 .doOnError(error -> log.error("Error retrieving order {}: {}", id, error.getMessage(), error));
     }
 
+    /**
+     * Get up to {@code api.batch-get.max-ids} orders by ID with one query, streamed as they are read
+     */
+    @PostMapping("/batch-get")
+    @Observed(name = "api.order.batch.get", contextualName = "apiBatchGetOrders")
+    public Flux<Order> batchGetOrders(@RequestBody List<UUID> ids) {
+        List<UUID> distinctIds = batchGetSupport.ids(ids);
+        return orderService.getOrdersByIds(distinctIds)
+                .doOnError(error -> log.error("Error batch-getting orders: {}", error.getMessage(), error));
+    }
+
+    /**
+     * Get orders by ID with one query, reporting the IDs that were not found
+     */
+    @PostMapping(value = "/batch-get", params = "includeMissing=true")
+    @Observed(name = "api.order.batch.get", contextualName = "apiBatchGetOrders")
+    public Mono<BatchGetResponse<Order>> batchGetOrdersWithMissing(@RequestBody List<UUID> ids) {
+        List<UUID> distinctIds = batchGetSupport.ids(ids);
+        return batchGetSupport.withMissing(distinctIds, orderService.getOrdersByIds(distinctIds), Order::getId)
+                .doOnError(error -> log.error("Error batch-getting orders: {}", error.getMessage(), error));
+    }
+
     /**
      * Create a new order
      */
@@ -85,15 +141,49 @@ public class OrderController {
     }
 
     /**
-     * Get orders for a customer
+     * Get orders for a customer as a JSON array or NDJSON stream. The whole list answers 304 if none of the
+     * orders changed since {@code If-None-Match}; with {@code after} and/or {@code limit} one page is returned.
      */
-    @GetMapping("/customer/{customerId}")
+    @GetMapping(value = "/customer/{customerId}",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE,
+                    MediaType.APPLICATION_CBOR_VALUE, CodecConfig.APPLICATION_SMILE_VALUE})
     @Observed(name = "api.order.find.by.customer", contextualName = "apiFindOrdersByCustomer")
-    public Flux<Order> getOrdersByCustomer(@PathVariable UUID customerId) {
-        return orderService.findOrdersByCustomer(customerId)
+    public Mono<ResponseEntity<Flux<Order>>> getOrdersByCustomer(
+            @PathVariable UUID customerId,
+            @RequestParam(required = false) UUID after,
+            @RequestParam(required = false) Integer limit,
+            ServerWebExchange exchange) {
+        boolean paged = pagination.isPaged(after, limit);
+        Flux<Order> orders = (paged
+                ? orderService.findOrdersByCustomer(customerId, after, pagination.limit(limit))
+                : orderService.findOrdersByCustomer(customerId))
                 .doOnComplete(() -> log.info("Retrieved orders for customer: {}", customerId))
                 .doOnError(error -> log.error("Error retrieving orders for customer {}: {}",
                         customerId, error.getMessage(), error));
+        if (paged) {
+            return Mono.just(ResponseEntity.ok(pagination.stream(orders)));
+        }
+        return EntityTags.list(exchange, orderService.findOrderVersionsByCustomer(customerId),
+                pagination.stream(orders));
+    }
+
+    /**
+     * Get only the requested fields of a customer's orders, e.g. {@code ?fields=status,priority}; the other
+     * columns are not read. Supports the same {@code after}/{@code limit} paging as the full list.
+     */
+    @GetMapping(value = "/customer/{customerId}", params = "fields",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE,
+                    MediaType.APPLICATION_CBOR_VALUE, CodecConfig.APPLICATION_SMILE_VALUE})
+    @Observed(name = "api.order.find.by.customer", contextualName = "apiFindOrderFieldsByCustomer")
+    public Flux<Map<String, Object>> getOrderFieldsByCustomer(
+            @PathVariable UUID customerId,
+            @RequestParam List<String> fields,
+            @RequestParam(required = false) UUID after,
+            @RequestParam(required = false) Integer limit) {
+        Integer pageLimit = pagination.isPaged(after, limit) ? pagination.limit(limit) : null;
+        return pagination.stream(orderService.findOrderFieldsByCustomer(customerId, fields, after, pageLimit))
+                .doOnError(error -> log.error("Error retrieving order fields for customer {}: {}",
+                        customerId, error.getMessage(), error));
     }
 
     /**
@@ -107,4 +197,15 @@ public class OrderController {
                 .doOnSuccess(processedOrder -> log.info("Manually processed order: {}", id))
                 .doOnError(error -> log.error("Error processing order {}: {}", id, error.getMessage(), error));
     }
-}
\ No newline at end of file
+
+    private Flux<ServerSentEvent<OrderStatusEvent>> serverSentEvents(Flux<OrderStatusEvent> events) {
+        // Comments keep idle connections open through proxies and detect clients that went away
+        Flux<ServerSentEvent<OrderStatusEvent>> heartbeats = Flux.interval(heartbeatInterval)
+                .map(tick -> ServerSentEvent.<OrderStatusEvent>builder().comment("heartbeat").build());
+        return events.map(event -> ServerSentEvent.builder(event)
+                        .id(event.eventId())
+                        .event("order-status")
+                        .build())
+                .mergeWith(heartbeats);
+    }
+}
@@ -0,0 +1,62 @@
+package dev.demo.order.async.processor.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+
+import java.util.UUID;
+
+/**
+ * Keyset pagination and demand control shared by the list endpoints.
+ * <p>
+ * A page is requested with {@code after}, the ID of the last item received, and/or {@code limit}. Because
+ * the position is a key rather than an offset, a client whose stream broke off resumes exactly where it
+ * stopped. A page with fewer than {@code limit} items is the last one.
+ */
+@Component
+public class PaginationSupport {
+
+    @Value("${api.pagination.default-limit:100}")
+    private int defaultLimit;
+
+    @Value("${api.pagination.max-limit:1000}")
+    private int maxLimit;
+
+    @Value("${spring.r2dbc.fetch-size:250}")
+    private int fetchSize;
+
+    /**
+     * Whether the request asked for a page rather than the whole list
+     */
+    public boolean isPaged(UUID after, Integer limit) {
+        return after != null || limit != null;
+    }
+
+    /**
+     * Validate the requested page size
+     *
+     * @param limit Requested page size, null for the default
+     * @return Page size to query
+     * @throws ResponseStatusException 400 if the page size is not between 1 and the configured maximum
+     */
+    public int limit(Integer limit) {
+        if (limit == null) {
+            return defaultLimit;
+        }
+        if (limit < 1 || limit > maxLimit) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "limit must be between 1 and " + maxLimit + ", got " + limit);
+        }
+        return limit;
+    }
+
+    /**
+     * Request rows from the database in fetch-size batches, as the client reads them, instead of all at once.
+     * A slow reader then holds back the cursor rather than filling memory.
+     */
+    public <T> Flux<T> stream(Flux<T> rows) {
+        return rows.limitRate(fetchSize);
+    }
+}
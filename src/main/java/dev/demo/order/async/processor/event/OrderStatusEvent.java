@@ -0,0 +1,73 @@
+package dev.demo.order.async.processor.event;
+
+import dev.demo.order.async.processor.repository.model.Order;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.UUID;
+
+/**
+ * An order reached a new status
+ *
+ * @param orderId    Order ID
+ * @param customerId Customer of the order
+ * @param status     New status
+ * @param version    Order version after the change
+ * @param updatedBy  Who changed the status
+ * @param updatedAt  When the status changed
+ */
+public record OrderStatusEvent(UUID orderId, UUID customerId, String status, Long version,
+                               String updatedBy, LocalDateTime updatedAt) {
+
+    // Basic ISO format, so the timestamp needs no escaping in the detail
+    private static final DateTimeFormatter UPDATED_AT = DateTimeFormatter.ofPattern("uuuuMMdd'T'HHmmss.SSSSSS");
+
+    static OrderStatusEvent of(Order order) {
+        return new OrderStatusEvent(order.getId(), order.getCustomerId(), order.getStatus(),
+                order.getVersion(), order.getUpdatedBy(), order.getUpdatedAt());
+    }
+
+    /**
+     * Detail published on the invalidation bus with a status change, from which other nodes rebuild the event
+     *
+     * @param order Order as written
+     * @return {@code customerId:status:updatedAt:updatedBy}, each URL-encoded and empty when null
+     */
+    public static String detail(Order order) {
+        return encode(order.getCustomerId() != null ? order.getCustomerId().toString() : null) + ":"
+                + encode(order.getStatus()) + ":"
+                + encode(order.getUpdatedAt() != null ? UPDATED_AT.format(order.getUpdatedAt()) : null) + ":"
+                + encode(order.getUpdatedBy());
+    }
+
+    static OrderStatusEvent fromDetail(UUID orderId, Long version, String detail) {
+        String[] parts = detail.split(":", -1);
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("Malformed order status detail: " + detail);
+        }
+        String customerId = decode(parts[0]);
+        String updatedAt = decode(parts[2]);
+        return new OrderStatusEvent(orderId, customerId != null ? UUID.fromString(customerId) : null,
+                decode(parts[1]), version, decode(parts[3]),
+                updatedAt != null ? LocalDateTime.parse(updatedAt, UPDATED_AT) : null);
+    }
+
+    // Escapes ':' along with everything else that could be confused with the separators
+    private static String encode(String value) {
+        return value != null ? URLEncoder.encode(value, StandardCharsets.UTF_8) : "";
+    }
+
+    private static String decode(String value) {
+        return value.isEmpty() ? null : URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * SSE event id, the same on every node, so a client can resume on another node after reconnecting
+     */
+    public String eventId() {
+        return orderId + ":" + (version != null ? version : "");
+    }
+}
@@ -0,0 +1,216 @@
+package dev.demo.order.async.processor.event;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.demo.order.async.processor.cache.AfterCommit;
+import dev.demo.order.async.processor.cache.CacheInvalidationBus;
+import dev.demo.order.async.processor.repository.model.Order;
+import dev.demo.order.async.processor.service.OrderServiceImpl;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * In-process multicast of order status changes, streamed to clients over SSE.
+ * <p>
+ * Status changes made on this node are published when their transaction commits. Changes made on other nodes
+ * arrive through the cache invalidation bus, which carries the new status and customer, so nothing is read back
+ * from the database. The last {@code history-size} events are kept so a reconnecting client can resume after
+ * its {@code Last-Event-ID}. Event ids are {@code orderId:version}, the same on every node, so a client needs
+ * no affinity: it resumes after that event if this node still holds it, and otherwise gets the whole history
+ * again. Nodes may order concurrent events differently, so clients should skip event ids they have already
+ * seen. Every subscriber has its own bounded buffer that drops the oldest events when it can't keep up.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OrderStatusEvents implements CacheInvalidationBus.InvalidationHandler {
+
+    private final CacheInvalidationBus invalidationBus;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${order.events.history-size:1000}")
+    private int historySize;
+
+    @Value("${order.events.subscriber-buffer:256}")
+    private int subscriberBuffer;
+
+    // Position in this node's history, only used to resume after an event id
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final Object emitLock = new Object();
+
+    private Sinks.Many<Sequenced> sink;
+    // Sequence of each event id still in the history, guarded by emitLock
+    private Map<String, Long> retained;
+    // Highest version published per order, so the bus echo of a local change is not published again
+    private Cache<UUID, Long> publishedVersions;
+    private Counter published;
+    private Counter dropped;
+
+    @PostConstruct
+    public void init() {
+        sink = Sinks.many().replay().limit(historySize);
+        retained = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > historySize;
+            }
+        };
+        publishedVersions = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(Duration.ofMinutes(10))
+                .build();
+
+        published = Counter.builder("order.events.published")
+                .description("Order status events published to SSE subscribers")
+                .register(meterRegistry);
+        dropped = Counter.builder("order.events.dropped")
+                .description("Order status events dropped because a subscriber fell behind")
+                .register(meterRegistry);
+        Gauge.builder("order.events.subscribers", subscribers, AtomicInteger::get)
+                .description("Open order status event streams")
+                .register(meterRegistry);
+
+        invalidationBus.register(OrderServiceImpl.ORDER_ENTITY_TYPE, this);
+    }
+
+    /**
+     * Publish the current status of an order
+     *
+     * @param order Order as written
+     */
+    public void publish(Order order) {
+        synchronized (emitLock) {
+            Long previous = publishedVersions.getIfPresent(order.getId());
+            if (order.getVersion() != null && previous != null && previous >= order.getVersion()) {
+                return;
+            }
+            if (order.getVersion() != null) {
+                publishedVersions.put(order.getId(), order.getVersion());
+            }
+            emit(OrderStatusEvent.of(order));
+        }
+        published.increment();
+    }
+
+    private void emit(OrderStatusEvent event) {
+        long next = sequence.incrementAndGet();
+        retained.put(event.eventId(), next);
+        sink.tryEmitNext(new Sequenced(next, event));
+    }
+
+    /**
+     * Publish the status of an order once the current transaction has committed, or right away without one
+     *
+     * @param order Order as written
+     * @return Completes once the event has been published or scheduled
+     */
+    public Mono<Void> publishAfterCommit(Order order) {
+        return AfterCommit.run(() -> publish(order));
+    }
+
+    /**
+     * Stream status events of all orders
+     *
+     * @param lastEventId Last event the client received, to resume after; null for new events only
+     * @return Events, oldest first
+     */
+    public Flux<OrderStatusEvent> stream(String lastEventId) {
+        return stream(lastEventId, event -> true);
+    }
+
+    /**
+     * Stream status events of one customer's orders
+     *
+     * @param customerId  Customer ID
+     * @param lastEventId Last event the client received, to resume after; null for new events only
+     * @return Events, oldest first
+     */
+    public Flux<OrderStatusEvent> streamForCustomer(UUID customerId, String lastEventId) {
+        return stream(lastEventId, event -> customerId.equals(event.customerId()));
+    }
+
+    private Flux<OrderStatusEvent> stream(String lastEventId, Predicate<OrderStatusEvent> filter) {
+        return Flux.defer(() -> {
+            // The replay sink hands out history and live events without a gap, skip what the client has seen
+            long after = resumeAfter(lastEventId);
+            return sink.asFlux()
+                    .filter(sequenced -> sequenced.sequence() > after)
+                    .map(Sequenced::event)
+                    .filter(filter)
+                    .onBackpressureBuffer(subscriberBuffer, event -> dropped.increment(),
+                            BufferOverflowStrategy.DROP_OLDEST)
+                    .doOnSubscribe(subscription -> subscribers.incrementAndGet())
+                    .doFinally(signal -> subscribers.decrementAndGet());
+        });
+    }
+
+    private long resumeAfter(String lastEventId) {
+        synchronized (emitLock) {
+            if (lastEventId == null) {
+                return sequence.get();
+            }
+            // Unknown ids were seen on another node or have left the history, replay all of it
+            return retained.getOrDefault(lastEventId, 0L);
+        }
+    }
+
+    @Override
+    public void invalidate(UUID id, Long version) {
+        // Not a status change, or published without its detail
+    }
+
+    @Override
+    public void invalidate(UUID id, Long version, String detail) {
+        if (detail == null) {
+            return;
+        }
+        OrderStatusEvent event;
+        try {
+            event = OrderStatusEvent.fromDetail(id, version, detail);
+        } catch (RuntimeException e) {
+            log.warn("Ignoring malformed status change of order {}: {}", id, detail);
+            return;
+        }
+        synchronized (emitLock) {
+            // The bus echo of a change published on this node is skipped here
+            Long previous = publishedVersions.getIfPresent(id);
+            if (version == null || (previous != null && previous >= version)) {
+                return;
+            }
+            publishedVersions.put(id, version);
+            emit(event);
+        }
+        published.increment();
+    }
+
+    @Override
+    public void degrade(Duration ttl) {
+        // Nothing cached: changes on other nodes are simply not streamed while the bus is down
+    }
+
+    @Override
+    public void recover() {
+    }
+
+    private record Sequenced(long sequence, OrderStatusEvent event) {
+    }
+}
@@ -0,0 +1,53 @@
+package dev.demo.order.async.processor.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Name("dev.demo.order.Claim")
+@Label("Claim")
+@Category({"Order Processor", "Scheduler"})
+@Description("A scheduler picked up an order, document or communication for processing")
+@StackTrace(false)
+public class ClaimEvent extends Event {
+
+    @Label("Entity")
+    String entity;
+
+    @Label("Id")
+    String id;
+
+    @Label("Type")
+    String type;
+
+    @Label("Queued")
+    @Timespan(Timespan.MILLISECONDS)
+    long queued;
+
+    /**
+     * @param entity    {@code order}, {@code document} or {@code communication}
+     * @param id        Id of the claimed row
+     * @param type      Type of the claimed row, if it has one
+     * @param createdAt Creation time of the row, if known
+     */
+    public static void claimed(String entity, UUID id, String type, LocalDateTime createdAt) {
+        ClaimEvent event = new ClaimEvent();
+        if (event.isEnabled()) {
+            event.entity = entity;
+            event.id = String.valueOf(id);
+            event.type = type;
+            event.queued = createdAt != null
+                    ? Math.max(0, Duration.between(createdAt, LocalDateTime.now()).toMillis())
+                    : Long.MIN_VALUE;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package dev.demo.order.async.processor.jfr;
+
+import dev.demo.order.async.processor.repository.model.Order;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Function;
+
+@Name("dev.demo.order.ExternalCall")
+@Label("External Call")
+@Category({"Order Processor", "External Services"})
+@Description("Call to an external order service, from subscription until the response is decoded")
+public class ExternalCallEvent extends OutcomeEvent {
+
+    @Label("Endpoint")
+    String endpoint;
+
+    @Label("Order Id")
+    String orderId;
+
+    @Label("Order Type")
+    String orderType;
+
+    /**
+     * @param endpoint Name of the external endpoint
+     * @param order    Order sent
+     * @return Transformer to use with {@code transformDeferred}
+     */
+    public static <T> Function<Mono<T>, Mono<T>> recorded(String endpoint, Order order) {
+        return recorded(ExternalCallEvent::new, event -> {
+            event.endpoint = endpoint;
+            event.orderId = String.valueOf(order.getId());
+            event.orderType = order.getType();
+        });
+    }
+}
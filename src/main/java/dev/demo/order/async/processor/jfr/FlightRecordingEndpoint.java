@@ -0,0 +1,198 @@
+package dev.demo.order.async.processor.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded JDK Flight Recorder recordings with the pipeline events: POST starts one, GET streams what has been
+ * recorded so far as a .jfr file, DELETE stops and discards it. A recording never outlives the configured
+ * maximum duration or grows beyond the maximum size, so one left behind stops on its own.
+ */
+@Component
+@WebEndpoint(id = "flightrecording")
+@Slf4j
+public class FlightRecordingEndpoint {
+
+    private static final List<Class<? extends Event>> EVENTS = List.of(SchedulerBatchEvent.class, ClaimEvent.class,
+            ExternalCallEvent.class, StatusTransitionEvent.class, PoolAcquireEvent.class);
+
+    @Value("${flight-recorder.settings:default}")
+    private String settings;
+
+    @Value("${flight-recorder.max-duration:10m}")
+    private Duration maxDuration;
+
+    @Value("${flight-recorder.max-size:64MB}")
+    private DataSize maxSize;
+
+    private Recording recording;
+
+    /**
+     * Start a recording, replacing a finished one
+     *
+     * @param duration How long to record, at most the configured maximum
+     */
+    @WriteOperation
+    public synchronized WebEndpointResponse<Map<String, Object>> start(@Nullable Duration duration) {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            return new WebEndpointResponse<>(status(), HttpStatus.CONFLICT.value());
+        }
+        discard();
+        try {
+            Recording started = new Recording(Configuration.getConfiguration(settings));
+            for (Class<? extends Event> event : EVENTS) {
+                started.enable(event).withoutStackTrace();
+            }
+            started.setName("order-processor");
+            started.setToDisk(true);
+            started.setMaxSize(maxSize.toBytes());
+            started.setDuration(duration != null && duration.compareTo(maxDuration) < 0 ? duration : maxDuration);
+            started.start();
+            recording = started;
+        } catch (IOException | ParseException e) {
+            log.error("Failed to load flight recorder settings {}: {}", settings, e.getMessage());
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_INTERNAL_SERVER_ERROR);
+        }
+        log.info("Started flight recording for {}", recording.getDuration());
+        return new WebEndpointResponse<>(status());
+    }
+
+    /**
+     * Stream what the current recording holds
+     */
+    @ReadOperation(produces = "application/octet-stream")
+    public synchronized WebEndpointResponse<Resource> recording() throws IOException {
+        if (recording == null) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        Path file = Files.createTempFile("order-processor-", ".jfr");
+        recording.dump(file);
+        return new WebEndpointResponse<>(new TemporaryFileSystemResource(file));
+    }
+
+    /**
+     * Stop the current recording and discard its data
+     */
+    @DeleteOperation
+    public synchronized WebEndpointResponse<Map<String, Object>> stop() {
+        if (recording == null) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        Map<String, Object> status = status();
+        discard();
+        log.info("Stopped flight recording");
+        return new WebEndpointResponse<>(status);
+    }
+
+    private Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("state", recording.getState());
+        Instant startTime = recording.getStartTime();
+        if (startTime != null) {
+            status.put("startTime", startTime);
+        }
+        status.put("duration", recording.getDuration());
+        status.put("maxSize", recording.getMaxSize());
+        status.put("size", recording.getSize());
+        return status;
+    }
+
+    private void discard() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    /**
+     * File that is deleted once the response has been written. It does not report itself as a file, so it is
+     * streamed through {@link #readableChannel} rather than sent with zero-copy.
+     */
+    private static final class TemporaryFileSystemResource extends FileSystemResource {
+
+        TemporaryFileSystemResource(Path path) {
+            super(path);
+        }
+
+        @Override
+        public ReadableByteChannel readableChannel() throws IOException {
+            ReadableByteChannel channel = super.readableChannel();
+            return new ReadableByteChannel() {
+                @Override
+                public int read(ByteBuffer dst) throws IOException {
+                    return channel.read(dst);
+                }
+
+                @Override
+                public boolean isOpen() {
+                    return channel.isOpen();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    try {
+                        channel.close();
+                    } finally {
+                        deleteFile();
+                    }
+                }
+            };
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new FilterInputStream(super.getInputStream()) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        deleteFile();
+                    }
+                }
+            };
+        }
+
+        @Override
+        public boolean isFile() {
+            return false;
+        }
+
+        private void deleteFile() {
+            try {
+                Files.deleteIfExists(getFile().toPath());
+            } catch (IOException e) {
+                log.warn("Failed to delete temporary flight recording {}: {}", getPath(), e.getMessage());
+            }
+        }
+    }
+}
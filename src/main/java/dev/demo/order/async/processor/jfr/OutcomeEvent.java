@@ -0,0 +1,51 @@
+package dev.demo.order.async.processor.jfr;
+
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Base of the events that time a reactive call and record how it ended
+ */
+@StackTrace(false)
+abstract class OutcomeEvent extends Event {
+
+    @Label("Outcome")
+    String outcome;
+
+    /**
+     * Time each subscription to a call with a new event. While no recording has the event enabled the call is
+     * returned untouched and the identifying fields are never computed.
+     *
+     * @param factory Creates the event
+     * @param fields  Sets the identifying fields of an enabled event
+     * @return Transformer to use with {@code transformDeferred}
+     */
+    static <T, E extends OutcomeEvent> Function<Mono<T>, Mono<T>> recorded(Supplier<E> factory, Consumer<E> fields) {
+        return call -> {
+            E event = factory.get();
+            if (!event.isEnabled()) {
+                return call;
+            }
+            fields.accept(event);
+            event.begin();
+            return call
+                    .doOnSuccess(result -> event.finish("success"))
+                    .doOnError(error -> event.finish("error"))
+                    .doOnCancel(() -> event.finish("cancelled"));
+        };
+    }
+
+    void finish(String outcome) {
+        end();
+        if (shouldCommit()) {
+            this.outcome = outcome;
+            commit();
+        }
+    }
+}
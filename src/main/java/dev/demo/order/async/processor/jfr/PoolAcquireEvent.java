@@ -0,0 +1,42 @@
+package dev.demo.order.async.processor.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("dev.demo.order.PoolAcquire")
+@Label("Connection Pool Acquire")
+@Category({"Order Processor", "Database"})
+@Description("An acquirer found no idle R2DBC connection and waited for one")
+@StackTrace(false)
+public class PoolAcquireEvent extends Event {
+
+    @Label("Pool")
+    String pool;
+
+    @Label("Waited")
+    @Timespan(Timespan.NANOSECONDS)
+    long waited;
+
+    @Label("Outcome")
+    String outcome;
+
+    /**
+     * @param pool        Name of the pool
+     * @param waitedNanos Time the acquirer waited, as measured by the pool
+     * @param outcome     {@code success} or {@code failure}
+     */
+    public static void record(String pool, long waitedNanos, String outcome) {
+        PoolAcquireEvent event = new PoolAcquireEvent();
+        if (event.isEnabled()) {
+            event.pool = pool;
+            event.waited = waitedNanos;
+            event.outcome = outcome;
+            event.commit();
+        }
+    }
+}
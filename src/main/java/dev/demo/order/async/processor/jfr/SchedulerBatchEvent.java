@@ -0,0 +1,68 @@
+package dev.demo.order.async.processor.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import reactor.core.publisher.SignalType;
+
+@Name("dev.demo.order.SchedulerBatch")
+@Label("Scheduler Batch")
+@Category({"Order Processor", "Scheduler"})
+@Description("One run of a processing scheduler, from the batch query until its last item has finished")
+@StackTrace(false)
+public class SchedulerBatchEvent extends Event {
+
+    @Label("Scheduler")
+    String scheduler;
+
+    @Label("Batch Size")
+    int batchSize;
+
+    @Label("Processed")
+    int processed;
+
+    @Label("Errors")
+    int errors;
+
+    @Label("Outcome")
+    String outcome;
+
+    /**
+     * Begin a batch
+     *
+     * @param scheduler Name of the scheduler
+     * @param batchSize Items requested by the batch query
+     * @return Event to {@link #finish} when the batch terminates
+     */
+    public static SchedulerBatchEvent start(String scheduler, int batchSize) {
+        SchedulerBatchEvent event = new SchedulerBatchEvent();
+        if (event.isEnabled()) {
+            event.scheduler = scheduler;
+            event.batchSize = batchSize;
+            event.begin();
+        }
+        return event;
+    }
+
+    /**
+     * @param signal    Signal that terminated the batch
+     * @param processed Items processed successfully
+     * @param errors    Items that failed
+     */
+    public void finish(SignalType signal, int processed, int errors) {
+        end();
+        if (shouldCommit()) {
+            this.processed = processed;
+            this.errors = errors;
+            this.outcome = switch (signal) {
+                case ON_ERROR -> "error";
+                case CANCEL -> "cancelled";
+                default -> "success";
+            };
+            commit();
+        }
+    }
+}
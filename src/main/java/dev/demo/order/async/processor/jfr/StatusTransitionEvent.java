@@ -0,0 +1,40 @@
+package dev.demo.order.async.processor.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+import java.util.function.Function;
+
+@Name("dev.demo.order.StatusTransition")
+@Label("Status Transition")
+@Category({"Order Processor", "Database"})
+@Description("Status update of an order, document or communication in the database")
+public class StatusTransitionEvent extends OutcomeEvent {
+
+    @Label("Entity")
+    String entity;
+
+    @Label("Id")
+    String id;
+
+    @Label("Status")
+    String status;
+
+    /**
+     * @param entity {@code order}, {@code document} or {@code communication}
+     * @param id     Id of the updated row
+     * @param status New status
+     * @return Transformer to use with {@code transformDeferred}
+     */
+    public static <T> Function<Mono<T>, Mono<T>> recorded(String entity, UUID id, String status) {
+        return recorded(StatusTransitionEvent::new, event -> {
+            event.entity = entity;
+            event.id = String.valueOf(id);
+            event.status = status;
+        });
+    }
+}
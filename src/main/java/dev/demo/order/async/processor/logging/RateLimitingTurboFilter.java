@@ -0,0 +1,176 @@
+package dev.demo.order.async.processor.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets at most {@code permits} events per logger and message template through in each window. Once a window
+ * is over, the number of events it suppressed is logged as one WARN summary with the {@value #SUPPRESSED}
+ * marker. Events above {@code level} are never limited.
+ * <p>
+ * Configured in {@code logback-spring.xml}; the template is the unformatted message, so every order logged
+ * with {@code "Updated order {} status to {}"} shares one budget.
+ */
+public class RateLimitingTurboFilter extends TurboFilter {
+
+    public static final String SUPPRESSED = "RATE_LIMITED";
+
+    private static final Marker SUPPRESSED_MARKER = MarkerFactory.getMarker(SUPPRESSED);
+
+    private int permits = 50;
+    private long window = 10_000;
+    private Level level = Level.INFO;
+    private int maxTemplates = 10_000;
+
+    private final Map<TemplateKey, Window> windows = new ConcurrentHashMap<>();
+    private ScheduledExecutorService flusher;
+
+    @Override
+    public void start() {
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "log-rate-limiter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, window, window, TimeUnit.MILLISECONDS);
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        super.stop();
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        flush();
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level eventLevel, String format, Object[] params,
+                              Throwable t) {
+        if (!isStarted() || format == null || eventLevel == null || eventLevel.levelInt > level.levelInt
+                || !eventLevel.isGreaterOrEqual(logger.getEffectiveLevel()) || marker == SUPPRESSED_MARKER) {
+            return FilterReply.NEUTRAL;
+        }
+        TemplateKey key = new TemplateKey(logger.getName(), format);
+        Window current = windows.get(key);
+        if (current == null) {
+            if (windows.size() >= maxTemplates) {
+                return FilterReply.NEUTRAL;
+            }
+            current = windows.computeIfAbsent(key, k -> new Window(logger, format, System.nanoTime()));
+        }
+        long now = System.nanoTime();
+        int suppressed = current.rollIfOver(now, TimeUnit.MILLISECONDS.toNanos(window));
+        if (suppressed > 0) {
+            summarize(current, suppressed);
+        }
+        return current.tryAcquire(permits) ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    /**
+     * Summarize windows that are over without a later event to do it, and forget templates that have gone quiet
+     */
+    public void flush() {
+        long now = System.nanoTime();
+        long windowNanos = TimeUnit.MILLISECONDS.toNanos(window);
+        windows.forEach((key, current) -> {
+            if (current.idleSince(now, windowNanos)) {
+                windows.remove(key, current);
+            }
+            int suppressed = current.rollIfOver(now, windowNanos);
+            if (suppressed > 0) {
+                summarize(current, suppressed);
+            }
+        });
+    }
+
+    private void summarize(Window current, int suppressed) {
+        current.logger.warn(SUPPRESSED_MARKER, "Suppressed {} log events like \"{}\" in the last {} ms",
+                suppressed, current.format, window);
+    }
+
+    public void setPermits(int permits) {
+        this.permits = permits;
+    }
+
+    /**
+     * @param window Length of a rate limiting window in milliseconds
+     */
+    public void setWindow(long window) {
+        this.window = window;
+    }
+
+    /**
+     * @param level Most severe level that is rate limited
+     */
+    public void setLevel(String level) {
+        this.level = Level.toLevel(level, Level.INFO);
+    }
+
+    /**
+     * @param maxTemplates Templates tracked at once; events of further templates are not limited
+     */
+    public void setMaxTemplates(int maxTemplates) {
+        this.maxTemplates = maxTemplates;
+    }
+
+    private record TemplateKey(String logger, String format) {
+    }
+
+    private static final class Window {
+
+        private final Logger logger;
+        private final String format;
+        private final AtomicLong start;
+        private final AtomicInteger count = new AtomicInteger();
+        private final AtomicInteger suppressed = new AtomicInteger();
+        private volatile long lastEventNanos;
+
+        Window(Logger logger, String format, long start) {
+            this.logger = logger;
+            this.format = format;
+            this.start = new AtomicLong(start);
+            this.lastEventNanos = start;
+        }
+
+        boolean tryAcquire(int permits) {
+            lastEventNanos = System.nanoTime();
+            if (count.incrementAndGet() <= permits) {
+                return true;
+            }
+            suppressed.incrementAndGet();
+            return false;
+        }
+
+        /**
+         * Start a new window if the current one is over
+         *
+         * @return Events suppressed in the window that ended, 0 if it is still current
+         */
+        int rollIfOver(long now, long windowNanos) {
+            long current = start.get();
+            if (now - current < windowNanos || !start.compareAndSet(current, now)) {
+                return 0;
+            }
+            count.set(0);
+            return suppressed.getAndSet(0);
+        }
+
+        boolean idleSince(long now, long windowNanos) {
+            return now - lastEventNanos > 2 * windowNanos && suppressed.get() == 0;
+        }
+    }
+}
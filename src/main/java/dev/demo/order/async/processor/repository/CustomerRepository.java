@@ -1,6 +1,7 @@
 package dev.demo.order.async.processor.repository;
 
 import dev.demo.order.async.processor.repository.model.Customer;
+import dev.demo.order.async.processor.repository.model.EntityVersion;
 import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.r2dbc.repository.R2dbcRepository;
 import org.springframework.stereotype.Repository;
@@ -28,6 +29,15 @@ public interface CustomerRepository extends R2dbcRepository<Customer, UUID> {
      */
     Mono<Customer> findByExternalIdAndDeletedFalse(String externalId);
 
+    /**
+     * Find customers by ID with a single statement, whatever the number of IDs
+     *
+     * @param ids Customer IDs
+     * @return Customers found, in no particular order
+     */
+    @Query("SELECT * FROM customers WHERE id = ANY(:ids)")
+    Flux<Customer> findAllByIds(UUID[] ids);
+
     /**
      * Find active customers by segment
      *
@@ -37,6 +47,55 @@ public interface CustomerRepository extends R2dbcRepository<Customer, UUID> {
      */
     Flux<Customer> findBySegmentAndStatusAndDeletedFalse(String segment, String status);
 
+    /**
+     * Find a page of active customers in a segment, ordered by ID
+     *
+     * @param segment Customer segment
+     * @param status Customer status
+     * @param after Only customers with a greater ID; the nil UUID for the first page
+     * @param limit Maximum number of results
+     * @return Matching customers
+     */
+    @Query("SELECT * FROM customers WHERE segment = :segment AND status = :status AND deleted = false AND id > :after ORDER BY id LIMIT :limit")
+    Flux<Customer> findPageBySegmentAndStatus(String segment, String status, UUID after, int limit);
+
+    /**
+     * Find a page of all customers, ordered by ID
+     *
+     * @param after Only customers with a greater ID; the nil UUID for the first page
+     * @param limit Maximum number of results
+     * @return Customers
+     */
+    @Query("SELECT * FROM customers WHERE id > :after ORDER BY id LIMIT :limit")
+    Flux<Customer> findPage(UUID after, int limit);
+
+    /**
+     * Get IDs and versions of the customers returned by {@link #findBySegmentAndStatusAndDeletedFalse}
+     *
+     * @param segment Customer segment
+     * @param status Customer status
+     * @return ID and version of each matching customer
+     */
+    @Query("SELECT id, version FROM customers WHERE segment = :segment AND status = :status AND deleted = false")
+    Flux<EntityVersion> findVersionsBySegmentAndStatus(String segment, String status);
+
+    /**
+     * Get IDs and versions of all customers
+     *
+     * @return ID and version of each customer
+     */
+    @Query("SELECT id, version FROM customers")
+    Flux<EntityVersion> findAllVersions();
+
+    /**
+     * Get the version of a customer without reading the rest of the row
+     *
+     * @param id Customer ID
+     * @return Version if the customer exists
+     */
+    @Query("SELECT version FROM customers WHERE id = :id")
+    Mono<Long> findVersionById(UUID id);
+
     /**
      * Count customers by segment
      *
@@ -47,11 +106,11 @@ public interface CustomerRepository extends R2dbcRepository<Customer, UUID> {
     Mono<Long> countBySegment(String segment);
 
     /**
-     * Soft delete a customer
+     * Soft delete a customer unless it is already deleted
      *
      * @param id Customer ID
-     * @return Number of rows affected
+     * @return Number of rows affected, 0 if the customer is missing or already deleted
      */
-    @Query("UPDATE customers SET deleted = true WHERE id = :id")
+    @Query("UPDATE customers SET deleted = true, version = version + 1 WHERE id = :id AND deleted = false")
     Mono<Integer> softDeleteCustomer(UUID id);
 }
\ No newline at end of file
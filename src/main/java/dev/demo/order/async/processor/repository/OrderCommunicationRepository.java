@@ -30,6 +30,52 @@ public interface OrderCommunicationRepository extends R2dbcRepository<OrderCommu
      */
     Flux<OrderCommunication> findByCustomerIdOrderByCreatedAtDesc(UUID customerId);
 
+    /**
+     * Find a page of communications for an order, newest first
+     *
+     * @param orderId Order ID
+     * @param after ID of the last communication of the previous page, null for the first page; a communication
+     *              of another order yields an empty page
+     * @param limit Maximum number of results
+     * @return Communications for the order
+     */
+    @Query("SELECT * FROM order_communications WHERE order_id = :orderId"
+            + " AND (CAST(:after AS uuid) IS NULL OR (created_at, id) < (SELECT created_at, id FROM order_communications WHERE id = :after AND order_id = :orderId))"
+            + " ORDER BY created_at DESC, id DESC LIMIT :limit")
+    Flux<OrderCommunication> findPageByOrderId(UUID orderId, UUID after, int limit);
+
+    /**
+     * Find a page of communications for a customer, newest first
+     *
+     * @param customerId Customer ID
+     * @param after ID of the last communication of the previous page, null for the first page; a communication
+     *              of another customer yields an empty page
+     * @param limit Maximum number of results
+     * @return Communications for the customer
+     */
+    @Query("SELECT * FROM order_communications WHERE customer_id = :customerId"
+            + " AND (CAST(:after AS uuid) IS NULL OR (created_at, id) < (SELECT created_at, id FROM order_communications WHERE id = :after AND customer_id = :customerId))"
+            + " ORDER BY created_at DESC, id DESC LIMIT :limit")
+    Flux<OrderCommunication> findPageByCustomerId(UUID customerId, UUID after, int limit);
+
+    /**
+     * Whether a communication belongs to an order
+     *
+     * @param id      Communication ID
+     * @param orderId Order ID
+     * @return True if the communication exists and belongs to the order
+     */
+    Mono<Boolean> existsByIdAndOrderId(UUID id, UUID orderId);
+
+    /**
+     * Whether a communication belongs to a customer
+     *
+     * @param id         Communication ID
+     * @param customerId Customer ID
+     * @return True if the communication exists and belongs to the customer
+     */
+    Mono<Boolean> existsByIdAndCustomerId(UUID id, UUID customerId);
+
     /**
      * Find communications by type and channel
      *
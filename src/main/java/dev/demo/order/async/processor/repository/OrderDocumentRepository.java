@@ -31,6 +31,15 @@ public interface OrderDocumentRepository extends R2dbcRepository<OrderDocument,
      */
     Flux<OrderDocument> findByOrderIdAndTypeOrderByUploadedAtDesc(UUID orderId, String type);
 
+    /**
+     * Find documents by ID with a single statement, whatever the number of IDs
+     *
+     * @param ids Document IDs
+     * @return Documents found, in no particular order
+     */
+    @Query("SELECT * FROM order_documents WHERE id = ANY(:ids)")
+    Flux<OrderDocument> findAllByIds(UUID[] ids);
+
     /**
      * Find documents by status
      *
@@ -1,5 +1,7 @@
 package dev.demo.order.async.processor.repository;
 
+import dev.demo.order.async.processor.repository.model.EntityVersion;
+import dev.demo.order.async.processor.repository.model.OldestOrder;
 import dev.demo.order.async.processor.repository.model.Order;
 import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.r2dbc.repository.R2dbcRepository;
@@ -38,6 +40,15 @@ public interface OrderRepository extends R2dbcRepository<Order, UUID> {
     @Query("SELECT * FROM orders WHERE status IN (:statuses) AND created_at < :beforeDate AND type IN (:types) AND deleted = false ORDER BY priority DESC, created_at LIMIT :limit")
     Flux<Order> findOrdersToProcessByTypes(List<String> statuses, LocalDateTime beforeDate, List<String> types, int limit);
 
+    /**
+     * Find orders by ID with a single statement, whatever the number of IDs
+     *
+     * @param ids Order IDs
+     * @return Orders found, in no particular order
+     */
+    @Query("SELECT * FROM orders WHERE id = ANY(:ids)")
+    Flux<Order> findAllByIds(UUID[] ids);
+
     /**
      * Count orders by status
      *
@@ -56,9 +67,20 @@ public interface OrderRepository extends R2dbcRepository<Order, UUID> {
      * @param updatedAt Updated timestamp
      * @return Number of rows affected
      */
-    @Query("UPDATE orders SET status = :status, updated_by = :updatedBy, updated_at = :updatedAt WHERE id = :id AND deleted = false")
+    @Query("UPDATE orders SET status = :status, updated_by = :updatedBy, updated_at = :updatedAt, version = version + 1 WHERE id = :id AND deleted = false")
     Mono<Integer> updateOrderStatus(UUID id, String status, String updatedBy, LocalDateTime updatedAt);
 
+    /**
+     * Find the oldest order of each type in a status. Each type is a single probe of the
+     * (status, type, created_at) index, so the cost doesn't grow with the backlog.
+     *
+     * @param status Status to look at
+     * @param types  Order types
+     * @return One row per type, with a null creation time if the type has no order in the status
+     */
+    @Query("SELECT t.type, (SELECT min(o.created_at) FROM orders o WHERE o.status = :status AND o.type = t.type AND o.deleted = false) AS created_at FROM unnest(CAST(:types AS text[])) AS t(type)")
+    Flux<OldestOrder> findOldestByType(String status, String[] types);
+
     /**
      * Find orders due for processing
      *
@@ -78,6 +100,35 @@ public interface OrderRepository extends R2dbcRepository<Order, UUID> {
      */
     Flux<Order> findByCustomerIdAndDeletedFalse(UUID customerId);
 
+    /**
+     * Find a page of orders for a customer, ordered by ID
+     *
+     * @param customerId Customer ID
+     * @param after Only orders with a greater ID; the nil UUID for the first page
+     * @param limit Maximum number of results
+     * @return Orders for the customer
+     */
+    @Query("SELECT * FROM orders WHERE customer_id = :customerId AND deleted = false AND id > :after ORDER BY id LIMIT :limit")
+    Flux<Order> findPageByCustomerId(UUID customerId, UUID after, int limit);
+
+    /**
+     * Get the version of an order without reading the rest of the row
+     *
+     * @param id Order ID
+     * @return Version if the order exists
+     */
+    @Query("SELECT version FROM orders WHERE id = :id")
+    Mono<Long> findVersionById(UUID id);
+
+    /**
+     * Get IDs and versions of the orders returned by {@link #findByCustomerIdAndDeletedFalse}
+     *
+     * @param customerId Customer ID
+     * @return ID and version of each order for the customer
+     */
+    @Query("SELECT id, version FROM orders WHERE customer_id = :customerId AND deleted = false")
+    Flux<EntityVersion> findVersionsByCustomerId(UUID customerId);
+
     /**
      * Soft delete an order
      *
@@ -86,6 +137,6 @@ public interface OrderRepository extends R2dbcRepository<Order, UUID> {
      * @param updatedAt Timestamp of deletion
      * @return Number of rows affected
      */
-    @Query("UPDATE orders SET deleted = true, updated_by = :updatedBy, updated_at = :updatedAt WHERE id = :id")
+    @Query("UPDATE orders SET deleted = true, updated_by = :updatedBy, updated_at = :updatedAt, version = version + 1 WHERE id = :id")
     Mono<Integer> softDeleteOrder(UUID id, String updatedBy, LocalDateTime updatedAt);
 }
\ No newline at end of file
@@ -0,0 +1,88 @@
+package dev.demo.order.async.processor.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.mapping.RelationalPersistentEntity;
+import org.springframework.data.relational.core.mapping.RelationalPersistentProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.ClassUtils;
+import reactor.core.publisher.Flux;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Sparse-fieldset reads: selects only the columns behind the requested entity properties and returns each
+ * row as a map of those properties, so neither the database nor the serializer touches the other columns.
+ * Property names are checked against the entity mapping, so they never reach the SQL unvalidated.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProjectionQueries {
+
+    private final R2dbcEntityTemplate template;
+
+    /**
+     * Select some properties of matching rows. The ID is always included.
+     *
+     * @param type    Mapped entity class
+     * @param fields  Property names to return
+     * @param where   SQL condition using named parameters
+     * @param orderBy SQL sort expression
+     * @param limit   Maximum number of rows, or null for all
+     * @param params  Values of the named parameters; none may be null
+     * @return One map per row, keyed by property name in the order requested
+     * @throws IllegalArgumentException If a field is not a property of the entity
+     */
+    public Flux<Map<String, Object>> select(Class<?> type, Collection<String> fields, String where, String orderBy,
+                                            Integer limit, Map<String, Object> params) {
+        RelationalPersistentEntity<?> entity = template.getConverter().getMappingContext()
+                .getRequiredPersistentEntity(type);
+        List<RelationalPersistentProperty> properties = properties(entity, fields);
+
+        String sql = "SELECT " + properties.stream()
+                .map(property -> property.getColumnName().getReference())
+                .collect(Collectors.joining(", "))
+                + " FROM " + entity.getTableName().getReference()
+                + " WHERE " + where
+                + " ORDER BY " + orderBy
+                + (limit != null ? " LIMIT " + limit : "");
+
+        DatabaseClient.GenericExecuteSpec spec = template.getDatabaseClient().sql(sql);
+        for (Map.Entry<String, Object> param : params.entrySet()) {
+            spec = spec.bind(param.getKey(), param.getValue());
+        }
+        return spec.map(row -> {
+                    Map<String, Object> values = new LinkedHashMap<>();
+                    for (RelationalPersistentProperty property : properties) {
+                        values.put(property.getName(), row.get(property.getColumnName().getReference(),
+                                ClassUtils.resolvePrimitiveIfNecessary(property.getType())));
+                    }
+                    return values;
+                })
+                .all();
+    }
+
+    private static List<RelationalPersistentProperty> properties(RelationalPersistentEntity<?> entity,
+                                                                 Collection<String> fields) {
+        Map<String, RelationalPersistentProperty> selected = new LinkedHashMap<>();
+        RelationalPersistentProperty id = entity.getRequiredIdProperty();
+        selected.put(id.getName(), id);
+        for (String field : fields) {
+            String name = field.trim();
+            if (name.isEmpty() || selected.containsKey(name)) {
+                continue;
+            }
+            RelationalPersistentProperty property = entity.getPersistentProperty(name);
+            if (property == null || property.isEntity()) {
+                throw new IllegalArgumentException("Unknown field: " + name);
+            }
+            selected.put(name, property);
+        }
+        return List.copyOf(selected.values());
+    }
+}
@@ -0,0 +1,12 @@
+package dev.demo.order.async.processor.repository.model;
+
+import java.util.UUID;
+
+/**
+ * ID and optimistic-lock version of a row, read without the rest of it to validate cached representations
+ *
+ * @param id      Entity ID
+ * @param version Entity version
+ */
+public record EntityVersion(UUID id, Long version) {
+}
@@ -0,0 +1,12 @@
+package dev.demo.order.async.processor.repository.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Creation time of the oldest order of a type in some status
+ *
+ * @param type      Order type
+ * @param createdAt Creation time of the oldest order, null if there is none
+ */
+public record OldestOrder(String type, LocalDateTime createdAt) {
+}
@@ -0,0 +1,148 @@
+package dev.demo.order.async.processor.retry;
+
+import io.github.resilience4j.core.ConfigurationNotFoundException;
+import io.github.resilience4j.core.registry.EntryAddedEvent;
+import io.github.resilience4j.core.registry.EntryRemovedEvent;
+import io.github.resilience4j.core.registry.EntryReplacedEvent;
+import io.github.resilience4j.core.registry.RegistryEventConsumer;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Retry registry whose retries all draw from one {@link RetryBudget}, whichever way they are created:
+ * the {@code @Retry} annotations, {@link RetryableService} or direct registry lookups.
+ */
+public class BudgetedRetryRegistry implements RetryRegistry {
+
+    private final RetryRegistry delegate;
+    private final RetryBudget retryBudget;
+
+    public BudgetedRetryRegistry(RetryConfig defaultConfig, RetryBudget retryBudget) {
+        this.delegate = RetryRegistry.of(defaultConfig, new BudgetEventConsumer(retryBudget));
+        this.retryBudget = retryBudget;
+    }
+
+    @Override
+    public Retry retry(String name, RetryConfig config, Map<String, String> tags) {
+        // Restricted lazily, this is called on every lookup of an existing instance too
+        return delegate.retry(name, () -> retryBudget.restrict(name, config), tags);
+    }
+
+    @Override
+    public Retry retry(String name, Supplier<RetryConfig> configSupplier, Map<String, String> tags) {
+        return delegate.retry(name, () -> retryBudget.restrict(name, configSupplier.get()), tags);
+    }
+
+    @Override
+    public Retry retry(String name, String configName, Map<String, String> tags) {
+        RetryConfig config = getConfiguration(configName)
+                .orElseThrow(() -> new ConfigurationNotFoundException(configName));
+        return retry(name, config, tags);
+    }
+
+    @Override
+    public Retry retry(String name) {
+        return retry(name, getDefaultConfig(), Collections.emptyMap());
+    }
+
+    @Override
+    public Retry retry(String name, Map<String, String> tags) {
+        return retry(name, getDefaultConfig(), tags);
+    }
+
+    @Override
+    public Retry retry(String name, RetryConfig config) {
+        return retry(name, config, Collections.emptyMap());
+    }
+
+    @Override
+    public Retry retry(String name, Supplier<RetryConfig> configSupplier) {
+        return retry(name, configSupplier, Collections.emptyMap());
+    }
+
+    @Override
+    public Retry retry(String name, String configName) {
+        return retry(name, configName, Collections.emptyMap());
+    }
+
+    @Override
+    public Set<Retry> getAllRetries() {
+        return delegate.getAllRetries();
+    }
+
+    @Override
+    public void addConfiguration(String configName, RetryConfig configuration) {
+        delegate.addConfiguration(configName, configuration);
+    }
+
+    @Override
+    public Optional<Retry> find(String name) {
+        return delegate.find(name);
+    }
+
+    @Override
+    public Optional<Retry> remove(String name) {
+        return delegate.remove(name);
+    }
+
+    @Override
+    public Optional<Retry> replace(String name, Retry newRetry) {
+        return delegate.replace(name, newRetry);
+    }
+
+    @Override
+    public Optional<RetryConfig> getConfiguration(String configName) {
+        return delegate.getConfiguration(configName);
+    }
+
+    @Override
+    public RetryConfig getDefaultConfig() {
+        return delegate.getDefaultConfig();
+    }
+
+    @Override
+    public Map<String, String> getTags() {
+        return delegate.getTags();
+    }
+
+    @Override
+    public EventPublisher<Retry> getEventPublisher() {
+        return delegate.getEventPublisher();
+    }
+
+    @Override
+    public RetryConfig removeConfiguration(String configName) {
+        return delegate.removeConfiguration(configName);
+    }
+
+    /**
+     * Withdraws a token whenever a retry instance actually schedules another attempt
+     */
+    private record BudgetEventConsumer(RetryBudget retryBudget) implements RegistryEventConsumer<Retry> {
+
+        @Override
+        public void onEntryAddedEvent(EntryAddedEvent<Retry> entryAddedEvent) {
+            subscribe(entryAddedEvent.getAddedEntry());
+        }
+
+        @Override
+        public void onEntryRemovedEvent(EntryRemovedEvent<Retry> entryRemoveEvent) {
+        }
+
+        @Override
+        public void onEntryReplacedEvent(EntryReplacedEvent<Retry> entryReplacedEvent) {
+            subscribe(entryReplacedEvent.getNewEntry());
+        }
+
+        private void subscribe(Retry retry) {
+            retry.getEventPublisher().onRetry(event -> retryBudget.recordRetry(event.getName()));
+        }
+    }
+}
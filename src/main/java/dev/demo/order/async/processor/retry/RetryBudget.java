@@ -0,0 +1,122 @@
+package dev.demo.order.async.processor.retry;
+
+import io.github.resilience4j.retry.RetryConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Token bucket shared by every retry in the application.
+ * <p>
+ * Each successful call deposits {@code ratio} tokens, up to {@code max-tokens}, and each retry withdraws one
+ * token. Once the bucket is empty failures are returned to the caller instead of being retried, so retries
+ * stay below {@code ratio} of recent successful calls no matter how many retry layers an operation goes
+ * through. The bucket starts full so that retries work right after startup.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RetryBudget {
+
+    /**
+     * Tokens are kept in thousandths so that fractional deposits don't need floating point CAS
+     */
+    private static final long SCALE = 1000;
+
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicLong tokens = new AtomicLong();
+    private final Map<String, Counter> granted = new ConcurrentHashMap<>();
+    private final Map<String, Counter> denied = new ConcurrentHashMap<>();
+
+    @Value("${resilience.retry-budget.enabled:true}")
+    private boolean enabled;
+
+    @Value("${resilience.retry-budget.ratio:0.1}")
+    private double ratio;
+
+    @Value("${resilience.retry-budget.max-tokens:20}")
+    private int maxTokens;
+
+    private long deposit;
+    private long capacity;
+
+    @PostConstruct
+    public void init() {
+        deposit = Math.round(ratio * SCALE);
+        capacity = maxTokens * SCALE;
+        tokens.set(capacity);
+
+        Gauge.builder("retry.budget.tokens", tokens, t -> (double) t.get() / SCALE)
+                .description("Retry tokens currently available")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Record a successful call, earning part of a retry
+     */
+    public void recordSuccess() {
+        tokens.getAndUpdate(current -> Math.min(capacity, current + deposit));
+    }
+
+    /**
+     * Decide whether a failed attempt of an operation may be retried. resilience4j also asks on the last
+     * attempt, so a denial may be counted for a call that was out of attempts anyway.
+     *
+     * @param operation Name of the retry instance
+     * @return True if the budget has a token left
+     */
+    public boolean canRetry(String operation) {
+        if (!enabled || tokens.get() >= SCALE) {
+            return true;
+        }
+        denied.computeIfAbsent(operation, name -> counter("retry.budget.denied", name)).increment();
+        log.debug("Retry budget exhausted, not retrying {}", operation);
+        return false;
+    }
+
+    /**
+     * Withdraw a token for a retry that is actually going to happen
+     *
+     * @param operation Name of the retry instance
+     */
+    public void recordRetry(String operation) {
+        tokens.getAndUpdate(current -> Math.max(0, current - SCALE));
+        granted.computeIfAbsent(operation, name -> counter("retry.budget.granted", name)).increment();
+    }
+
+    /**
+     * Restrict a retry configuration to the budget. Exceptions the configuration would not retry are left
+     * alone; retryable ones are retried only while the budget allows it.
+     *
+     * @param operation Name of the retry instance
+     * @param config    Configuration to restrict
+     * @return Configuration sharing everything but the exception predicate with the given one
+     */
+    public RetryConfig restrict(String operation, RetryConfig config) {
+        Predicate<Throwable> retryable = config.getExceptionPredicate();
+        return RetryConfig.from(config)
+                .retryOnException(error -> retryable.test(error) && canRetry(operation))
+                // Cleared so the builder uses the combined predicate as is instead of OR-ing it with the classes
+                .retryExceptions()
+                .ignoreExceptions()
+                .build();
+    }
+
+    private Counter counter(String name, String operation) {
+        return Counter.builder(name)
+                .description("Retryable failures checked against the shared retry budget")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+}
@@ -17,9 +17,11 @@ public class RetryableService {
 
     private final CircuitBreakerRegistry circuitBreakerRegistry;
     private final RetryRegistry retryRegistry;
+    private final RetryBudget retryBudget;
 
     public <T> Mono<T> executeWithRetry(String operationName, Mono<T> operation) {
         return operation
+                .doOnSuccess(result -> retryBudget.recordSuccess())
                 .transformDeferred(CircuitBreakerOperator.of(circuitBreakerRegistry.circuitBreaker(operationName)))
                 .transformDeferred(RetryOperator.of(retryRegistry.retry(operationName)))
                 .doOnError(e -> log.error("Operation {} failed after retries: {}", operationName, e.getMessage(), e));
@@ -27,6 +29,7 @@ public class RetryableService {
 
     public <T> Flux<T> executeFluxWithRetry(String operationName, Flux<T> operation) {
         return operation
+                .doOnComplete(retryBudget::recordSuccess)
                 .transformDeferred(CircuitBreakerOperator.of(circuitBreakerRegistry.circuitBreaker(operationName)))
                 .transformDeferred(RetryOperator.of(retryRegistry.retry(operationName)))
                 .doOnError(e -> log.error("Operation {} failed after retries: {}", operationName, e.getMessage(), e));
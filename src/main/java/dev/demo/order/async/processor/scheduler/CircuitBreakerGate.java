@@ -0,0 +1,102 @@
+package dev.demo.order.async.processor.scheduler;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the circuit breakers guarding the external services and tells the order schedulers how much work
+ * they may claim. While any breaker is OPEN no work is claimed, so orders stay PENDING instead of failing
+ * fast and being marked ERROR; while a breaker is HALF_OPEN only a small probe batch is processed.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CircuitBreakerGate {
+
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, CircuitBreaker.State> states = new ConcurrentHashMap<>();
+
+    @Value("${order.processing.circuit-breakers:externalServiceValidate,externalServiceProcess}")
+    private List<String> circuitBreakerNames;
+
+    @Value("${order.processing.half-open-batch-size:5}")
+    private int halfOpenBatchSize;
+
+    private Timer pausedDuration;
+    private volatile long pausedSince;
+
+    @PostConstruct
+    public void init() {
+        pausedDuration = Timer.builder("order.scheduler.paused.duration")
+                .description("Time order processing was paused because an external service circuit breaker was open")
+                .register(meterRegistry);
+        Gauge.builder("order.scheduler.paused", this, gate -> gate.isPaused() ? 1 : 0)
+                .description("Whether order processing is currently paused by an open circuit breaker")
+                .register(meterRegistry);
+
+        for (String name : circuitBreakerNames) {
+            CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker(name);
+            circuitBreaker.getEventPublisher().onStateTransition(event -> onStateChange(
+                    event.getCircuitBreakerName(), event.getStateTransition().getToState()));
+            onStateChange(name, circuitBreaker.getState());
+        }
+    }
+
+    /**
+     * Whether work should currently not be claimed at all
+     *
+     * @return True while any tracked circuit breaker is open
+     */
+    public boolean isPaused() {
+        return states.values().stream().anyMatch(CircuitBreakerGate::isOpen);
+    }
+
+    /**
+     * Batch size the scheduler may claim given the current circuit breaker states
+     *
+     * @param configuredBatchSize Batch size used while all breakers are closed
+     * @return 0 while paused, a reduced batch while probing a half-open breaker, otherwise the configured size
+     */
+    public int batchSize(int configuredBatchSize) {
+        if (isPaused()) {
+            return 0;
+        }
+        if (states.containsValue(CircuitBreaker.State.HALF_OPEN)) {
+            return Math.min(configuredBatchSize, halfOpenBatchSize);
+        }
+        return configuredBatchSize;
+    }
+
+    private synchronized void onStateChange(String name, CircuitBreaker.State state) {
+        boolean wasPaused = isPaused();
+        states.put(name, state);
+        boolean paused = isPaused();
+
+        if (!wasPaused && paused) {
+            pausedSince = System.nanoTime();
+            log.warn("Circuit breaker {} is {}, pausing order processing", name, state);
+        } else if (wasPaused && !paused) {
+            pausedDuration.record(System.nanoTime() - pausedSince, TimeUnit.NANOSECONDS);
+            log.info("Circuit breaker {} is {}, resuming order processing", name, state);
+        }
+    }
+
+    private static boolean isOpen(CircuitBreaker.State state) {
+        return state == CircuitBreaker.State.OPEN || state == CircuitBreaker.State.FORCED_OPEN;
+    }
+}
@@ -1,5 +1,7 @@
 package dev.demo.order.async.processor.scheduler;
 
+import dev.demo.order.async.processor.jfr.ClaimEvent;
+import dev.demo.order.async.processor.jfr.SchedulerBatchEvent;
 import dev.demo.order.async.processor.repository.model.OrderCommunication;
 import dev.demo.order.async.processor.service.CommunicationService;
 import io.micrometer.observation.annotation.Observed;
@@ -48,6 +50,7 @@ public class CommunicationProcessorScheduler {
         AtomicInteger errorCounter = new AtomicInteger(0);
 
         log.info("Starting communication processing batch. Batch size: {}", batchSize);
+        SchedulerBatchEvent batchEvent = SchedulerBatchEvent.start("communication", batchSize);
 
         communicationService.findUnsentCommunications(pendingStatuses, batchSize)
                 .doOnNext(comm -> log.debug("Processing communication: {}", comm.getId()))
@@ -65,6 +68,7 @@ public class CommunicationProcessorScheduler {
                     log.error("Error during communication processing batch: {}", error.getMessage(), error);
                     errorCounter.incrementAndGet();
                 })
+                .doFinally(signal -> batchEvent.finish(signal, counter.get(), errorCounter.get()))
                 .subscribe();
     }
 
@@ -96,6 +100,8 @@ public class CommunicationProcessorScheduler {
      */
     @Observed(name = "communication.scheduler.process.single", contextualName = "processCommunication")
     private Mono<Boolean> processCommunication(OrderCommunication communication) {
+        ClaimEvent.claimed("communication", communication.getId(), communication.getType(),
+                communication.getCreatedAt());
         return communicationService.processCommunication(communication)
                 .flatMap(processedComm -> {
                     // Simulate a random delivery confirmation for some messages
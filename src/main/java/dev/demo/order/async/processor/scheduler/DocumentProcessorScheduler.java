@@ -1,5 +1,7 @@
 package dev.demo.order.async.processor.scheduler;
 
+import dev.demo.order.async.processor.jfr.ClaimEvent;
+import dev.demo.order.async.processor.jfr.SchedulerBatchEvent;
 import dev.demo.order.async.processor.repository.model.OrderDocument;
 import dev.demo.order.async.processor.service.DocumentService;
 import io.micrometer.observation.annotation.Observed;
@@ -51,6 +53,7 @@ public class DocumentProcessorScheduler {
         AtomicInteger errorCounter = new AtomicInteger(0);
 
         log.info("Starting document processing batch. Batch size: {}, Types: {}", batchSize, documentTypes);
+        SchedulerBatchEvent batchEvent = SchedulerBatchEvent.start("document", batchSize);
 
         documentService.findDocumentsForProcessing(documentTypes, pendingStatuses, batchSize)
                 .doOnNext(document -> log.debug("Processing document: {}", document.getId()))
@@ -68,6 +71,7 @@ public class DocumentProcessorScheduler {
                     log.error("Error during document processing batch: {}", error.getMessage(), error);
                     errorCounter.incrementAndGet();
                 })
+                .doFinally(signal -> batchEvent.finish(signal, counter.get(), errorCounter.get()))
                 .subscribe();
     }
 
@@ -108,6 +112,7 @@ public class DocumentProcessorScheduler {
      */
     @Observed(name = "document.scheduler.process.single", contextualName = "processDocument")
     private Mono<Boolean> processDocument(OrderDocument document) {
+        ClaimEvent.claimed("document", document.getId(), document.getType(), document.getUploadedAt());
         return documentService.processDocument(document)
                 .map(processedDocument -> true)
                 .onErrorResume(error -> {
@@ -0,0 +1,152 @@
+package dev.demo.order.async.processor.scheduler;
+
+import dev.demo.order.async.processor.MetricsConfiguration;
+import dev.demo.order.async.processor.repository.OrderRepository;
+import dev.demo.order.async.processor.repository.model.Order;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Latency of orders through their lifecycle, by type and priority: from creation until the scheduler claims
+ * them, from claim until COMPLETED, and end to end. The age of the oldest PENDING order per type is the
+ * queue lag; it keeps growing between refreshes, so a stuck queue shows even if the refresh query fails.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OrderLifecycleMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final OrderRepository orderRepository;
+    private final MetricsConfiguration metricsConfiguration;
+
+    @Value("${order.processing.types:STANDARD,PRIORITY}")
+    private List<String> orderTypes;
+
+    @Value("${order.processing.status.pending:PENDING}")
+    private String pendingStatus;
+
+    @Value("${order.processing.max-age:24h}")
+    private Duration maxAge;
+
+    private final Map<StageKey, Stages> stages = new ConcurrentHashMap<>();
+    private final Map<String, AtomicReference<LocalDateTime>> oldestPending = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        for (String type : orderTypes) {
+            AtomicReference<LocalDateTime> oldest = new AtomicReference<>();
+            oldestPending.put(type, oldest);
+            TimeGauge.builder("order.queue.oldest.age", oldest, TimeUnit.MILLISECONDS, createdAt -> {
+                        LocalDateTime value = createdAt.get();
+                        return value != null ? Math.max(0, Duration.between(value, LocalDateTime.now()).toMillis()) : 0;
+                    })
+                    .description("Age of the oldest PENDING order")
+                    .tag("type", type)
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Refresh the oldest PENDING order of each type
+     */
+    @Scheduled(fixedDelayString = "${order.lifecycle.queue-age-interval:15000}")
+    public void refreshQueueAge() {
+        orderRepository.findOldestByType(pendingStatus, orderTypes.toArray(String[]::new))
+                .doOnNext(oldest -> {
+                    AtomicReference<LocalDateTime> createdAt = oldestPending.get(oldest.type());
+                    if (createdAt != null) {
+                        createdAt.set(oldest.createdAt());
+                    }
+                })
+                .subscribe(null, error -> log.warn("Failed to refresh order queue age: {}", error.getMessage()));
+    }
+
+    /**
+     * Record that the scheduler has picked up an order
+     *
+     * @param order Order as read from the queue
+     * @return Claim time, to pass to {@link #completed}
+     */
+    public long claimed(Order order) {
+        if (order.getCreatedAt() != null) {
+            stages(order).queued().record(sinceCreated(order));
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Record that an order has been marked COMPLETED
+     *
+     * @param order     Order as claimed
+     * @param claimedAt Value returned by {@link #claimed}
+     */
+    public void completed(Order order, long claimedAt) {
+        long processingNanos = System.nanoTime() - claimedAt;
+        Stages orderStages = stages(order);
+        orderStages.processing().record(processingNanos, TimeUnit.NANOSECONDS);
+        if (order.getCreatedAt() != null) {
+            orderStages.total().record(sinceCreated(order));
+        }
+        metricsConfiguration.recordOrderProcessingTime(TimeUnit.NANOSECONDS.toMillis(processingNanos));
+        metricsConfiguration.recordOrderProcessed();
+    }
+
+    /**
+     * Record that processing an order failed
+     */
+    public void failed() {
+        metricsConfiguration.recordOrderError();
+    }
+
+    private Stages stages(Order order) {
+        return stages.computeIfAbsent(
+                new StageKey(String.valueOf(order.getType()),
+                        order.getPriority() != null ? order.getPriority().toString() : "none"),
+                key -> new Stages(
+                        timer("order.lifecycle.queued", "Time from creation until the scheduler claimed the order",
+                                key, maxAge),
+                        timer("order.lifecycle.processing", "Time from claim until the order was COMPLETED",
+                                key, null),
+                        timer("order.lifecycle.total", "Time from creation until the order was COMPLETED",
+                                key, maxAge)));
+    }
+
+    private Timer timer(String name, String description, StageKey key, Duration maximumExpectedValue) {
+        Timer.Builder builder = Timer.builder(name)
+                .description(description)
+                .tag("type", key.type())
+                .tag("priority", key.priority())
+                .publishPercentileHistogram();
+        if (maximumExpectedValue != null) {
+            builder.maximumExpectedValue(maximumExpectedValue);
+        }
+        return builder.register(meterRegistry);
+    }
+
+    private static Duration sinceCreated(Order order) {
+        Duration elapsed = Duration.between(order.getCreatedAt(), LocalDateTime.now());
+        return elapsed.isNegative() ? Duration.ZERO : elapsed;
+    }
+
+    private record StageKey(String type, String priority) {
+    }
+
+    private record Stages(Timer queued, Timer processing, Timer total) {
+    }
+}
@@ -1,8 +1,12 @@
 package dev.demo.order.async.processor.scheduler;
 
+import dev.demo.order.async.processor.client.AdaptiveTimeoutRegistry;
 import dev.demo.order.async.processor.client.ExternalServiceClient;
+import dev.demo.order.async.processor.jfr.ClaimEvent;
+import dev.demo.order.async.processor.jfr.SchedulerBatchEvent;
 import dev.demo.order.async.processor.repository.model.Order;
 import dev.demo.order.async.processor.service.OrderService;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import io.micrometer.observation.annotation.Observed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -22,6 +26,10 @@ public class OrderProcessorScheduler {
 
     private final OrderService orderService;
     private final ExternalServiceClient externalServiceClient;
+    private final AdaptiveTimeoutRegistry adaptiveTimeouts;
+    private final CircuitBreakerGate circuitBreakerGate;
+    private final OrderLifecycleMetrics lifecycleMetrics;
+    private final PipelineStages pipelineStages;
 
     @Value("${order.processing.batch-size:100}")
     private int batchSize;
@@ -49,14 +57,23 @@ public class OrderProcessorScheduler {
             return;
         }
 
+        int currentBatchSize = circuitBreakerGate.batchSize(batchSize);
+        if (currentBatchSize == 0) {
+            log.info("Order processing is paused while an external service circuit breaker is open");
+            return;
+        }
+
         AtomicInteger counter = new AtomicInteger(0);
         AtomicInteger errorCounter = new AtomicInteger(0);
 
-        log.info("Starting order processing batch. Batch size: {}, Types: {}", batchSize, orderTypes);
+        log.info("Starting order processing batch. Batch size: {}, Types: {}", currentBatchSize, orderTypes);
+        SchedulerBatchEvent batchEvent = SchedulerBatchEvent.start("order", currentBatchSize);
 
         orderService
-                .findOrdersToProcessByTypes(orderTypes, batchSize)
+                .findOrdersToProcessByTypes(orderTypes, currentBatchSize)
                 .doOnNext(order -> log.debug("Processing order: {}", order.getId()))
+                // Leave the rest of the batch PENDING if a breaker opens mid-batch
+                .takeWhile(order -> !circuitBreakerGate.isPaused())
                 .flatMap(this::processOrderWithExternalServices, concurrency)
                 .doOnNext(success -> {
                     if (success) {
@@ -73,6 +90,7 @@ public class OrderProcessorScheduler {
                     log.error("Error during order processing batch: {}", error.getMessage(), error);
                     errorCounter.incrementAndGet();
                 })
+                .doFinally(signal -> batchEvent.finish(signal, counter.get(), errorCounter.get()))
                 .subscribe();
     }
 
@@ -87,14 +105,22 @@ public class OrderProcessorScheduler {
             return;
         }
 
+        int currentBatchSize = circuitBreakerGate.batchSize(batchSize);
+        if (currentBatchSize == 0) {
+            log.info("Due order processing is paused while an external service circuit breaker is open");
+            return;
+        }
+
         AtomicInteger counter = new AtomicInteger(0);
         AtomicInteger errorCounter = new AtomicInteger(0);
 
-        log.info("Starting due order processing batch. Batch size: {}", batchSize);
+        log.info("Starting due order processing batch. Batch size: {}", currentBatchSize);
+        SchedulerBatchEvent batchEvent = SchedulerBatchEvent.start("order.due", currentBatchSize);
 
         orderService
-                .findOrdersDueForProcessing(batchSize)
+                .findOrdersDueForProcessing(currentBatchSize)
                 .doOnNext(order -> log.debug("Processing due order: {}", order.getId()))
+                .takeWhile(order -> !circuitBreakerGate.isPaused())
                 .flatMap(this::processOrderWithExternalServices, concurrency)
                 .doOnNext(success -> {
                     if (success) {
@@ -111,9 +137,20 @@ public class OrderProcessorScheduler {
                     log.error("Error during due order processing batch: {}", error.getMessage(), error);
                     errorCounter.incrementAndGet();
                 })
+                .doFinally(signal -> batchEvent.finish(signal, counter.get(), errorCounter.get()))
                 .subscribe();
     }
 
+    /**
+     * Time allowed for a single order: the sum of the current external call timeouts, capped by the
+     * backpressure timeout so a slow endpoint can't hold a concurrency slot for longer than before.
+     */
+    private Duration orderTimeout() {
+        Duration budget = adaptiveTimeouts.budget(
+                ExternalServiceClient.VALIDATE, ExternalServiceClient.PROCESS, ExternalServiceClient.NOTIFY);
+        return budget.compareTo(backpressureTimeout) < 0 ? budget : backpressureTimeout;
+    }
+
     /**
      * Process a single order using external services
      *
@@ -122,36 +159,66 @@ public class OrderProcessorScheduler {
      */
     @Observed(name = "order.scheduler.process.single", contextualName = "processOrderWithExternalServices")
     private Mono<Boolean> processOrderWithExternalServices(Order order) {
+        long claimedAt = lifecycleMetrics.claimed(order);
+        ClaimEvent.claimed("order", order.getId(), order.getType(), order.getCreatedAt());
         return externalServiceClient
                 .validateOrder(order)
+                .onErrorMap(CallNotPermittedException.class, LeftPending::new)
+                .transformDeferred(pipelineStages.stage(PipelineStages.VALIDATE))
                 .flatMap(valid -> {
                     if (valid) {
                         log.debug("Order {} validated successfully, processing", order.getId());
-                        return externalServiceClient.processOrder(order).flatMap(processedOrder -> {
-                            log.debug("Order {} processed successfully, updating status", processedOrder.getId());
-                            return orderService
-                                    .updateOrderStatus(processedOrder.getId(), "COMPLETED", "system")
-                                    .flatMap(updatedOrder -> {
-                                        log.debug(
-                                                "Order {} status updated, sending notification", updatedOrder.getId());
-                                        return externalServiceClient
-                                                .notifyOrderComplete(updatedOrder)
-                                                .thenReturn(true);
-                                    });
-                        });
+                        return externalServiceClient.processOrder(order)
+                                .onErrorMap(CallNotPermittedException.class, LeftPending::new)
+                                .transformDeferred(pipelineStages.stage(PipelineStages.PROCESS))
+                                .flatMap(processedOrder -> {
+                                    log.debug("Order {} processed successfully, updating status",
+                                            processedOrder.getId());
+                                    return orderService
+                                            .updateOrderStatus(processedOrder.getId(), "COMPLETED", "system")
+                                            .transformDeferred(pipelineStages.stage(PipelineStages.STATUS_UPDATE))
+                                            .doOnNext(updatedOrder -> lifecycleMetrics.completed(order, claimedAt))
+                                            .flatMap(updatedOrder -> {
+                                                log.debug("Order {} status updated, sending notification",
+                                                        updatedOrder.getId());
+                                                return externalServiceClient
+                                                        .notifyOrderComplete(updatedOrder)
+                                                        .transformDeferred(pipelineStages.stage(PipelineStages.NOTIFY))
+                                                        .thenReturn(true);
+                                            });
+                                });
                     } else {
                         log.warn("Order {} failed validation", order.getId());
                         return orderService
                                 .updateOrderStatus(order.getId(), "VALIDATION_FAILED", "system")
+                                .transformDeferred(pipelineStages.stage(PipelineStages.STATUS_UPDATE))
                                 .thenReturn(false);
                     }
                 })
-                .timeout(backpressureTimeout)
+                .timeout(orderTimeout())
+                .onErrorResume(LeftPending.class, error -> {
+                    // Rejected by an open circuit breaker before reaching the service, retry on a later run
+                    log.debug("Order {} left pending: {}", order.getId(), error.getMessage());
+                    return Mono.just(false);
+                })
                 .onErrorResume(error -> {
                     log.error("Error processing order {}: {}", order.getId(), error.getMessage(), error);
+                    lifecycleMetrics.failed();
                     return orderService
                             .updateOrderStatus(order.getId(), "ERROR", "system")
                             .thenReturn(false);
-                });
+                })
+                .transformDeferred(pipelineStages.traced(order.getId()));
+    }
+
+    /**
+     * A validate or process call rejected by its circuit breaker. The order hasn't changed yet, so it can stay
+     * PENDING; a rejected notification is an ordinary failure, as the order is COMPLETED by then.
+     */
+    private static final class LeftPending extends RuntimeException {
+
+        LeftPending(CallNotPermittedException cause) {
+            super(cause.getMessage(), cause, false, false);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,22 @@
+package dev.demo.order.async.processor.scheduler;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Live view of the order pipeline: stage latency percentiles and waterfalls of the latest runs
+ */
+@Component
+@Endpoint(id = "pipeline")
+@RequiredArgsConstructor
+public class PipelineEndpoint {
+
+    private final PipelineStages pipelineStages;
+
+    @ReadOperation
+    public PipelineStages.Snapshot pipeline() {
+        return pipelineStages.snapshot();
+    }
+}
@@ -0,0 +1,275 @@
+package dev.demo.order.async.processor.scheduler;
+
+import dev.demo.order.async.processor.QueryMetricsListener;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Stage-by-stage latency of the order pipeline: validate, process, status update and notify.
+ * <p>
+ * Each stage records its raw latencies into an HdrHistogram {@link Recorder}. Percentiles of the last
+ * completed window are published as {@code order.pipeline.stage.latency} gauges; plain per-outcome timers
+ * carry counts and totals. The latest pipeline runs are kept as waterfalls of their stages for the
+ * {@code pipeline} actuator endpoint.
+ * <p>
+ * Each run is an {@code order.pipeline} observation, so the statements it executes are counted as its
+ * database round trips: tagged on the observation and recorded in {@code order.pipeline.db.round.trips}.
+ */
+@Component
+@RequiredArgsConstructor
+public class PipelineStages {
+
+    public static final String VALIDATE = "validate";
+    public static final String PROCESS = "process";
+    public static final String STATUS_UPDATE = "status_update";
+    public static final String NOTIFY = "notify";
+
+    private static final List<String> STAGES = List.of(VALIDATE, PROCESS, STATUS_UPDATE, NOTIFY);
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final MeterRegistry meterRegistry;
+    private final ObservationRegistry observationRegistry;
+
+    @Value("${order.pipeline.window:60000}")
+    private long windowMillis;
+
+    @Value("${order.pipeline.recent-runs:50}")
+    private int recentRuns;
+
+    private final Map<String, Stage> stages = new LinkedHashMap<>();
+    private final Deque<Run> recent = new ArrayDeque<>();
+    private DistributionSummary roundTrips;
+
+    @PostConstruct
+    public void init() {
+        for (String name : STAGES) {
+            Stage stage = new Stage(name);
+            stages.put(name, stage);
+            for (double percentile : PERCENTILES) {
+                TimeGauge.builder("order.pipeline.stage.latency", stage, TimeUnit.MICROSECONDS,
+                                state -> state.window.getValueAtPercentile(percentile))
+                        .description("Stage latency percentile over the last window")
+                        .tag("stage", name)
+                        .tag("quantile", String.valueOf(percentile / 100))
+                        .register(meterRegistry);
+            }
+            TimeGauge.builder("order.pipeline.stage.latency.max", stage, TimeUnit.MICROSECONDS,
+                            state -> state.window.getMaxValue())
+                    .description("Longest stage latency over the last window")
+                    .tag("stage", name)
+                    .register(meterRegistry);
+        }
+        roundTrips = DistributionSummary.builder("order.pipeline.db.round.trips")
+                .description("Statements executed against the database while processing one order")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Start a new window: the samples recorded since the last rotation become the published percentiles
+     */
+    @Scheduled(fixedDelayString = "${order.pipeline.window:60000}")
+    public void rotate() {
+        stages.values().forEach(Stage::rotate);
+    }
+
+    /**
+     * Time one stage of a pipeline run. The stage joins the waterfall of the run started by {@link #traced}.
+     *
+     * @param stage One of the stage constants
+     * @return Transformer to use with {@code transformDeferred}
+     */
+    public <T> Function<Mono<T>, Mono<T>> stage(String stage) {
+        Stage state = stages.get(stage);
+        return call -> Mono.deferContextual(context -> {
+            Run run = context.getOrDefault(Run.class, null);
+            long start = System.nanoTime();
+            return call
+                    .doOnSuccess(result -> state.record(run, start, "success"))
+                    .doOnError(error -> state.record(run, start, "error"))
+                    .doOnCancel(() -> state.record(run, start, "cancelled"));
+        });
+    }
+
+    /**
+     * Make a pipeline run of an order the waterfall its stages are recorded in, and the observation its
+     * database round trips are counted on
+     *
+     * @param orderId Order being processed
+     * @return Transformer to use with {@code transformDeferred}
+     */
+    public <T> Function<Mono<T>, Mono<T>> traced(UUID orderId) {
+        return pipeline -> Mono.defer(() -> {
+            Run run = new Run(orderId, Instant.now(), System.nanoTime());
+            Observation observation = Observation.createNotStarted("order.pipeline", observationRegistry)
+                    .contextualName("orderPipeline")
+                    .highCardinalityKeyValue("order.id", orderId.toString())
+                    .start();
+            return pipeline
+                    .doOnError(observation::error)
+                    // Finish before the subscriber sees the result, so the run is in the snapshot by then
+                    .doOnTerminate(() -> finish(run, observation, false))
+                    .doOnCancel(() -> finish(run, observation, true))
+                    .contextWrite(Context.of(Run.class, run, ObservationThreadLocalAccessor.KEY, observation));
+        });
+    }
+
+    /**
+     * Percentiles of each stage over the last window and the waterfalls of the latest runs, newest first
+     */
+    public Snapshot snapshot() {
+        Map<String, StageSummary> summaries = new LinkedHashMap<>();
+        stages.forEach((name, stage) -> summaries.put(name, stage.summary()));
+        List<Waterfall> waterfalls;
+        synchronized (recent) {
+            waterfalls = recent.stream().map(Run::waterfall).toList();
+        }
+        return new Snapshot(Duration.ofMillis(windowMillis), summaries, waterfalls);
+    }
+
+    private void finish(Run run, Observation observation, boolean cancelled) {
+        int dbRoundTrips = QueryMetricsListener.roundTrips(observation.getContext());
+        roundTrips.record(dbRoundTrips);
+        observation.highCardinalityKeyValue("db.round.trips", String.valueOf(dbRoundTrips)).stop();
+        run.finish(cancelled, dbRoundTrips);
+        synchronized (recent) {
+            recent.addFirst(run);
+            while (recent.size() > recentRuns) {
+                recent.removeLast();
+            }
+        }
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private class Stage {
+
+        private final String name;
+        private final Recorder recorder = new Recorder(3);
+        private final Map<String, Timer> timers = new LinkedHashMap<>();
+        private volatile Histogram window = new Histogram(3);
+
+        Stage(String name) {
+            this.name = name;
+            for (String outcome : List.of("success", "error", "cancelled")) {
+                timers.put(outcome, Timer.builder("order.pipeline.stage")
+                        .description("Time spent in a stage of the order pipeline")
+                        .tag("stage", name)
+                        .tag("outcome", outcome)
+                        .register(meterRegistry));
+            }
+        }
+
+        void record(Run run, long start, String outcome) {
+            long nanos = System.nanoTime() - start;
+            long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+            recorder.recordValue(micros);
+            timers.get(outcome).record(nanos, TimeUnit.NANOSECONDS);
+            if (run != null) {
+                run.add(new StageSpan(name, millis(TimeUnit.NANOSECONDS.toMicros(start - run.startNanos)),
+                        millis(micros), outcome));
+            }
+        }
+
+        void rotate() {
+            window = recorder.getIntervalHistogram();
+        }
+
+        StageSummary summary() {
+            Histogram current = window;
+            return new StageSummary(current.getTotalCount(),
+                    millis(current.getValueAtPercentile(50)),
+                    millis(current.getValueAtPercentile(90)),
+                    millis(current.getValueAtPercentile(99)),
+                    millis(current.getValueAtPercentile(99.9)),
+                    millis(current.getMaxValue()));
+        }
+    }
+
+    private static class Run {
+
+        private final UUID orderId;
+        private final Instant startedAt;
+        private final long startNanos;
+        private final List<StageSpan> spans = new ArrayList<>();
+        private volatile double totalMs;
+        private volatile String outcome = "running";
+        private volatile int dbRoundTrips;
+
+        Run(UUID orderId, Instant startedAt, long startNanos) {
+            this.orderId = orderId;
+            this.startedAt = startedAt;
+            this.startNanos = startNanos;
+        }
+
+        synchronized void add(StageSpan span) {
+            spans.add(span);
+        }
+
+        void finish(boolean cancelled, int dbRoundTrips) {
+            this.dbRoundTrips = dbRoundTrips;
+            totalMs = millis(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+            synchronized (this) {
+                outcome = cancelled ? "cancelled"
+                        : spans.stream().anyMatch(span -> !span.outcome().equals("success")) ? "error"
+                        : "success";
+            }
+        }
+
+        synchronized Waterfall waterfall() {
+            return new Waterfall(orderId, startedAt, totalMs, outcome, dbRoundTrips, List.copyOf(spans));
+        }
+    }
+
+    /**
+     * @param window Period the percentiles cover
+     * @param stages Percentiles by stage, in pipeline order
+     * @param recent Latest pipeline runs, newest first
+     */
+    public record Snapshot(Duration window, Map<String, StageSummary> stages, List<Waterfall> recent) {
+    }
+
+    /**
+     * Stage latency percentiles in milliseconds
+     */
+    public record StageSummary(long count, double p50Ms, double p90Ms, double p99Ms, double p999Ms, double maxMs) {
+    }
+
+    /**
+     * One pipeline run with the offset and duration of each stage, in milliseconds from the start of the run,
+     * and the statements it executed against the database
+     */
+    public record Waterfall(UUID orderId, Instant startedAt, double totalMs, String outcome, int dbRoundTrips,
+                            List<StageSpan> stages) {
+    }
+
+    public record StageSpan(String stage, double offsetMs, double durationMs, String outcome) {
+    }
+}
@@ -5,7 +5,9 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 public interface CommunicationService {
@@ -34,6 +36,52 @@ public interface CommunicationService {
      */
     Flux<OrderCommunication> findCommunicationsByCustomer(UUID customerId);
 
+    /**
+     * Find a page of communications for an order, newest first
+     *
+     * @param orderId Order ID
+     * @param after ID of the last communication of the previous page, null for the first page
+     * @param limit Maximum number of communications
+     * @return Communications for the order, or IllegalArgumentException if {@code after} is not one of them
+     */
+    Flux<OrderCommunication> findCommunicationsByOrder(UUID orderId, UUID after, int limit);
+
+    /**
+     * Find a page of communications for a customer, newest first
+     *
+     * @param customerId Customer ID
+     * @param after ID of the last communication of the previous page, null for the first page
+     * @param limit Maximum number of communications
+     * @return Communications for the customer, or IllegalArgumentException if {@code after} is not one of them
+     */
+    Flux<OrderCommunication> findCommunicationsByCustomer(UUID customerId, UUID after, int limit);
+
+    /**
+     * Find communications for an order, newest first, reading only some of their fields
+     *
+     * @param orderId Order ID
+     * @param fields Communication properties to return; the ID is always included
+     * @param after ID of the last communication of the previous page, null for the first page
+     * @param limit Maximum number of communications, null for all
+     * @return One map of the requested properties per communication, or IllegalArgumentException if
+     * {@code after} is not one of the owner's communications
+     */
+    Flux<Map<String, Object>> findCommunicationFieldsByOrder(UUID orderId, Collection<String> fields, UUID after,
+                                                             Integer limit);
+
+    /**
+     * Find communications for a customer, newest first, reading only some of their fields
+     *
+     * @param customerId Customer ID
+     * @param fields Communication properties to return; the ID is always included
+     * @param after ID of the last communication of the previous page, null for the first page
+     * @param limit Maximum number of communications, null for all
+     * @return One map of the requested properties per communication, or IllegalArgumentException if
+     * {@code after} is not one of the owner's communications
+     */
+    Flux<Map<String, Object>> findCommunicationFieldsByCustomer(UUID customerId, Collection<String> fields, UUID after,
+                                                                Integer limit);
+
     /**
      * Create a new communication
      *
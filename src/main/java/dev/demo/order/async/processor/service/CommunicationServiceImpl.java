@@ -1,6 +1,8 @@
 package dev.demo.order.async.processor.service;
 
+import dev.demo.order.async.processor.jfr.StatusTransitionEvent;
 import dev.demo.order.async.processor.repository.OrderCommunicationRepository;
+import dev.demo.order.async.processor.repository.ProjectionQueries;
 import dev.demo.order.async.processor.repository.model.OrderCommunication;
 import io.micrometer.observation.annotation.Observed;
 import lombok.RequiredArgsConstructor;
@@ -12,8 +14,12 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.BiFunction;
 
 @Service
 @RequiredArgsConstructor
@@ -21,6 +27,7 @@ import java.util.UUID;
 public class CommunicationServiceImpl implements CommunicationService {
 
     private final OrderCommunicationRepository communicationRepository;
+    private final ProjectionQueries projectionQueries;
 
     @Value("${communication.processing.status.pending:PENDING}")
     private String pendingStatus;
@@ -59,6 +66,36 @@ public class CommunicationServiceImpl implements CommunicationService {
                 .doOnComplete(() -> log.debug("Found communications for customer: {}", customerId));
     }
 
+    @Override
+    @Observed(name = "communication.service.find.by.order.page", contextualName = "findCommunicationsByOrderPage")
+    public Flux<OrderCommunication> findCommunicationsByOrder(UUID orderId, UUID after, int limit) {
+        return requireCursor(after, orderId, communicationRepository::existsByIdAndOrderId)
+                .thenMany(communicationRepository.findPageByOrderId(orderId, after, limit));
+    }
+
+    @Override
+    @Observed(name = "communication.service.find.by.customer.page", contextualName = "findCommunicationsByCustomerPage")
+    public Flux<OrderCommunication> findCommunicationsByCustomer(UUID customerId, UUID after, int limit) {
+        return requireCursor(after, customerId, communicationRepository::existsByIdAndCustomerId)
+                .thenMany(communicationRepository.findPageByCustomerId(customerId, after, limit));
+    }
+
+    @Override
+    @Observed(name = "communication.service.find.fields.by.order", contextualName = "findCommunicationFieldsByOrder")
+    public Flux<Map<String, Object>> findCommunicationFieldsByOrder(UUID orderId, Collection<String> fields,
+                                                                    UUID after, Integer limit) {
+        return requireCursor(after, orderId, communicationRepository::existsByIdAndOrderId)
+                .thenMany(selectFields("order_id", orderId, fields, after, limit));
+    }
+
+    @Override
+    @Observed(name = "communication.service.find.fields.by.customer", contextualName = "findCommunicationFieldsByCustomer")
+    public Flux<Map<String, Object>> findCommunicationFieldsByCustomer(UUID customerId, Collection<String> fields,
+                                                                       UUID after, Integer limit) {
+        return requireCursor(after, customerId, communicationRepository::existsByIdAndCustomerId)
+                .thenMany(selectFields("customer_id", customerId, fields, after, limit));
+    }
+
     @Override
     @Transactional
     @Observed(name = "communication.service.create", contextualName = "createCommunication")
@@ -85,6 +122,7 @@ public class CommunicationServiceImpl implements CommunicationService {
     @Observed(name = "communication.service.update.status", contextualName = "updateCommunicationStatus")
     public Mono<Boolean> updateCommunicationStatus(UUID id, String status, LocalDateTime sentAt) {
         return communicationRepository.updateCommunicationStatus(id, status, sentAt)
+                .transformDeferred(StatusTransitionEvent.recorded("communication", id, status))
                 .map(result -> result > 0)
                 .doOnNext(success -> {
                     if (success) {
@@ -162,4 +200,32 @@ public class CommunicationServiceImpl implements CommunicationService {
                     }
                 });
     }
-}
\ No newline at end of file
+
+    /**
+     * Pages are positioned by the creation time of the {@code after} communication, so a cursor that is not
+     * one of the owner's communications has no position and is rejected rather than answered with an empty page
+     */
+    private static Mono<Void> requireCursor(UUID after, UUID ownerId, BiFunction<UUID, UUID, Mono<Boolean>> exists) {
+        if (after == null) {
+            return Mono.empty();
+        }
+        return exists.apply(after, ownerId)
+                .flatMap(found -> found
+                        ? Mono.<Void>empty()
+                        : Mono.error(new IllegalArgumentException("Unknown cursor: " + after)));
+    }
+
+    private Flux<Map<String, Object>> selectFields(String ownerColumn, UUID ownerId, Collection<String> fields,
+                                                   UUID after, Integer limit) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("ownerId", ownerId);
+        String where = ownerColumn + " = :ownerId";
+        if (after != null) {
+            params.put("after", after);
+            where += " AND (created_at, id) < (SELECT created_at, id FROM order_communications WHERE id = :after AND "
+                    + ownerColumn + " = :ownerId)";
+        }
+        return projectionQueries.select(OrderCommunication.class, fields, where, "created_at DESC, id DESC",
+                limit, params);
+    }
+}
@@ -1,9 +1,11 @@
 package dev.demo.order.async.processor.service;
 
 import dev.demo.order.async.processor.repository.model.Customer;
+import dev.demo.order.async.processor.repository.model.EntityVersion;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
 import java.util.UUID;
 
 public interface CustomerService {
@@ -24,6 +26,22 @@ public interface CustomerService {
      */
     Mono<Customer> findCustomerByExternalId(String externalId);
 
+    /**
+     * Get customers by ID, from the cache where possible and with one query for the rest
+     *
+     * @param ids Customer IDs
+     * @return Customers found, in no particular order
+     */
+    Flux<Customer> getCustomersByIds(Collection<UUID> ids);
+
+    /**
+     * Get the current version of a customer from the cache, or with a version-only query
+     *
+     * @param id Customer ID
+     * @return Version if the customer exists
+     */
+    Mono<Long> getCustomerVersion(UUID id);
+
     /**
      * Find customer by tax ID
      *
@@ -64,5 +82,39 @@ public interface CustomerService {
      */
     Flux<Customer> findCustomersBySegment(String segment);
 
+    /**
+     * Find a page of customers by segment, ordered by ID
+     *
+     * @param segment Customer segment
+     * @param after ID of the last customer of the previous page, null for the first page
+     * @param limit Maximum number of customers
+     * @return Customers in the segment
+     */
+    Flux<Customer> findCustomersBySegment(String segment, UUID after, int limit);
+
+    /**
+     * Get IDs and versions of the customers returned by {@link #findCustomersBySegment}
+     *
+     * @param segment Customer segment
+     * @return ID and version of each customer in the segment
+     */
+    Flux<EntityVersion> findCustomerVersionsBySegment(String segment);
+
     Flux<Customer> findAllCustomers();
+
+    /**
+     * Find a page of all customers, ordered by ID
+     *
+     * @param after ID of the last customer of the previous page, null for the first page
+     * @param limit Maximum number of customers
+     * @return Customers
+     */
+    Flux<Customer> findAllCustomers(UUID after, int limit);
+
+    /**
+     * Get IDs and versions of all customers
+     *
+     * @return ID and version of each customer
+     */
+    Flux<EntityVersion> findAllCustomerVersions();
 }
\ No newline at end of file
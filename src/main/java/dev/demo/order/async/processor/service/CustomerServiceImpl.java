@@ -1,7 +1,11 @@
 package dev.demo.order.async.processor.service;
 
+import dev.demo.order.async.processor.cache.CacheInvalidationBus;
+import dev.demo.order.async.processor.cache.CustomerCache;
+import dev.demo.order.async.processor.cache.CustomerLookupFilter;
 import dev.demo.order.async.processor.repository.CustomerRepository;
 import dev.demo.order.async.processor.repository.model.Customer;
+import dev.demo.order.async.processor.repository.model.EntityVersion;
 import io.micrometer.observation.annotation.Observed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -11,6 +15,9 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Service
@@ -18,12 +25,18 @@ import java.util.UUID;
 @Slf4j
 public class CustomerServiceImpl implements CustomerService {
 
+    // Sorts before every other UUID, so "after" it is the first page
+    private static final UUID FIRST_PAGE = new UUID(0, 0);
+
     private final CustomerRepository customerRepository;
+    private final CustomerCache customerCache;
+    private final CacheInvalidationBus invalidationBus;
+    private final CustomerLookupFilter lookupFilter;
 
     @Override
     @Observed(name = "customer.service.get", contextualName = "getCustomerById")
     public Mono<Customer> getCustomerById(UUID id) {
-        return customerRepository.findById(id)
+        return customerCache.get(id, customerRepository::findById)
                 .doOnNext(customer -> log.debug("Retrieved customer: {}", customer.getId()))
                 .doOnError(error -> log.error("Error retrieving customer {}: {}", id, error.getMessage()));
     }
@@ -31,15 +44,42 @@ public class CustomerServiceImpl implements CustomerService {
     @Override
     @Observed(name = "customer.service.find.external", contextualName = "findCustomerByExternalId")
     public Mono<Customer> findCustomerByExternalId(String externalId) {
-        return customerRepository.findByExternalIdAndDeletedFalse(externalId)
+        return lookupFilter.findByExternalId(externalId,
+                        key -> customerCache.getByExternalId(key, customerRepository::findByExternalIdAndDeletedFalse))
                 .doOnNext(customer -> log.debug("Found customer by external ID {}: {}", externalId, customer.getId()))
                 .doOnError(error -> log.error("Error finding customer by external ID {}: {}", externalId, error.getMessage()));
     }
 
+    @Override
+    @Observed(name = "customer.service.get.batch", contextualName = "getCustomersByIds")
+    public Flux<Customer> getCustomersByIds(Collection<UUID> ids) {
+        return Flux.defer(() -> {
+            Map<UUID, Customer> cached = customerCache.getAllPresent(ids);
+            List<UUID> missing = ids.stream().filter(id -> !cached.containsKey(id)).toList();
+            Flux<Customer> loaded = missing.isEmpty()
+                    ? Flux.empty()
+                    : customerRepository.findAllByIds(missing.toArray(UUID[]::new)).doOnNext(customerCache::put);
+            return Flux.fromIterable(cached.values()).concatWith(loaded)
+                    .doOnComplete(() -> log.debug("Retrieved batch of {} customer IDs, {} from cache",
+                            ids.size(), cached.size()));
+        });
+    }
+
+    @Override
+    @Observed(name = "customer.service.get.version", contextualName = "getCustomerVersion")
+    public Mono<Long> getCustomerVersion(UUID id) {
+        Customer cached = customerCache.getIfPresent(id);
+        if (cached != null && cached.getVersion() != null) {
+            return Mono.just(cached.getVersion());
+        }
+        return customerRepository.findVersionById(id);
+    }
+
     @Override
     @Observed(name = "customer.service.find.tax", contextualName = "findCustomerByTaxId")
     public Mono<Customer> findCustomerByTaxId(String taxId) {
-        return customerRepository.findByTaxIdAndDeletedFalse(taxId)
+        return lookupFilter.findByTaxId(taxId,
+                        key -> customerCache.getByTaxId(key, customerRepository::findByTaxIdAndDeletedFalse))
                 .doOnNext(customer -> log.debug("Found customer by tax ID {}: {}", taxId, customer.getId()))
                 .doOnError(error -> log.error("Error finding customer by tax ID {}: {}", taxId, error.getMessage()));
     }
@@ -57,6 +97,11 @@ public class CustomerServiceImpl implements CustomerService {
         }
 
         return customerRepository.save(customer)
+                // Added before commit: a rollback leaves a false positive, a late add could cause a false 404
+                .doOnNext(lookupFilter::add)
+                .flatMap(savedCustomer -> customerCache.putAfterCommit(savedCustomer)
+                        .then(publish(savedCustomer))
+                        .thenReturn(savedCustomer))
                 .doOnNext(savedCustomer -> log.info("Created new customer: {}", savedCustomer.getId()));
     }
 
@@ -67,9 +112,14 @@ public class CustomerServiceImpl implements CustomerService {
         return customerRepository.findById(customer.getId())
                 .flatMap(existing -> {
                     customer.setUpdatedAt(LocalDateTime.now());
-                    customer.setVersion(existing.getVersion() + 1);
+                    // Expected version for the optimistic lock, save increments it
+                    customer.setVersion(existing.getVersion());
                     return customerRepository.save(customer);
                 })
+                .doOnNext(lookupFilter::add)
+                .flatMap(updatedCustomer -> customerCache.putAfterCommit(updatedCustomer)
+                        .then(publish(updatedCustomer))
+                        .thenReturn(updatedCustomer))
                 .doOnNext(updatedCustomer -> log.info("Updated customer: {}", updatedCustomer.getId()))
                 .doOnError(error -> log.error("Error updating customer {}: {}", customer.getId(), error.getMessage()));
     }
@@ -78,8 +128,18 @@ public class CustomerServiceImpl implements CustomerService {
     @Transactional
     @Observed(name = "customer.service.delete", contextualName = "deleteCustomer")
     public Mono<Boolean> deleteCustomer(UUID id) {
-        return customerRepository.softDeleteCustomer(id)
-                .map(result -> result > 0)
+        return customerRepository.findById(id)
+                .flatMap(existing -> customerRepository.softDeleteCustomer(id)
+                        // Only the delete that took the row from live to deleted may remove its keys, a repeated
+                        // one would take counters from other customers sharing them
+                        .map(result -> result == 1)
+                        .flatMap(success -> success
+                                ? lookupFilter.removeAfterCommit(existing).thenReturn(true)
+                                : Mono.just(false)))
+                .defaultIfEmpty(false)
+                .flatMap(success -> customerCache.invalidateAfterCommit(id)
+                        .then(invalidationBus.publish(CustomerCache.ENTITY_TYPE, id, null))
+                        .thenReturn(success))
                 .doOnNext(success -> {
                     if (success) {
                         log.info("Deleted customer: {}", id);
@@ -96,8 +156,34 @@ public class CustomerServiceImpl implements CustomerService {
                 .doOnComplete(() -> log.debug("Found customers for segment: {}", segment));
     }
 
+    @Override
+    @Observed(name = "customer.service.find.segment.page", contextualName = "findCustomersBySegmentPage")
+    public Flux<Customer> findCustomersBySegment(String segment, UUID after, int limit) {
+        return customerRepository.findPageBySegmentAndStatus(segment, "ACTIVE", after != null ? after : FIRST_PAGE, limit);
+    }
+
+    @Override
+    @Observed(name = "customer.service.find.versions.by.segment", contextualName = "findCustomerVersionsBySegment")
+    public Flux<EntityVersion> findCustomerVersionsBySegment(String segment) {
+        return customerRepository.findVersionsBySegmentAndStatus(segment, "ACTIVE");
+    }
+
     @Override
     public Flux<Customer> findAllCustomers() {
         return customerRepository.findAll();
     }
-}
\ No newline at end of file
+
+    @Override
+    public Flux<Customer> findAllCustomers(UUID after, int limit) {
+        return customerRepository.findPage(after != null ? after : FIRST_PAGE, limit);
+    }
+
+    @Override
+    public Flux<EntityVersion> findAllCustomerVersions() {
+        return customerRepository.findAllVersions();
+    }
+
+    private Mono<Void> publish(Customer customer) {
+        return invalidationBus.publish(CustomerCache.ENTITY_TYPE, customer.getId(), customer.getVersion());
+    }
+}
@@ -5,6 +5,7 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -26,6 +27,14 @@ public interface DocumentService {
      */
     Flux<OrderDocument> findDocumentsByOrder(UUID orderId);
 
+    /**
+     * Get documents by ID with one query
+     *
+     * @param ids Document IDs
+     * @return Documents found, in no particular order
+     */
+    Flux<OrderDocument> getDocumentsByIds(Collection<UUID> ids);
+
     /**
      * Find documents by type for an order
      *
@@ -1,5 +1,6 @@
 package dev.demo.order.async.processor.service;
 
+import dev.demo.order.async.processor.jfr.StatusTransitionEvent;
 import dev.demo.order.async.processor.repository.OrderDocumentRepository;
 import dev.demo.order.async.processor.repository.model.OrderDocument;
 import io.micrometer.observation.annotation.Observed;
@@ -13,6 +14,7 @@ import reactor.core.publisher.Mono;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -50,6 +52,16 @@ public class DocumentServiceImpl implements DocumentService {
                 .doOnComplete(() -> log.debug("Found documents for order: {}", orderId));
     }
 
+    @Override
+    @Observed(name = "document.service.get.batch", contextualName = "getDocumentsByIds")
+    public Flux<OrderDocument> getDocumentsByIds(Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return Flux.empty();
+        }
+        return documentRepository.findAllByIds(ids.toArray(UUID[]::new))
+                .doOnComplete(() -> log.debug("Retrieved batch of {} document IDs", ids.size()));
+    }
+
     @Override
     @Observed(name = "document.service.find.by.order.type", contextualName = "findDocumentsByOrderAndType")
     public Flux<OrderDocument> findDocumentsByOrderAndType(UUID orderId, String type) {
@@ -83,6 +95,7 @@ public class DocumentServiceImpl implements DocumentService {
     @Observed(name = "document.service.update.status", contextualName = "updateDocumentStatus")
     public Mono<Boolean> updateDocumentStatus(UUID id, String status) {
         return documentRepository.updateDocumentStatus(id, status)
+                .transformDeferred(StatusTransitionEvent.recorded("document", id, status))
                 .map(result -> result > 0)
                 .doOnNext(success -> {
                     if (success) {
@@ -1,10 +1,13 @@
 package dev.demo.order.async.processor.service;
 
+import dev.demo.order.async.processor.repository.model.EntityVersion;
 import dev.demo.order.async.processor.repository.model.Order;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 public interface OrderService {
@@ -59,6 +62,22 @@ public interface OrderService {
      */
     Mono<Order> getOrderById(UUID id);
 
+    /**
+     * Get the current version of an order, cheaper than loading it
+     *
+     * @param id Order ID
+     * @return Version if the order exists
+     */
+    Mono<Long> getOrderVersion(UUID id);
+
+    /**
+     * Get orders by ID with one query
+     *
+     * @param ids Order IDs
+     * @return Orders found, in no particular order
+     */
+    Flux<Order> getOrdersByIds(Collection<UUID> ids);
+
     /**
      * Create a new order
      *
@@ -83,4 +102,34 @@ public interface OrderService {
      * @return Orders for the customer
      */
     Flux<Order> findOrdersByCustomer(UUID customerId);
+
+    /**
+     * Find a page of orders for a customer, ordered by ID
+     *
+     * @param customerId Customer ID
+     * @param after ID of the last order of the previous page, null for the first page
+     * @param limit Maximum number of orders
+     * @return Orders for the customer
+     */
+    Flux<Order> findOrdersByCustomer(UUID customerId, UUID after, int limit);
+
+    /**
+     * Find orders for a customer, reading only some of their fields
+     *
+     * @param customerId Customer ID
+     * @param fields Order properties to return; the ID is always included
+     * @param after ID of the last order of the previous page, null for the first page
+     * @param limit Maximum number of orders, null for all
+     * @return One map of the requested properties per order, ordered by ID
+     */
+    Flux<Map<String, Object>> findOrderFieldsByCustomer(UUID customerId, Collection<String> fields, UUID after,
+                                                        Integer limit);
+
+    /**
+     * Get IDs and versions of the orders for a customer, cheaper than loading them
+     *
+     * @param customerId Customer ID
+     * @return ID and version of each order for the customer
+     */
+    Flux<EntityVersion> findOrderVersionsByCustomer(UUID customerId);
 }
\ No newline at end of file
@@ -1,7 +1,14 @@
 package dev.demo.order.async.processor.service;
 
+import dev.demo.order.async.processor.cache.CacheInvalidationBus;
+import dev.demo.order.async.processor.cache.SingleFlight;
+import dev.demo.order.async.processor.event.OrderStatusEvent;
+import dev.demo.order.async.processor.event.OrderStatusEvents;
+import dev.demo.order.async.processor.jfr.StatusTransitionEvent;
 import dev.demo.order.async.processor.repository.OrderActionRepository;
 import dev.demo.order.async.processor.repository.OrderRepository;
+import dev.demo.order.async.processor.repository.ProjectionQueries;
+import dev.demo.order.async.processor.repository.model.EntityVersion;
 import dev.demo.order.async.processor.repository.model.Order;
 import dev.demo.order.async.processor.repository.model.OrderAction;
 import io.micrometer.observation.annotation.Observed;
@@ -15,7 +22,10 @@ import reactor.core.publisher.Mono;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Service
@@ -23,8 +33,17 @@ import java.util.UUID;
 @Slf4j
 public class OrderServiceImpl implements OrderService {
 
+    public static final String ORDER_ENTITY_TYPE = "order";
+
+    // Sorts before every other UUID, so "after" it is the first page
+    private static final UUID FIRST_PAGE = new UUID(0, 0);
+
     private final OrderRepository orderRepository;
     private final OrderActionRepository actionRepository;
+    private final CacheInvalidationBus invalidationBus;
+    private final SingleFlight<UUID, Order> orderSingleFlight;
+    private final OrderStatusEvents orderStatusEvents;
+    private final ProjectionQueries projectionQueries;
 
     @Value("${order.processing.status.pending:PENDING}")
     private String pendingStatus;
@@ -151,18 +170,41 @@ public class OrderServiceImpl implements OrderService {
         log.debug("Updating order {} status to {}", id, status);
 
         return orderRepository.updateOrderStatus(id, status, updatedBy, now)
+                .transformDeferred(StatusTransitionEvent.recorded("order", id, status))
                 .then(orderRepository.findById(id))
+                // Other nodes stream the status change from the detail, without reading the order back
+                .flatMap(order -> invalidationBus.publish(ORDER_ENTITY_TYPE, order.getId(), order.getVersion(),
+                                OrderStatusEvent.detail(order))
+                        .then(orderStatusEvents.publishAfterCommit(order))
+                        .thenReturn(order))
                 .doOnNext(order -> log.debug("Updated order {} status to {}", id, status));
     }
 
     @Override
     @Observed(name = "order.service.get", contextualName = "getOrderById")
     public Mono<Order> getOrderById(UUID id) {
-        return orderRepository.findById(id)
+        // Concurrent polls of the same order share one query
+        return orderSingleFlight.execute(id, orderRepository::findById)
                 .doOnNext(order -> log.debug("Retrieved order: {}", order.getId()))
                 .doOnError(error -> log.error("Error retrieving order {}: {}", id, error.getMessage()));
     }
 
+    @Override
+    @Observed(name = "order.service.get.version", contextualName = "getOrderVersion")
+    public Mono<Long> getOrderVersion(UUID id) {
+        return orderRepository.findVersionById(id);
+    }
+
+    @Override
+    @Observed(name = "order.service.get.batch", contextualName = "getOrdersByIds")
+    public Flux<Order> getOrdersByIds(Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return Flux.empty();
+        }
+        return orderRepository.findAllByIds(ids.toArray(UUID[]::new))
+                .doOnComplete(() -> log.debug("Retrieved batch of {} order IDs", ids.size()));
+    }
+
     @Override
     @Transactional
     @Observed(name = "order.service.create", contextualName = "createOrder")
@@ -176,6 +218,7 @@ public class OrderServiceImpl implements OrderService {
         }
 
         return orderRepository.save(order)
+                .flatMap(savedOrder -> publish(savedOrder).thenReturn(savedOrder))
                 .doOnNext(savedOrder -> {
                     log.info("Created new order: {}", savedOrder.getId());
 
@@ -201,6 +244,7 @@ public class OrderServiceImpl implements OrderService {
 
         return orderRepository.softDeleteOrder(id, deletedBy, LocalDateTime.now())
                 .map(result -> result > 0)
+                .flatMap(success -> invalidationBus.publish(ORDER_ENTITY_TYPE, id, null).thenReturn(success))
                 .doOnNext(success -> {
                     if (success) {
                         log.info("Order deleted: {}", id);
@@ -228,4 +272,31 @@ public class OrderServiceImpl implements OrderService {
         return orderRepository.findByCustomerIdAndDeletedFalse(customerId)
                 .doOnComplete(() -> log.debug("Found orders for customer: {}", customerId));
     }
-}
\ No newline at end of file
+
+    @Override
+    @Observed(name = "order.service.find.by.customer.page", contextualName = "findOrdersByCustomerPage")
+    public Flux<Order> findOrdersByCustomer(UUID customerId, UUID after, int limit) {
+        return orderRepository.findPageByCustomerId(customerId, after != null ? after : FIRST_PAGE, limit);
+    }
+
+    @Override
+    @Observed(name = "order.service.find.fields.by.customer", contextualName = "findOrderFieldsByCustomer")
+    public Flux<Map<String, Object>> findOrderFieldsByCustomer(UUID customerId, Collection<String> fields,
+                                                               UUID after, Integer limit) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("customerId", customerId);
+        params.put("after", after != null ? after : FIRST_PAGE);
+        return projectionQueries.select(Order.class, fields,
+                "customer_id = :customerId AND deleted = false AND id > :after", "id", limit, params);
+    }
+
+    @Override
+    @Observed(name = "order.service.find.versions.by.customer", contextualName = "findOrderVersionsByCustomer")
+    public Flux<EntityVersion> findOrderVersionsByCustomer(UUID customerId) {
+        return orderRepository.findVersionsByCustomerId(customerId);
+    }
+
+    private Mono<Void> publish(Order order) {
+        return invalidationBus.publish(ORDER_ENTITY_TYPE, order.getId(), order.getVersion());
+    }
+}
@@ -0,0 +1,155 @@
+package dev.demo.order.async.processor.simulator;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Embedded stand-in for the external order service, started with the {@code simulator} profile.
+ * <p>
+ * Implements the validate, process and notify endpoints used by
+ * {@link dev.demo.order.async.processor.client.ExternalServiceClient} with configurable latency
+ * distributions, error rates and slow-drip responses, so tail-latency behaviour of the pipeline can be
+ * reproduced without the WireMock container.
+ */
+@Component
+@Profile("simulator")
+@EnableConfigurationProperties(SimulatorProperties.class)
+@RequiredArgsConstructor
+@Slf4j
+public class ExternalServiceSimulator {
+
+    private final SimulatorProperties properties;
+
+    private DisposableServer server;
+
+    @PostConstruct
+    public void start() {
+        server = HttpServer.create()
+                .host(properties.getHost())
+                .port(properties.getPort())
+                .route(routes -> routes
+                        .post("/api/orders/validate", handler("validate", body -> validationResponse()))
+                        // Echoes the order in whatever encoding the client sent it
+                        .post("/api/orders/process", handler("process", body -> body,
+                                ExternalServiceSimulator::requestContentType))
+                        .post("/api/orders/notify", handler("notify", body -> notificationResponse())))
+                .bindNow();
+
+        log.info("External service simulator listening on {}:{}", properties.getHost(), server.port());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (server != null) {
+            server.disposeNow();
+        }
+    }
+
+    /**
+     * Port the simulator is bound to, useful when configured with port 0
+     */
+    public int port() {
+        return server.port();
+    }
+
+    private BiFunction<HttpServerRequest, HttpServerResponse, Mono<Void>> handler(
+            String endpointName, Function<byte[], byte[]> responseBody) {
+        return handler(endpointName, responseBody, request -> MediaType.APPLICATION_JSON_VALUE);
+    }
+
+    private BiFunction<HttpServerRequest, HttpServerResponse, Mono<Void>> handler(
+            String endpointName, Function<byte[], byte[]> responseBody,
+            Function<HttpServerRequest, String> responseType) {
+        SimulatorProperties.Endpoint endpoint = properties.endpoint(endpointName);
+
+        return (request, response) -> request.receive()
+                .aggregate()
+                .asByteArray()
+                .defaultIfEmpty(new byte[0])
+                .delayUntil(body -> Mono.delay(sampleLatency(endpoint.getLatency())))
+                .flatMap(body -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    if (random.nextDouble() < endpoint.getErrorRate()) {
+                        return response.status(endpoint.getErrorStatus())
+                                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                                .sendString(Mono.just("{\"error\":\"simulated failure\"}"))
+                                .then();
+                    }
+
+                    byte[] payload = "validate".equals(endpointName) && random.nextDouble() < endpoint.getInvalidRate()
+                            ? "{\"valid\":false,\"message\":\"Simulated validation failure\"}"
+                                    .getBytes(StandardCharsets.UTF_8)
+                            : responseBody.apply(body);
+
+                    HttpServerResponse ok = response.status(200)
+                            .header(HttpHeaders.CONTENT_TYPE, responseType.apply(request));
+                    SimulatorProperties.SlowDrip slowDrip = endpoint.getSlowDrip();
+                    if (random.nextDouble() < slowDrip.getRate()) {
+                        return ok.sendByteArray(Flux.fromIterable(chunks(payload, slowDrip.getChunks()))
+                                        .delayElements(slowDrip.getChunkDelay()))
+                                .then();
+                    }
+                    return ok.sendByteArray(Mono.just(payload)).then();
+                });
+    }
+
+    static Duration sampleLatency(SimulatorProperties.Latency latency) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long nanos = switch (latency.getDistribution()) {
+            case FIXED -> latency.getFixed().toNanos();
+            case LOGNORMAL -> (long) (latency.getMedian().toNanos()
+                    * Math.exp(latency.getSigma() * random.nextGaussian()));
+            case BIMODAL -> random.nextDouble() < latency.getSlowProbability()
+                    ? latency.getSlow().toNanos()
+                    : latency.getFast().toNanos();
+        };
+        return Duration.ofNanos(Math.min(Math.max(nanos, 0), latency.getMax().toNanos()));
+    }
+
+    private static List<byte[]> chunks(byte[] payload, int count) {
+        int size = Math.max(1, (payload.length + count - 1) / Math.max(1, count));
+        List<byte[]> chunks = new ArrayList<>();
+        for (int offset = 0; offset < payload.length; offset += size) {
+            chunks.add(Arrays.copyOfRange(payload, offset, Math.min(payload.length, offset + size)));
+        }
+        return chunks;
+    }
+
+    private static String requestContentType(HttpServerRequest request) {
+        String contentType = request.requestHeaders().get(HttpHeaders.CONTENT_TYPE);
+        return contentType != null ? contentType : MediaType.APPLICATION_JSON_VALUE;
+    }
+
+    private static byte[] validationResponse() {
+        return "{\"valid\":true,\"message\":\"Order is valid\"}".getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] notificationResponse() {
+        return ("{\"notificationId\":\"" + UUID.randomUUID()
+                + "\",\"status\":\"SENT\",\"message\":\"Notification sent successfully\"}")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+}
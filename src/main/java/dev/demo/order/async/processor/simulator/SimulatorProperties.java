@@ -0,0 +1,80 @@
+package dev.demo.order.async.processor.simulator;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Behaviour of the embedded external service simulator, per endpoint ({@code validate}, {@code process},
+ * {@code notify}). Endpoints without an entry answer after a fixed 20ms without errors.
+ */
+@Data
+@ConfigurationProperties(prefix = "simulator")
+public class SimulatorProperties {
+
+    private String host = "localhost";
+    private int port = 8089;
+    private Map<String, Endpoint> endpoints = new HashMap<>();
+
+    public Endpoint endpoint(String name) {
+        return endpoints.computeIfAbsent(name, key -> new Endpoint());
+    }
+
+    @Data
+    public static class Endpoint {
+        private Latency latency = new Latency();
+        /**
+         * Fraction of requests answered with {@link #errorStatus}
+         */
+        private double errorRate;
+        private int errorStatus = 503;
+        /**
+         * Fraction of validation requests answered with {@code valid: false}
+         */
+        private double invalidRate;
+        private SlowDrip slowDrip = new SlowDrip();
+    }
+
+    @Data
+    public static class Latency {
+        private Distribution distribution = Distribution.FIXED;
+        /**
+         * Latency of FIXED
+         */
+        private Duration fixed = Duration.ofMillis(20);
+        /**
+         * Median and shape of LOGNORMAL
+         */
+        private Duration median = Duration.ofMillis(20);
+        private double sigma = 0.5;
+        /**
+         * Modes of BIMODAL: {@code fast} most of the time, {@code slow} with {@code slow-probability}
+         */
+        private Duration fast = Duration.ofMillis(10);
+        private Duration slow = Duration.ofMillis(500);
+        private double slowProbability = 0.05;
+        /**
+         * Upper bound applied to every sample
+         */
+        private Duration max = Duration.ofSeconds(60);
+    }
+
+    /**
+     * Responses whose body is written in chunks with a pause between them, after the headers were sent
+     */
+    @Data
+    public static class SlowDrip {
+        private double rate;
+        private int chunks = 10;
+        private Duration chunkDelay = Duration.ofMillis(100);
+    }
+
+    public enum Distribution {
+        FIXED,
+        LOGNORMAL,
+        BIMODAL
+    }
+}
@@ -0,0 +1,102 @@
+package dev.demo.order.async.processor;
+
+import dev.demo.order.async.processor.client.AdaptiveTimeoutRegistry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveTimeoutRegistryTest {
+
+    private static final String ENDPOINT = "externalServiceValidate";
+
+    private SimpleMeterRegistry meterRegistry;
+    private TimeLimiterRegistry timeLimiterRegistry;
+    private AdaptiveTimeoutRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        timeLimiterRegistry = TimeLimiterRegistry.ofDefaults();
+        RetryRegistry retryRegistry = RetryRegistry.of(RetryConfig.custom().maxAttempts(3).build());
+        registry = new AdaptiveTimeoutRegistry(meterRegistry, timeLimiterRegistry, retryRegistry);
+
+        ReflectionTestUtils.setField(registry, "enabled", true);
+        ReflectionTestUtils.setField(registry, "multiplier", 3.0);
+        ReflectionTestUtils.setField(registry, "floor", Duration.ofMillis(50));
+        ReflectionTestUtils.setField(registry, "ceiling", Duration.ofSeconds(2));
+        ReflectionTestUtils.setField(registry, "window", Duration.ofSeconds(60));
+        ReflectionTestUtils.setField(registry, "minSamples", 5L);
+    }
+
+    @Test
+    void currentTimeout_ShouldUseCeilingUntilEnoughSamples() {
+        StepVerifier.create(Mono.just("ok").transformDeferred(registry.timed(ENDPOINT)))
+                .expectNext("ok")
+                .verifyComplete();
+
+        registry.refresh();
+
+        assertEquals(Duration.ofSeconds(2), registry.currentTimeout(ENDPOINT));
+        assertEquals(Duration.ofSeconds(6), registry.budget(ENDPOINT));
+    }
+
+    @Test
+    void refresh_ShouldDeriveTimeoutFromObservedLatency() {
+        for (int i = 0; i < 10; i++) {
+            Mono.just("ok")
+                    .delayElement(Duration.ofMillis(40))
+                    .transformDeferred(registry.timed(ENDPOINT))
+                    .block();
+        }
+
+        registry.refresh();
+
+        Duration timeout = registry.currentTimeout(ENDPOINT);
+        assertTrue(timeout.compareTo(Duration.ofMillis(100)) > 0, "timeout " + timeout);
+        assertTrue(timeout.compareTo(Duration.ofSeconds(2)) < 0, "timeout " + timeout);
+        assertEquals(timeout, timeLimiterRegistry.timeLimiter(ENDPOINT).getTimeLimiterConfig().getTimeoutDuration());
+        assertEquals(timeout.toNanos() / 1_000_000_000.0,
+                meterRegistry.get("external.service.timeout").tag("endpoint", ENDPOINT).gauge().value());
+    }
+
+    @Test
+    void refresh_ShouldKeepTimeoutWhenWindowIsEmpty() throws InterruptedException {
+        ReflectionTestUtils.setField(registry, "window", Duration.ofMillis(300));
+        for (int i = 0; i < 10; i++) {
+            Mono.just("ok")
+                    .delayElement(Duration.ofMillis(40))
+                    .transformDeferred(registry.timed(ENDPOINT))
+                    .block();
+        }
+        registry.refresh();
+        Duration timeout = registry.currentTimeout(ENDPOINT);
+        assertTrue(timeout.compareTo(Duration.ofMillis(100)) > 0, "timeout " + timeout);
+
+        // Idle for longer than the window, so the histogram has expired every sample
+        Thread.sleep(500);
+        registry.refresh();
+
+        assertEquals(timeout, registry.currentTimeout(ENDPOINT));
+    }
+
+    @Test
+    void timed_ShouldFailCallsExceedingCurrentTimeout() {
+        ReflectionTestUtils.setField(registry, "ceiling", Duration.ofMillis(100));
+
+        StepVerifier.create(Mono.never().transformDeferred(registry.timed("externalServiceNotify")))
+                .expectError(TimeoutException.class)
+                .verify(Duration.ofSeconds(2));
+    }
+}
@@ -0,0 +1,32 @@
+package dev.demo.order.async.processor;
+
+import dev.demo.order.async.processor.config.BlockingCallDetector;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.blockhound.BlockingMethod;
+
+import java.lang.reflect.Modifier;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BlockingCallDetectorTest {
+
+    @Test
+    void report_ShouldCountCallsPerMethod() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        BlockingCallDetector detector = new BlockingCallDetector(meterRegistry);
+        ReflectionTestUtils.setField(detector, "stackInterval", Duration.ofMinutes(1));
+
+        BlockingMethod sleep = new BlockingMethod("java.lang.Thread", "sleep", Modifier.STATIC);
+        detector.report(sleep);
+        detector.report(sleep);
+        detector.report(new BlockingMethod("java.io.FileInputStream", "readBytes", 0));
+
+        assertEquals(2, meterRegistry.get("reactor.blocking.calls").tag("method", "java.lang.Thread.sleep")
+                .counter().count());
+        assertEquals(1, meterRegistry.get("reactor.blocking.calls").tag("method", "java.io.FileInputStream.readBytes")
+                .counter().count());
+    }
+}
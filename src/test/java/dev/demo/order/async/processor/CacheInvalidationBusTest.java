@@ -0,0 +1,174 @@
+package dev.demo.order.async.processor;
+
+import dev.demo.order.async.processor.cache.CacheInvalidationBus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.postgresql.PostgresqlConnectionFactory;
+import io.r2dbc.postgresql.api.Notification;
+import io.r2dbc.postgresql.api.PostgresqlConnection;
+import io.r2dbc.postgresql.api.PostgresqlResult;
+import io.r2dbc.postgresql.api.PostgresqlStatement;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.FetchSpec;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class CacheInvalidationBusTest {
+
+    private static final Duration FALLBACK_TTL = Duration.ofSeconds(5);
+
+    private final List<Sinks.Many<Notification>> connections = new CopyOnWriteArrayList<>();
+    private DatabaseClient databaseClient;
+    private CacheInvalidationBus bus;
+    private CacheInvalidationBus.InvalidationHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        PostgresqlConnectionFactory connectionFactory = mock(PostgresqlConnectionFactory.class);
+        when(connectionFactory.create()).thenAnswer(invocation -> Mono.fromSupplier(this::connect));
+        databaseClient = mock(DatabaseClient.class);
+        bus = new CacheInvalidationBus(connectionFactory, databaseClient, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(bus, "enabled", true);
+        ReflectionTestUtils.setField(bus, "batchSize", 100);
+        ReflectionTestUtils.setField(bus, "batchWindow", Duration.ofMillis(100));
+        ReflectionTestUtils.setField(bus, "fallbackTtl", FALLBACK_TTL);
+
+        handler = mock(CacheInvalidationBus.InvalidationHandler.class);
+        bus.register("customer", handler);
+        bus.init();
+        verify(handler, timeout(1000)).recover();
+    }
+
+    @AfterEach
+    void tearDown() {
+        bus.shutdown();
+    }
+
+    @Test
+    void notifications_ShouldBeParsedAndCoalescedToNewestVersion() {
+        UUID id = UUID.randomUUID();
+        UUID unversioned = UUID.randomUUID();
+        notify("customer:" + id + ":3");
+        notify("customer:" + id + ":5");
+        notify("customer:" + id + ":4");
+        notify("customer:not-a-uuid:1");
+        notify("customer:" + unversioned + ":");
+
+        verify(handler, timeout(1000)).invalidate(id, 5L, null);
+        verify(handler, timeout(1000)).invalidate(eq(unversioned), isNull(), isNull());
+        verify(handler, never()).invalidate(id, 3L, null);
+        verify(handler, never()).invalidate(id, 4L, null);
+    }
+
+    @Test
+    void notifications_ShouldCarryDetailOfTheNewestVersion() {
+        UUID id = UUID.randomUUID();
+        notify("customer:" + id + ":2:second:with:separators");
+        notify("customer:" + id + ":2");
+        notify("customer:" + id + ":1:first");
+
+        verify(handler, timeout(1000)).invalidate(id, 2L, "second:with:separators");
+        verify(handler, never()).invalidate(id, 2L, null);
+    }
+
+    @Test
+    void failingHandler_ShouldNotStopTheListener() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        doThrow(new IllegalStateException("handler failed")).when(handler).invalidate(eq(first), anyLong(), isNull());
+
+        notify("customer:" + first + ":1");
+        verify(handler, timeout(1000)).invalidate(first, 1L, null);
+        notify("customer:" + second + ":1");
+
+        verify(handler, timeout(1000)).invalidate(second, 1L, null);
+        assertEquals(1, connections.size());
+    }
+
+    @Test
+    void disconnect_ShouldDegradeCachesUntilReconnected() {
+        // On registration and on start, since nothing has been heard yet
+        verify(handler, times(2)).degrade(FALLBACK_TTL);
+
+        connections.get(0).tryEmitError(new IOException("connection reset"));
+
+        verify(handler, timeout(1000).times(3)).degrade(FALLBACK_TTL);
+        assertFalse(bus.isDelivering());
+        // Reconnected after the backoff, entries that may have missed an invalidation are dropped
+        verify(handler, timeout(5000).times(2)).recover();
+        assertTrue(bus.isDelivering());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void publish_ShouldLeaveOutDetailThatDoesNotFitTheNotification() {
+        DatabaseClient.GenericExecuteSpec spec = mock(DatabaseClient.GenericExecuteSpec.class, RETURNS_SELF);
+        FetchSpec<Map<String, Object>> fetch = mock(FetchSpec.class);
+        when(databaseClient.sql(anyString())).thenReturn(spec);
+        when(spec.fetch()).thenReturn(fetch);
+        when(fetch.rowsUpdated()).thenReturn(Mono.just(1L));
+        UUID id = UUID.randomUUID();
+
+        StepVerifier.create(bus.publish("customer", id, 2L, "x".repeat(8000))).verifyComplete();
+
+        verify(spec).bind("payload", "customer:" + id + ":2");
+    }
+
+    @Test
+    void publish_ShouldSkipTypesWithoutHandler() {
+        StepVerifier.create(bus.publish("order", UUID.randomUUID(), 1L)).verifyComplete();
+
+        verifyNoInteractions(databaseClient);
+        verify(handler, never()).invalidate(any(), any(), any());
+    }
+
+    private void notify(String payload) {
+        Notification notification = mock(Notification.class);
+        when(notification.getParameter()).thenReturn(payload);
+        connections.get(connections.size() - 1).tryEmitNext(notification);
+    }
+
+    private PostgresqlConnection connect() {
+        Sinks.Many<Notification> notifications = Sinks.many().multicast().directBestEffort();
+        PostgresqlResult result = mock(PostgresqlResult.class);
+        when(result.getRowsUpdated()).thenReturn(Mono.just(0L));
+        PostgresqlStatement statement = mock(PostgresqlStatement.class);
+        when(statement.execute()).thenReturn(Flux.just(result));
+        PostgresqlConnection connection = mock(PostgresqlConnection.class);
+        when(connection.createStatement("LISTEN cache_invalidation")).thenReturn(statement);
+        when(connection.getNotifications()).thenReturn(notifications.asFlux());
+        when(connection.close()).thenReturn(Mono.empty());
+        connections.add(notifications);
+        return connection;
+    }
+}
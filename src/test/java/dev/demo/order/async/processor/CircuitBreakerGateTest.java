@@ -0,0 +1,89 @@
+package dev.demo.order.async.processor;
+
+import dev.demo.order.async.processor.client.AdaptiveTimeoutRegistry;
+import dev.demo.order.async.processor.client.ExternalServiceClient;
+import dev.demo.order.async.processor.repository.model.Order;
+import dev.demo.order.async.processor.retry.RetryBudget;
+import dev.demo.order.async.processor.scheduler.CircuitBreakerGate;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CircuitBreakerGateTest {
+
+    private CircuitBreaker validateBreaker;
+    private CircuitBreakerGate gate;
+    private ExternalServiceClient client;
+
+    @BeforeEach
+    void setUp() {
+        CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .slidingWindowSize(4)
+                .minimumNumberOfCalls(4)
+                .build());
+        validateBreaker = registry.circuitBreaker(ExternalServiceClient.VALIDATE);
+        gate = new CircuitBreakerGate(registry, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(gate, "circuitBreakerNames",
+                List.of(ExternalServiceClient.VALIDATE, ExternalServiceClient.PROCESS));
+        ReflectionTestUtils.setField(gate, "halfOpenBatchSize", 5);
+        gate.init();
+
+        // The validation service is down
+        WebClient.Builder webClientBuilder = WebClient.builder().exchangeFunction(
+                request -> Mono.just(ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build()));
+        AdaptiveTimeoutRegistry adaptiveTimeouts = mock(AdaptiveTimeoutRegistry.class);
+        when(adaptiveTimeouts.timed(anyString())).thenReturn(Function.identity());
+        client = new ExternalServiceClient(webClientBuilder, adaptiveTimeouts, mock(RetryBudget.class),
+                ObservationRegistry.NOOP);
+        ReflectionTestUtils.setField(client, "serviceUrl", "http://external-service:8080");
+        ReflectionTestUtils.setField(client, "encoding", "json");
+        client.init();
+    }
+
+    @Test
+    void validateFailures_ShouldOpenTheBreakerAndPauseProcessing() {
+        Order order = Order.builder().id(UUID.randomUUID()).type("STANDARD").build();
+        assertEquals(100, gate.batchSize(100));
+
+        // What the @CircuitBreaker aspect does around the call
+        for (int i = 0; i < 4; i++) {
+            StepVerifier.create(validate(order)).verifyError(WebClientResponseException.ServiceUnavailable.class);
+        }
+
+        assertTrue(gate.isPaused());
+        assertEquals(0, gate.batchSize(100));
+        StepVerifier.create(validate(order)).verifyError(CallNotPermittedException.class);
+
+        validateBreaker.transitionToHalfOpenState();
+        assertFalse(gate.isPaused());
+        assertEquals(5, gate.batchSize(100));
+    }
+
+    private Mono<Boolean> validate(Order order) {
+        return client.validateOrder(order).transformDeferred(CircuitBreakerOperator.of(validateBreaker));
+    }
+}
@@ -0,0 +1,103 @@
+package dev.demo.order.async.processor;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import dev.demo.order.async.processor.repository.model.Order;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and decode throughput of an order in each negotiable encoding. The encode benchmark also reports
+ * {@code encode:bytes}, the bytes written per millisecond; divided by its score that is the size of one
+ * encoded order. Run with {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=CodecBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodecBenchmark {
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    private ObjectMapper mapper;
+    private Order order;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        JsonFactory factory = switch (format) {
+            case "cbor" -> new CBORFactory();
+            case "smile" -> new SmileFactory();
+            default -> new JsonFactory();
+        };
+        mapper = Jackson2ObjectMapperBuilder.json().factory(factory).build();
+
+        LocalDateTime now = LocalDateTime.now();
+        order = Order.builder()
+                .id(UUID.randomUUID())
+                .referenceNumber("ORD-20240101-000042")
+                .type("STANDARD")
+                .status("PENDING")
+                .customerId(UUID.randomUUID())
+                .createdBy("order-generator")
+                .createdAt(now.minusHours(2))
+                .updatedBy("order-processor")
+                .updatedAt(now)
+                .priority(3)
+                .dueDate(now.plusDays(3))
+                .description("Replacement parts for the conveyor line, to be delivered to the north loading dock. ".repeat(12))
+                .metadata("{\"channel\":\"web\",\"campaign\":\"spring-sale\",\"items\":4,\"giftWrap\":false}")
+                .version(7L)
+                .build();
+        encoded = mapper.writeValueAsBytes(order);
+    }
+
+    @Benchmark
+    public byte[] encode(EncodedBytes counters) throws IOException {
+        byte[] bytes = mapper.writeValueAsBytes(order);
+        counters.bytes += bytes.length;
+        return bytes;
+    }
+
+    @Benchmark
+    public Order decode() throws IOException {
+        return mapper.readValue(encoded, Order.class);
+    }
+
+    /**
+     * Bytes written by the encode benchmark, reported alongside its throughput
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class EncodedBytes {
+
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+}
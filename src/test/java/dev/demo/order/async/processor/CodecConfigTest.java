@@ -0,0 +1,97 @@
+package dev.demo.order.async.processor;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import dev.demo.order.async.processor.repository.model.Order;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CodecConfigTest {
+
+    private static final ResolvableType ELEMENT_TYPE = ResolvableType.forClassWithGenerics(Map.class, String.class,
+            Integer.class);
+
+    @Test
+    void listEncoder_ShouldEncodeFluxAsOneCborArray() throws IOException {
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build();
+        CodecConfig.ListEncoder encoder = new CodecConfig.ListEncoder(new Jackson2CborEncoder(mapper));
+
+        JsonNode decoded = mapper.readTree(encode(encoder, Flux.just(Map.of("n", 1), Map.of("n", 2)),
+                MediaType.APPLICATION_CBOR));
+
+        assertTrue(decoded.isArray());
+        assertEquals(List.of(1, 2), List.of(decoded.get(0).get("n").asInt(), decoded.get(1).get("n").asInt()));
+    }
+
+    @Test
+    void listEncoder_ShouldEncodeFluxAsOneSmileArray() throws IOException {
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().factory(new SmileFactory()).build();
+        CodecConfig.ListEncoder encoder = new CodecConfig.ListEncoder(new Jackson2SmileEncoder(mapper));
+
+        JsonNode decoded = mapper.readTree(encode(encoder, Flux.just(Map.of("n", 1), Map.of("n", 2), Map.of("n", 3)),
+                CodecConfig.APPLICATION_SMILE));
+
+        assertTrue(decoded.isArray());
+        assertEquals(3, decoded.size());
+    }
+
+    @Test
+    void listEncoder_ShouldEncodeMonoAsSingleValue() throws IOException {
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build();
+        CodecConfig.ListEncoder encoder = new CodecConfig.ListEncoder(new Jackson2CborEncoder(mapper));
+
+        JsonNode decoded = mapper.readTree(encode(encoder, Mono.just(Map.of("n", 1)), MediaType.APPLICATION_CBOR));
+
+        assertTrue(decoded.isObject());
+        assertEquals(1, decoded.get("n").asInt());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void customizer_ShouldReadAndWriteOrdersInBothBinaryEncodings() {
+        ObjectProvider<Jackson2ObjectMapperBuilder> mapperBuilder = mock(ObjectProvider.class);
+        when(mapperBuilder.getObject()).thenAnswer(invocation -> Jackson2ObjectMapperBuilder.json());
+        ServerCodecConfigurer configurer = ServerCodecConfigurer.create();
+        new CodecConfig().binaryCodecCustomizer(mapperBuilder).customize(configurer);
+        ResolvableType order = ResolvableType.forClass(Order.class);
+
+        for (MediaType mediaType : List.of(MediaType.APPLICATION_CBOR, CodecConfig.APPLICATION_SMILE)) {
+            assertTrue(configurer.getWriters().stream().anyMatch(writer -> writer.canWrite(order, mediaType)),
+                    "No writer for " + mediaType);
+            assertTrue(configurer.getReaders().stream().anyMatch(reader -> reader.canRead(order, mediaType)),
+                    "No reader for " + mediaType);
+        }
+    }
+
+    private static byte[] encode(CodecConfig.ListEncoder encoder, org.reactivestreams.Publisher<?> body,
+                                 MediaType mediaType) {
+        DataBuffer joined = DataBufferUtils.join(encoder.encode(body, DefaultDataBufferFactory.sharedInstance,
+                        ELEMENT_TYPE, mediaType, Map.of()))
+                .block();
+        byte[] bytes = new byte[joined.readableByteCount()];
+        joined.read(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,142 @@
+package dev.demo.order.async.processor;
+
+import dev.demo.order.async.processor.repository.OrderCommunicationRepository;
+import dev.demo.order.async.processor.repository.model.OrderCommunication;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.r2dbc.DataR2dbcTest;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataR2dbcTest
+@Testcontainers
+@ActiveProfiles("test")
+class CommunicationRepositoryIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @DynamicPropertySource
+    static void registerProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.r2dbc.url", () -> String.format("r2dbc:postgresql://%s:%d/%s",
+                postgres.getHost(), postgres.getFirstMappedPort(), postgres.getDatabaseName()));
+        registry.add("spring.r2dbc.username", postgres::getUsername);
+        registry.add("spring.r2dbc.password", postgres::getPassword);
+    }
+
+    @Autowired
+    private OrderCommunicationRepository communicationRepository;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @BeforeEach
+    void setUp() {
+        databaseClient.sql("""
+            CREATE TABLE IF NOT EXISTS order_communications (
+                id UUID PRIMARY KEY,
+                order_id UUID NOT NULL,
+                customer_id UUID NOT NULL,
+                channel VARCHAR(30) NOT NULL,
+                type VARCHAR(50) NOT NULL,
+                direction VARCHAR(10) NOT NULL,
+                sender VARCHAR(255) NOT NULL,
+                recipient VARCHAR(255) NOT NULL,
+                subject VARCHAR(255),
+                message TEXT,
+                status VARCHAR(30) NOT NULL,
+                sent_at TIMESTAMP,
+                delivered_at TIMESTAMP,
+                created_by VARCHAR(100) NOT NULL,
+                created_at TIMESTAMP NOT NULL,
+                updated_at TIMESTAMP,
+                error_message TEXT,
+                external_reference VARCHAR(255),
+                metadata TEXT
+            )
+        """).then().block();
+
+        databaseClient.sql("DELETE FROM order_communications").then().block();
+    }
+
+    @Test
+    void findPageByOrderId_ShouldWalkAllPagesWithoutGapsOrRepeats() {
+        UUID orderId = UUID.randomUUID();
+        UUID customerId = UUID.randomUUID();
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        // Two communications share each creation time, so pages must break ties by id
+        for (int i = 0; i < 7; i++) {
+            insert(orderId, customerId, now.minusMinutes(i / 2));
+        }
+        insert(UUID.randomUUID(), customerId, now);
+
+        List<UUID> seen = new ArrayList<>();
+        UUID after = null;
+        List<OrderCommunication> page;
+        do {
+            page = communicationRepository.findPageByOrderId(orderId, after, 3).collectList().block();
+            page.forEach(communication -> seen.add(communication.getId()));
+            after = page.isEmpty() ? after : page.get(page.size() - 1).getId();
+        } while (page.size() == 3);
+
+        StepVerifier.create(communicationRepository.findByOrderIdOrderByCreatedAtDesc(orderId).count())
+                .expectNext(7L)
+                .verifyComplete();
+        assertEquals(7, seen.size());
+        assertEquals(7, seen.stream().distinct().count());
+    }
+
+    @Test
+    void findPage_ShouldIgnoreCursorOfAnotherOwner() {
+        UUID customerId = UUID.randomUUID();
+        UUID orderId = UUID.randomUUID();
+        LocalDateTime now = LocalDateTime.now();
+        insert(orderId, customerId, now.minusMinutes(1));
+        UUID foreign = insert(UUID.randomUUID(), UUID.randomUUID(), now);
+
+        StepVerifier.create(communicationRepository.findPageByOrderId(orderId, foreign, 10))
+                .verifyComplete();
+        StepVerifier.create(communicationRepository.findPageByCustomerId(customerId, foreign, 10))
+                .verifyComplete();
+        StepVerifier.create(communicationRepository.existsByIdAndOrderId(foreign, orderId))
+                .expectNext(false)
+                .verifyComplete();
+        StepVerifier.create(communicationRepository.existsByIdAndCustomerId(foreign, customerId))
+                .expectNext(false)
+                .verifyComplete();
+    }
+
+    private UUID insert(UUID orderId, UUID customerId, LocalDateTime createdAt) {
+        UUID id = UUID.randomUUID();
+        databaseClient.sql("""
+            INSERT INTO order_communications (id, order_id, customer_id, channel, type, direction, sender,
+                recipient, status, created_by, created_at)
+            VALUES (:id, :orderId, :customerId, 'EMAIL', 'NOTIFICATION', 'OUTBOUND', 'orders@example.com',
+                'customer@example.com', 'SENT', 'test-user', :createdAt)
+        """)
+                .bind("id", id)
+                .bind("orderId", orderId)
+                .bind("customerId", customerId)
+                .bind("createdAt", createdAt)
+                .then()
+                .block();
+        return id;
+    }
+}
@@ -0,0 +1,75 @@
+package dev.demo.order.async.processor;
+
+import dev.demo.order.async.processor.repository.OrderCommunicationRepository;
+import dev.demo.order.async.processor.repository.ProjectionQueries;
+import dev.demo.order.async.processor.repository.model.OrderCommunication;
+import dev.demo.order.async.processor.service.CommunicationService;
+import dev.demo.order.async.processor.service.CommunicationServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.test.publisher.PublisherProbe;
+
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CommunicationServiceTest {
+
+    @Mock
+    private OrderCommunicationRepository communicationRepository;
+
+    @Mock
+    private ProjectionQueries projectionQueries;
+
+    private CommunicationService communicationService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        communicationService = new CommunicationServiceImpl(communicationRepository, projectionQueries);
+    }
+
+    @Test
+    void findCommunicationsByOrder_ShouldRejectCursorOfAnotherOrder() {
+        UUID orderId = UUID.randomUUID();
+        UUID after = UUID.randomUUID();
+        when(communicationRepository.existsByIdAndOrderId(after, orderId)).thenReturn(Mono.just(false));
+        PublisherProbe<OrderCommunication> page = PublisherProbe.empty();
+        when(communicationRepository.findPageByOrderId(orderId, after, 10)).thenReturn(page.flux());
+
+        StepVerifier.create(communicationService.findCommunicationsByOrder(orderId, after, 10))
+                .verifyError(IllegalArgumentException.class);
+        page.assertWasNotSubscribed();
+    }
+
+    @Test
+    void findCommunicationsByCustomer_ShouldPageAfterKnownCursor() {
+        UUID customerId = UUID.randomUUID();
+        UUID after = UUID.randomUUID();
+        OrderCommunication next = OrderCommunication.builder().id(UUID.randomUUID()).customerId(customerId).build();
+        when(communicationRepository.existsByIdAndCustomerId(after, customerId)).thenReturn(Mono.just(true));
+        when(communicationRepository.findPageByCustomerId(customerId, after, 10)).thenReturn(Flux.just(next));
+
+        StepVerifier.create(communicationService.findCommunicationsByCustomer(customerId, after, 10))
+                .expectNext(next)
+                .verifyComplete();
+    }
+
+    @Test
+    void findCommunicationsByCustomer_ShouldNotCheckCursorOfFirstPage() {
+        UUID customerId = UUID.randomUUID();
+        when(communicationRepository.findPageByCustomerId(customerId, null, 10)).thenReturn(Flux.empty());
+
+        StepVerifier.create(communicationService.findCommunicationsByCustomer(customerId, null, 10))
+                .verifyComplete();
+        verify(communicationRepository, never()).existsByIdAndCustomerId(any(), any());
+    }
+}
@@ -0,0 +1,50 @@
+package dev.demo.order.async.processor;
+
+import dev.demo.order.async.processor.cache.CountingBloomFilter;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CountingBloomFilterTest {
+
+    @Test
+    void mightContain_ShouldHaveNoFalseNegativesAndStayNearTargetRate() {
+        CountingBloomFilter filter = CountingBloomFilter.create(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("t:" + i);
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("t:" + i));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (filter.mightContain("e:" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 200, "false positives: " + falsePositives);
+        assertEquals(0.01, filter.expectedFpp(), 0.002);
+    }
+
+    @Test
+    void remove_ShouldOnlyForgetTheRemovedKey() {
+        CountingBloomFilter filter = CountingBloomFilter.create(1_000, 0.01);
+        for (int i = 0; i < 1_000; i++) {
+            filter.add("t:" + i);
+        }
+
+        assertTrue(filter.remove("t:42"));
+        assertFalse(filter.remove("never-added"));
+
+        assertFalse(filter.mightContain("t:42"));
+        for (int i = 0; i < 1_000; i++) {
+            if (i != 42) {
+                assertTrue(filter.mightContain("t:" + i));
+            }
+        }
+        assertEquals(999, filter.size());
+    }
+}
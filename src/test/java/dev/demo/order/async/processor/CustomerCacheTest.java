@@ -0,0 +1,134 @@
+package dev.demo.order.async.processor;
+
+import dev.demo.order.async.processor.cache.CacheInvalidationBus;
+import dev.demo.order.async.processor.cache.CustomerCache;
+import dev.demo.order.async.processor.repository.model.Customer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.reactive.AbstractReactiveTransactionManager;
+import org.springframework.transaction.reactive.GenericReactiveTransaction;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class CustomerCacheTest {
+
+    private static final UUID ID = UUID.randomUUID();
+
+    private CustomerCache cache;
+    private CacheInvalidationBus invalidationBus;
+
+    @BeforeEach
+    void setUp() {
+        invalidationBus = mock(CacheInvalidationBus.class);
+        cache = new CustomerCache(new SimpleMeterRegistry(), invalidationBus);
+        ReflectionTestUtils.setField(cache, "maximumSize", 100L);
+        ReflectionTestUtils.setField(cache, "expireAfterWrite", Duration.ofMinutes(10));
+        cache.init();
+    }
+
+    @Test
+    void put_ShouldNotReplaceNewerVersion() {
+        Customer newer = customer(2L, "TAX-2", "EXT-1");
+        cache.put(newer);
+        cache.put(customer(1L, "TAX-1", "EXT-1"));
+
+        assertSame(newer, cache.getIfPresent(ID));
+        // The stale write must not have indexed its tax id
+        StepVerifier.create(cache.getByTaxId("TAX-1", key -> Mono.empty())).verifyComplete();
+        StepVerifier.create(cache.getByTaxId("TAX-2", notLoaded())).expectNext(newer).verifyComplete();
+        verify(invalidationBus).register(CustomerCache.ENTITY_TYPE, cache);
+    }
+
+    @Test
+    void updateAndDelete_ShouldKeepSecondaryIndexesConsistent() {
+        cache.put(customer(1L, "TAX-1", "EXT-1"));
+        Customer updated = customer(2L, "TAX-2", "EXT-1");
+        cache.put(updated);
+
+        StepVerifier.create(cache.getByTaxId("TAX-1", key -> Mono.empty())).verifyComplete();
+        StepVerifier.create(cache.getByTaxId("TAX-2", notLoaded())).expectNext(updated).verifyComplete();
+        StepVerifier.create(cache.getByExternalId("EXT-1", notLoaded())).expectNext(updated).verifyComplete();
+
+        Customer deleted = customer(3L, "TAX-2", "EXT-1");
+        deleted.setDeleted(true);
+        cache.put(deleted);
+
+        StepVerifier.create(cache.getByTaxId("TAX-2", key -> Mono.empty())).verifyComplete();
+        StepVerifier.create(cache.getByExternalId("EXT-1", key -> Mono.empty())).verifyComplete();
+
+        cache.invalidate(ID);
+        assertNull(cache.getIfPresent(ID));
+    }
+
+    @Test
+    void afterCommit_ShouldApplyOnlyOnceTheTransactionCommits() {
+        TransactionalOperator transactions = TransactionalOperator.create(new NoOpTransactionManager());
+        Customer customer = customer(1L, "TAX-1", "EXT-1");
+
+        StepVerifier.create(transactions.transactional(cache.putAfterCommit(customer)
+                        .then(Mono.fromSupplier(() -> cache.getIfPresent(ID) == null))))
+                .expectNext(true)
+                .verifyComplete();
+        assertSame(customer, cache.getIfPresent(ID));
+
+        StepVerifier.create(transactions.transactional(cache.invalidateAfterCommit(ID)
+                        .then(Mono.error(new IllegalStateException("rolled back")))))
+                .verifyError(IllegalStateException.class);
+        assertSame(customer, cache.getIfPresent(ID));
+
+        // Without a transaction the invalidation is applied right away
+        StepVerifier.create(cache.invalidateAfterCommit(ID)).verifyComplete();
+        assertNull(cache.getIfPresent(ID));
+    }
+
+    private static Customer customer(long version, String taxId, String externalId) {
+        return Customer.builder().id(ID).version(version).taxId(taxId).externalId(externalId).build();
+    }
+
+    private static Function<String, Mono<Customer>> notLoaded() {
+        return key -> Mono.error(new AssertionError("Unexpected load of " + key));
+    }
+
+    /**
+     * Transaction manager with no resource behind it, so transaction synchronization runs as usual
+     */
+    private static final class NoOpTransactionManager extends AbstractReactiveTransactionManager {
+
+        @Override
+        protected Object doGetTransaction(TransactionSynchronizationManager synchronizationManager) {
+            return new Object();
+        }
+
+        @Override
+        protected Mono<Void> doBegin(TransactionSynchronizationManager synchronizationManager, Object transaction,
+                                     TransactionDefinition definition) {
+            return Mono.empty();
+        }
+
+        @Override
+        protected Mono<Void> doCommit(TransactionSynchronizationManager synchronizationManager,
+                                      GenericReactiveTransaction status) {
+            return Mono.empty();
+        }
+
+        @Override
+        protected Mono<Void> doRollback(TransactionSynchronizationManager synchronizationManager,
+                                        GenericReactiveTransaction status) {
+            return Mono.empty();
+        }
+    }
+}
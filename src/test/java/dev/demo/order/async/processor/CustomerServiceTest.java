@@ -0,0 +1,85 @@
+package dev.demo.order.async.processor;
+
+import dev.demo.order.async.processor.cache.CacheInvalidationBus;
+import dev.demo.order.async.processor.cache.CountingBloomFilter;
+import dev.demo.order.async.processor.cache.CustomerCache;
+import dev.demo.order.async.processor.cache.CustomerLookupFilter;
+import dev.demo.order.async.processor.repository.CustomerRepository;
+import dev.demo.order.async.processor.repository.model.Customer;
+import dev.demo.order.async.processor.service.CustomerService;
+import dev.demo.order.async.processor.service.CustomerServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+class CustomerServiceTest {
+
+    @Mock
+    private CustomerRepository customerRepository;
+
+    @Mock
+    private CacheInvalidationBus invalidationBus;
+
+    @Mock
+    private DatabaseClient databaseClient;
+
+    private CustomerLookupFilter lookupFilter;
+    private CustomerService customerService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        CustomerCache customerCache = new CustomerCache(meterRegistry, invalidationBus);
+        ReflectionTestUtils.setField(customerCache, "maximumSize", 100L);
+        ReflectionTestUtils.setField(customerCache, "expireAfterWrite", Duration.ofMinutes(10));
+        customerCache.init();
+
+        lookupFilter = new CustomerLookupFilter(databaseClient, invalidationBus, meterRegistry);
+        ReflectionTestUtils.setField(lookupFilter, "enabled", true);
+        lookupFilter.init();
+        ReflectionTestUtils.setField(lookupFilter, "filter", CountingBloomFilter.create(1_000, 0.01));
+
+        customerService = new CustomerServiceImpl(customerRepository, customerCache, invalidationBus, lookupFilter);
+
+        when(invalidationBus.isDelivering()).thenReturn(true);
+        when(invalidationBus.publish(anyString(), any(), any())).thenReturn(Mono.empty());
+    }
+
+    @Test
+    void deleteCustomer_Twice_ShouldNotRemoveKeysSharedWithOtherCustomers() {
+        Customer deleted = customer("TAX-1", "EXT-1");
+        lookupFilter.add(deleted);
+        when(customerRepository.findById(deleted.getId())).thenReturn(Mono.just(deleted));
+        when(customerRepository.softDeleteCustomer(deleted.getId())).thenReturn(Mono.just(1), Mono.just(0));
+
+        StepVerifier.create(customerService.deleteCustomer(deleted.getId())).expectNext(true).verifyComplete();
+        // The tax id is free again and taken by a new customer, whose keys land on the same counters
+        Customer reusing = customer("TAX-1", "EXT-2");
+        lookupFilter.add(reusing);
+        StepVerifier.create(customerService.deleteCustomer(deleted.getId())).expectNext(false).verifyComplete();
+
+        StepVerifier.create(lookupFilter.findByTaxId("TAX-1", taxId -> Mono.just(reusing)))
+                .expectNext(reusing)
+                .verifyComplete();
+        StepVerifier.create(lookupFilter.findByExternalId("EXT-1", externalId -> Mono.just(deleted)))
+                .verifyComplete();
+    }
+
+    private static Customer customer(String taxId, String externalId) {
+        return Customer.builder().id(UUID.randomUUID()).version(1L).taxId(taxId).externalId(externalId).build();
+    }
+}
@@ -0,0 +1,91 @@
+package dev.demo.order.async.processor;
+
+import dev.demo.order.async.processor.client.AdaptiveTimeoutRegistry;
+import dev.demo.order.async.processor.client.ExternalServiceClient;
+import dev.demo.order.async.processor.repository.model.Order;
+import dev.demo.order.async.processor.retry.RetryBudget;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ExternalServiceClientTest {
+
+    private static final UUID NOTIFICATION_ID = UUID.randomUUID();
+
+    private final List<MediaType> sent = new CopyOnWriteArrayList<>();
+    private volatile HttpStatus validateStatus = HttpStatus.OK;
+    private ExternalServiceClient client;
+
+    @BeforeEach
+    void setUp() {
+        // The peer only understands JSON
+        WebClient.Builder webClientBuilder = WebClient.builder().exchangeFunction(request -> {
+            MediaType contentType = request.headers().getContentType();
+            sent.add(contentType);
+            if (!MediaType.APPLICATION_JSON.equals(contentType)) {
+                return Mono.just(ClientResponse.create(HttpStatus.UNSUPPORTED_MEDIA_TYPE).build());
+            }
+            if (request.url().getPath().endsWith("/validate")) {
+                return Mono.just(ClientResponse.create(validateStatus)
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .body("{\"valid\":false,\"message\":\"Unknown customer\"}")
+                        .build());
+            }
+            return Mono.just(ClientResponse.create(HttpStatus.OK)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .body("{\"notificationId\":\"" + NOTIFICATION_ID + "\",\"status\":\"SENT\"}")
+                    .build());
+        });
+        AdaptiveTimeoutRegistry adaptiveTimeouts = mock(AdaptiveTimeoutRegistry.class);
+        when(adaptiveTimeouts.timed(anyString())).thenReturn(Function.identity());
+
+        client = new ExternalServiceClient(webClientBuilder, adaptiveTimeouts, mock(RetryBudget.class),
+                ObservationRegistry.NOOP);
+        ReflectionTestUtils.setField(client, "serviceUrl", "http://external-service:8080");
+        ReflectionTestUtils.setField(client, "encoding", "cbor");
+        client.init();
+    }
+
+    @Test
+    void post_ShouldFallBackToJsonAfterUnsupportedMediaType() {
+        Order order = Order.builder().id(UUID.randomUUID()).type("STANDARD").build();
+
+        StepVerifier.create(client.notifyOrderComplete(order)).expectNext(NOTIFICATION_ID).verifyComplete();
+        StepVerifier.create(client.notifyOrderComplete(order)).expectNext(NOTIFICATION_ID).verifyComplete();
+
+        // Rejected once in CBOR, then JSON for the retry and every later call
+        assertEquals(List.of(MediaType.APPLICATION_CBOR, MediaType.APPLICATION_JSON, MediaType.APPLICATION_JSON),
+                sent);
+    }
+
+    @Test
+    void validateOrder_ShouldFailOnlyOnAnInvalidVerdict() {
+        Order order = Order.builder().id(UUID.randomUUID()).type("STANDARD").build();
+
+        StepVerifier.create(client.validateOrder(order)).expectNext(false).verifyComplete();
+
+        // An unavailable service is not a verdict, the order must not be marked VALIDATION_FAILED
+        validateStatus = HttpStatus.SERVICE_UNAVAILABLE;
+        StepVerifier.create(client.validateOrder(order))
+                .verifyError(WebClientResponseException.ServiceUnavailable.class);
+    }
+}
@@ -0,0 +1,114 @@
+package dev.demo.order.async.processor;
+
+import dev.demo.order.async.processor.client.AdaptiveTimeoutRegistry;
+import dev.demo.order.async.processor.client.ExternalServiceClient;
+import dev.demo.order.async.processor.repository.model.Order;
+import dev.demo.order.async.processor.retry.RetryBudget;
+import dev.demo.order.async.processor.simulator.ExternalServiceSimulator;
+import dev.demo.order.async.processor.simulator.SimulatorProperties;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ExternalServiceSimulatorTest {
+
+    private ExternalServiceSimulator simulator;
+
+    @AfterEach
+    void tearDown() {
+        if (simulator != null) {
+            simulator.stop();
+        }
+    }
+
+    @Test
+    void simulatorProfile_ShouldBindEndpointBehaviour() throws IOException {
+        StandardEnvironment environment = new StandardEnvironment();
+        new YamlPropertySourceLoader().load("simulator", new ClassPathResource("application-simulator.yml"))
+                .forEach(environment.getPropertySources()::addLast);
+
+        SimulatorProperties properties = new Binder(ConfigurationPropertySources.get(environment))
+                .bind("simulator", SimulatorProperties.class)
+                .get();
+
+        SimulatorProperties.Endpoint process = properties.endpoint("process");
+        assertEquals(SimulatorProperties.Distribution.BIMODAL, process.getLatency().getDistribution());
+        assertEquals(Duration.ofMillis(1500), process.getLatency().getSlow());
+        assertEquals(0.02, process.getErrorRate());
+        assertEquals(0.01, process.getSlowDrip().getRate());
+        assertEquals(SimulatorProperties.Distribution.LOGNORMAL,
+                properties.endpoint("validate").getLatency().getDistribution());
+    }
+
+    @Test
+    void endpoints_ShouldAnswerWithConfiguredLatencyAndErrors() {
+        SimulatorProperties properties = new SimulatorProperties();
+        properties.setPort(0);
+        properties.endpoint("validate").getLatency().setFixed(Duration.ofMillis(200));
+        properties.endpoint("process").setErrorRate(1.0);
+        properties.endpoint("process").setErrorStatus(503);
+        simulator = new ExternalServiceSimulator(properties);
+        simulator.start();
+        WebClient client = WebClient.create("http://localhost:" + simulator.port());
+
+        long start = System.nanoTime();
+        StepVerifier.create(client.post().uri("/api/orders/validate").bodyValue("{}")
+                        .retrieve().bodyToMono(String.class))
+                .expectNext("{\"valid\":true,\"message\":\"Order is valid\"}")
+                .verifyComplete();
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofMillis(200)) >= 0);
+
+        StepVerifier.create(client.post().uri("/api/orders/process").bodyValue("{}")
+                        .exchangeToMono(response -> response.bodyToMono(String.class)
+                                .map(body -> response.statusCode().value() + " " + body)))
+                .expectNext("503 {\"error\":\"simulated failure\"}")
+                .verifyComplete();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void process_ShouldEchoTheOrderInTheEncodingItWasSent() {
+        SimulatorProperties properties = new SimulatorProperties();
+        properties.setPort(0);
+        simulator = new ExternalServiceSimulator(properties);
+        simulator.start();
+        AdaptiveTimeoutRegistry adaptiveTimeouts = mock(AdaptiveTimeoutRegistry.class);
+        when(adaptiveTimeouts.timed(anyString())).thenReturn(Function.identity());
+        ObjectProvider<Jackson2ObjectMapperBuilder> mapperBuilder = mock(ObjectProvider.class);
+        when(mapperBuilder.getObject()).thenAnswer(invocation -> Jackson2ObjectMapperBuilder.json());
+        CodecCustomizer codecs = new CodecConfig().binaryCodecCustomizer(mapperBuilder);
+        ExternalServiceClient client = new ExternalServiceClient(WebClient.builder().codecs(codecs::customize),
+                adaptiveTimeouts, mock(RetryBudget.class), ObservationRegistry.NOOP);
+        ReflectionTestUtils.setField(client, "serviceUrl", "http://localhost:" + simulator.port());
+        ReflectionTestUtils.setField(client, "encoding", "cbor");
+        client.init();
+        Order order = Order.builder().id(UUID.randomUUID()).type("STANDARD").status("PENDING").build();
+
+        StepVerifier.create(client.processOrder(order))
+                .expectNextMatches(processed -> order.getId().equals(processed.getId())
+                        && "PENDING".equals(processed.getStatus()))
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,107 @@
+package dev.demo.order.async.processor;
+
+import dev.demo.order.async.processor.jfr.ClaimEvent;
+import dev.demo.order.async.processor.jfr.ExternalCallEvent;
+import dev.demo.order.async.processor.jfr.FlightRecordingEndpoint;
+import dev.demo.order.async.processor.jfr.StatusTransitionEvent;
+import dev.demo.order.async.processor.repository.model.Order;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FlightRecordingEndpointTest {
+
+    private FlightRecordingEndpoint endpoint;
+
+    @BeforeEach
+    void setUp() {
+        endpoint = new FlightRecordingEndpoint();
+        ReflectionTestUtils.setField(endpoint, "settings", "default");
+        ReflectionTestUtils.setField(endpoint, "maxDuration", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(endpoint, "maxSize", DataSize.ofMegabytes(16));
+    }
+
+    @AfterEach
+    void tearDown() {
+        endpoint.stop();
+    }
+
+    @Test
+    void withoutRecording_ShouldLeaveCallUntouched() {
+        Mono<String> call = Mono.just("valid");
+
+        assertSame(call, ExternalCallEvent.<String>recorded("validate", order()).apply(call));
+        assertEquals(WebEndpointResponse.STATUS_NOT_FOUND, endpoint.stop().getStatus());
+    }
+
+    @Test
+    void recording_ShouldStreamPipelineEvents() throws Exception {
+        Order order = order();
+        assertEquals(WebEndpointResponse.STATUS_OK, endpoint.start(Duration.ofHours(1)).getStatus());
+        assertEquals(HttpStatus.CONFLICT.value(), endpoint.start(null).getStatus());
+
+        ClaimEvent.claimed("order", order.getId(), order.getType(), order.getCreatedAt());
+        StepVerifier.create(Mono.just(true).transformDeferred(ExternalCallEvent.recorded("validate", order)))
+                .expectNext(true)
+                .verifyComplete();
+        StepVerifier.create(Mono.<Integer>error(new IllegalStateException("down"))
+                        .transformDeferred(StatusTransitionEvent.recorded("order", order.getId(), "COMPLETED")))
+                .verifyError(IllegalStateException.class);
+
+        WebEndpointResponse<Resource> response = endpoint.recording();
+        Path file = Files.createTempFile("test-", ".jfr");
+        try (InputStream in = response.getBody().getInputStream()) {
+            Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        Files.delete(file);
+
+        RecordedEvent claim = event(events, "dev.demo.order.Claim");
+        assertEquals(order.getId().toString(), claim.getString("id"));
+        assertTrue(claim.getDuration("queued").toMinutes() >= 5);
+        RecordedEvent call = event(events, "dev.demo.order.ExternalCall");
+        assertEquals("validate", call.getString("endpoint"));
+        assertEquals("STANDARD", call.getString("orderType"));
+        assertEquals("success", call.getString("outcome"));
+        RecordedEvent transition = event(events, "dev.demo.order.StatusTransition");
+        assertEquals("COMPLETED", transition.getString("status"));
+        assertEquals("error", transition.getString("outcome"));
+    }
+
+    private static RecordedEvent event(List<RecordedEvent> events, String name) {
+        return events.stream()
+                .filter(event -> event.getEventType().getName().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No " + name + " event recorded"));
+    }
+
+    private static Order order() {
+        Order order = new Order();
+        order.setId(UUID.randomUUID());
+        order.setType("STANDARD");
+        order.setCreatedAt(LocalDateTime.now().minusMinutes(5));
+        return order;
+    }
+}
@@ -0,0 +1,72 @@
+package dev.demo.order.async.processor;
+
+import dev.demo.order.async.processor.config.MetricsAdvisor;
+import dev.demo.order.async.processor.repository.model.Order;
+import dev.demo.order.async.processor.service.OrderService;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MetricsAdvisorTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private OrderService target;
+    private OrderService proxy;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        target = mock(OrderService.class);
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.addAspect(new MetricsAdvisor(meterRegistry));
+        proxy = factory.getProxy();
+    }
+
+    @Test
+    void mono_ShouldBeTimedFromSubscriptionToCompletion() {
+        when(target.getOrderById(any())).thenReturn(
+                Mono.just(Order.builder().build()).delayElement(Duration.ofMillis(100)));
+
+        Mono<Order> result = proxy.getOrderById(UUID.randomUUID());
+        Timer timer = meterRegistry.get("service.method.timer").tag("method", "getOrderById").timer();
+        assertEquals(0, timer.count());
+
+        StepVerifier.create(result).expectNextCount(1).verifyComplete();
+        assertEquals(1, timer.count());
+        assertTrue(timer.totalTime(TimeUnit.MILLISECONDS) >= 100);
+    }
+
+    @Test
+    void flux_ShouldCountElementsAndErrors() {
+        when(target.findOrdersToProcess(anyInt())).thenReturn(Flux.concat(
+                Flux.just(Order.builder().build(), Order.builder().build()),
+                Flux.error(new IOException("connection reset"))));
+
+        StepVerifier.create(proxy.findOrdersToProcess(10)).expectNextCount(2).verifyError(IOException.class);
+        StepVerifier.create(proxy.findOrdersToProcess(10)).expectNextCount(2).verifyError(IOException.class);
+
+        assertEquals(4, meterRegistry.get("service.method.elements").tag("method", "findOrdersToProcess")
+                .counter().count());
+        assertEquals(2, meterRegistry.get("service.method.errors").tag("exception", "IOException")
+                .counter().count());
+        assertEquals(2, meterRegistry.get("service.method.timer").tag("method", "findOrdersToProcess")
+                .timer().count());
+    }
+}
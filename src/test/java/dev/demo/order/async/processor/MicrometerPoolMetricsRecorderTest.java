@@ -0,0 +1,42 @@
+package dev.demo.order.async.processor;
+
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.CountAtBucket;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MicrometerPoolMetricsRecorderTest {
+
+    @Test
+    void events_ShouldUpdateMetersRegisteredUpFront() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        MicrometerPoolMetricsRecorder recorder = new MicrometerPoolMetricsRecorder(
+                meterRegistry, "r2dbc.pool", Tags.of("db", "postgres"),
+                Duration.ofMillis(5), Duration.ofMillis(100));
+        int meters = meterRegistry.getMeters().size();
+
+        recorder.recordFastPath();
+        recorder.recordSlowPath();
+        recorder.recordAllocationSuccessAndLatency(TimeUnit.MILLISECONDS.toNanos(3));
+        recorder.recordPendingSuccessAndLatency(TimeUnit.MILLISECONDS.toNanos(3));
+        recorder.recordPendingSuccessAndLatency(TimeUnit.MILLISECONDS.toNanos(50));
+
+        assertEquals(meters, meterRegistry.getMeters().size());
+        assertEquals(1, meterRegistry.get("r2dbc.pool.acquire.fast").counter().count());
+        assertEquals(1, meterRegistry.get("r2dbc.pool.allocation.success").timer().count());
+
+        Timer pending = meterRegistry.get("r2dbc.pool.acquire.pending").tag("outcome", "success").timer();
+        assertEquals(2, pending.count());
+        assertArrayEquals(new double[]{1, 2}, Arrays.stream(pending.takeSnapshot().histogramCounts())
+                .mapToDouble(CountAtBucket::count)
+                .toArray());
+    }
+}
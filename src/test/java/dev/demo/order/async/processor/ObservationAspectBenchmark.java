@@ -0,0 +1,154 @@
+package dev.demo.order.async.processor;
+
+import dev.demo.order.async.processor.config.ObservationAspect;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.annotation.Observed;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Method;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of an {@link Observed} call through the previous aspect ({@code legacy}), through
+ * {@link ObservationAspect} observing every call ({@code current}), and sampling 10% of calls
+ * ({@code sampled}). The registry has one handler that reads all key-values, as the tracing and meter
+ * handlers do. Run with {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=ObservationAspectBenchmark};
+ * the gc profiler reports bytes/op as gc.alloc.rate.norm.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ObservationAspectBenchmark {
+
+    @Param({"legacy", "current", "sampled"})
+    private String aspect;
+
+    private Target target;
+    private String id;
+
+    @Setup
+    public void setUp() {
+        ObservationRegistry registry = ObservationRegistry.create();
+        registry.observationConfig().observationHandler(new KeyValueReadingHandler());
+
+        Object advice;
+        if (aspect.equals("legacy")) {
+            advice = new LegacyObservationAspect(registry);
+        } else {
+            ObservationAspect observationAspect = new ObservationAspect(registry);
+            ReflectionTestUtils.setField(observationAspect, "defaultRate", aspect.equals("sampled") ? 0.1 : 1.0);
+            ReflectionTestUtils.setField(observationAspect, "rates", "");
+            observationAspect.init();
+            advice = observationAspect;
+        }
+        AspectJProxyFactory factory = new AspectJProxyFactory(new Target());
+        factory.setProxyTargetClass(true);
+        factory.addAspect(advice);
+        target = factory.getProxy();
+        id = UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    public Object observedCall() {
+        return target.process(id, 42);
+    }
+
+    public static class Target {
+
+        @Observed(name = "benchmark.process", contextualName = "process")
+        public Object process(String id, int attempt) {
+            return id;
+        }
+    }
+
+    static class KeyValueReadingHandler implements ObservationHandler<Observation.Context> {
+
+        @Override
+        public void onStop(Observation.Context context) {
+            context.getAllKeyValues().forEach(keyValue -> keyValue.getValue());
+        }
+
+        @Override
+        public boolean supportsContext(Observation.Context context) {
+            return true;
+        }
+    }
+
+    /**
+     * The aspect as it was before sampling and lazy argument rendering, for comparison
+     */
+    @Aspect
+    public static class LegacyObservationAspect {
+
+        private final ObservationRegistry observationRegistry;
+
+        LegacyObservationAspect(ObservationRegistry observationRegistry) {
+            this.observationRegistry = observationRegistry;
+        }
+
+        @Around("@annotation(io.micrometer.observation.annotation.Observed)")
+        public Object trace(ProceedingJoinPoint joinPoint) throws Throwable {
+            MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+            Method method = signature.getMethod();
+            Observed observed = method.getAnnotation(Observed.class);
+
+            Observation observation = Observation.createNotStarted(observed.name(), observationRegistry)
+                    .contextualName(observed.contextualName())
+                    .lowCardinalityKeyValue("class", joinPoint.getTarget().getClass().getSimpleName())
+                    .lowCardinalityKeyValue("method", method.getName())
+                    .highCardinalityKeyValue("args", getArgsString(joinPoint));
+
+            return observation.observe(() -> {
+                try {
+                    return joinPoint.proceed();
+                } catch (Throwable e) {
+                    throw new RuntimeException(e);
+                }
+            });
+        }
+
+        private String getArgsString(ProceedingJoinPoint joinPoint) {
+            StringBuilder sb = new StringBuilder();
+            Object[] args = joinPoint.getArgs();
+            if (args.length == 0) {
+                return "none";
+            }
+            for (int i = 0; i < args.length; i++) {
+                Object arg = args[i];
+                if (arg == null) {
+                    sb.append("null");
+                } else if (arg instanceof String || arg instanceof Number || arg instanceof Boolean) {
+                    sb.append(arg);
+                } else {
+                    sb.append(arg.getClass().getSimpleName());
+                }
+                if (i < args.length - 1) {
+                    sb.append(", ");
+                }
+            }
+            return sb.toString();
+        }
+    }
+}
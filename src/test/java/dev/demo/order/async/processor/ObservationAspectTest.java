@@ -0,0 +1,98 @@
+package dev.demo.order.async.processor;
+
+import dev.demo.order.async.processor.config.ObservationAspect;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.annotation.Observed;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ObservationAspectTest {
+
+    private final List<Observation.Context> stopped = new ArrayList<>();
+    private ObservationAspect observationAspect;
+    private Target target;
+
+    @BeforeEach
+    void setUp() {
+        ObservationRegistry registry = ObservationRegistry.create();
+        registry.observationConfig().observationHandler(new ObservationHandler<>() {
+            @Override
+            public void onStop(Observation.Context context) {
+                stopped.add(context);
+            }
+
+            @Override
+            public boolean supportsContext(Observation.Context context) {
+                return true;
+            }
+        });
+
+        observationAspect = new ObservationAspect(registry);
+        ReflectionTestUtils.setField(observationAspect, "defaultRate", 1.0);
+        ReflectionTestUtils.setField(observationAspect, "rates", "test.unsampled=0");
+        observationAspect.init();
+
+        AspectJProxyFactory factory = new AspectJProxyFactory(new Target());
+        factory.setProxyTargetClass(true);
+        factory.addAspect(observationAspect);
+        target = factory.getProxy();
+    }
+
+    @Test
+    void observedCall_ShouldRecordKeyValuesAndArgs() {
+        assertEquals("ORD-1", target.sampled("ORD-1", 3));
+
+        assertEquals(1, stopped.size());
+        Observation.Context context = stopped.get(0);
+        assertEquals("test.sampled", context.getName());
+        assertEquals("Target", context.getLowCardinalityKeyValue("class").getValue());
+        assertEquals("sampled", context.getLowCardinalityKeyValue("method").getValue());
+        assertEquals("ORD-1, 3", context.getHighCardinalityKeyValue("args").getValue());
+        assertTrue(context.getAllKeyValues().stream().anyMatch(keyValue -> keyValue.getKey().equals("args")));
+    }
+
+    @Test
+    void unsampledName_ShouldNotBeObserved() {
+        assertEquals("ORD-1", target.unsampled("ORD-1"));
+
+        assertTrue(stopped.isEmpty());
+    }
+
+    @Test
+    void failingCall_ShouldRecordErrorAndRethrow() {
+        assertThrows(IllegalStateException.class, () -> target.failing());
+
+        assertEquals(1, stopped.size());
+        assertInstanceOf(IllegalStateException.class, stopped.get(0).getError());
+    }
+
+    public static class Target {
+
+        @Observed(name = "test.sampled")
+        public String sampled(String id, int attempt) {
+            return id;
+        }
+
+        @Observed(name = "test.unsampled")
+        public String unsampled(String id) {
+            return id;
+        }
+
+        @Observed(name = "test.failing")
+        public void failing() {
+            throw new IllegalStateException("failed");
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package dev.demo.order.async.processor;
+
+import dev.demo.order.async.processor.repository.OrderDocumentRepository;
+import dev.demo.order.async.processor.repository.OrderRepository;
+import dev.demo.order.async.processor.repository.model.OldestOrder;
+import dev.demo.order.async.processor.repository.model.Order;
+import dev.demo.order.async.processor.scheduler.OrderLifecycleMetrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OrderLifecycleMetricsTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private OrderRepository orderRepository;
+    private OrderLifecycleMetrics lifecycleMetrics;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        orderRepository = mock(OrderRepository.class);
+        MetricsConfiguration metricsConfiguration = new MetricsConfiguration(meterRegistry, orderRepository,
+                mock(OrderDocumentRepository.class));
+        metricsConfiguration.init();
+
+        lifecycleMetrics = new OrderLifecycleMetrics(meterRegistry, orderRepository, metricsConfiguration);
+        ReflectionTestUtils.setField(lifecycleMetrics, "orderTypes", List.of("STANDARD", "PRIORITY"));
+        ReflectionTestUtils.setField(lifecycleMetrics, "pendingStatus", "PENDING");
+        ReflectionTestUtils.setField(lifecycleMetrics, "maxAge", Duration.ofHours(24));
+        lifecycleMetrics.init();
+    }
+
+    @Test
+    void claimedAndCompleted_ShouldFeedLifecycleTimersByTypeAndPriority() {
+        Order order = order("PRIORITY", 3, LocalDateTime.now().minusMinutes(5));
+
+        long claimedAt = lifecycleMetrics.claimed(order);
+        lifecycleMetrics.completed(order, claimedAt);
+        lifecycleMetrics.claimed(order("STANDARD", null, LocalDateTime.now()));
+
+        Timer queued = meterRegistry.get("order.lifecycle.queued").tag("type", "PRIORITY").tag("priority", "3")
+                .timer();
+        assertEquals(1, queued.count());
+        assertTrue(queued.totalTime(TimeUnit.MINUTES) >= 5);
+        assertEquals(1, meterRegistry.get("order.lifecycle.processing").tag("type", "PRIORITY")
+                .tag("priority", "3").timer().count());
+        Timer total = meterRegistry.get("order.lifecycle.total").tag("type", "PRIORITY").tag("priority", "3")
+                .timer();
+        assertEquals(1, total.count());
+        assertTrue(total.totalTime(TimeUnit.MINUTES) >= 5);
+        assertEquals(1, meterRegistry.get("order.lifecycle.queued").tag("type", "STANDARD")
+                .tag("priority", "none").timer().count());
+        assertEquals(1, meterRegistry.get("order.processed").counter().count());
+        assertEquals(1, meterRegistry.get("order.processing.time").timer().count());
+    }
+
+    @Test
+    void failed_ShouldCountOrderError() {
+        lifecycleMetrics.failed();
+        lifecycleMetrics.failed();
+
+        assertEquals(2, meterRegistry.get("order.errors").counter().count());
+    }
+
+    @Test
+    void refreshQueueAge_ShouldTrackOldestPendingOrderPerType() {
+        when(orderRepository.findOldestByType(eq("PENDING"), any())).thenReturn(Flux.just(
+                new OldestOrder("STANDARD", LocalDateTime.now().minusMinutes(10)),
+                new OldestOrder("PRIORITY", null)));
+
+        lifecycleMetrics.refreshQueueAge();
+
+        assertTrue(oldestAge("STANDARD") >= Duration.ofMinutes(10).toMillis());
+        assertEquals(0, oldestAge("PRIORITY"));
+
+        // The queue drained: the type comes back with no created_at and the age drops to zero
+        when(orderRepository.findOldestByType(eq("PENDING"), any())).thenReturn(Flux.just(
+                new OldestOrder("STANDARD", null),
+                new OldestOrder("PRIORITY", null)));
+        lifecycleMetrics.refreshQueueAge();
+
+        assertEquals(0, oldestAge("STANDARD"));
+    }
+
+    private double oldestAge(String type) {
+        return meterRegistry.get("order.queue.oldest.age").tag("type", type).timeGauge()
+                .value(TimeUnit.MILLISECONDS);
+    }
+
+    private static Order order(String type, Integer priority, LocalDateTime createdAt) {
+        return Order.builder().id(UUID.randomUUID()).type(type).priority(priority).createdAt(createdAt).build();
+    }
+}
@@ -288,4 +288,55 @@ class OrderRepositoryIntegrationTest {
                 .expectNextCount(0)
                 .verifyComplete();
     }
-}
\ No newline at end of file
+
+    @Test
+    void updateOrderStatus_ShouldIncrementVersion() {
+        Order savedOrder = orderRepository.save(pendingOrder("ORD-VERSION")).block();
+        long version = savedOrder.getVersion();
+
+        orderRepository.updateOrderStatus(savedOrder.getId(), "PROCESSING", "test-updater", LocalDateTime.now())
+                .block();
+        orderRepository.updateOrderStatus(savedOrder.getId(), "COMPLETED", "test-updater", LocalDateTime.now())
+                .block();
+
+        StepVerifier.create(orderRepository.findVersionById(savedOrder.getId()))
+                .expectNext(version + 2)
+                .verifyComplete();
+        StepVerifier.create(orderRepository.findById(savedOrder.getId()))
+                .expectNextMatches(o -> o.getVersion() == version + 2)
+                .verifyComplete();
+    }
+
+    @Test
+    void softDeleteOrder_ShouldIncrementVersion() {
+        Order savedOrder = orderRepository.save(pendingOrder("ORD-VERSION-DELETE")).block();
+        long version = savedOrder.getVersion();
+
+        orderRepository.softDeleteOrder(savedOrder.getId(), "test-deleter", LocalDateTime.now()).block();
+
+        StepVerifier.create(orderRepository.findVersionById(savedOrder.getId()))
+                .expectNext(version + 1)
+                .verifyComplete();
+        // Updating a deleted order matches no row, so the version stays put
+        StepVerifier.create(orderRepository.updateOrderStatus(savedOrder.getId(), "COMPLETED", "test-updater",
+                        LocalDateTime.now()))
+                .expectNext(0)
+                .verifyComplete();
+        StepVerifier.create(orderRepository.findVersionById(savedOrder.getId()))
+                .expectNext(version + 1)
+                .verifyComplete();
+    }
+
+    private static Order pendingOrder(String referenceNumber) {
+        Order order = new Order();
+        order.setId(UUID.randomUUID());
+        order.setReferenceNumber(referenceNumber);
+        order.setType("STANDARD");
+        order.setCreatedAt(LocalDateTime.now());
+        order.setCreatedBy("test-user");
+        order.setCustomerId(UUID.randomUUID());
+        order.setStatus("PENDING");
+        order.setDeleted(false);
+        return order;
+    }
+}
@@ -1,10 +1,15 @@
 package dev.demo.order.async.processor;
 
+import dev.demo.order.async.processor.cache.CacheInvalidationBus;
+import dev.demo.order.async.processor.cache.SingleFlight;
+import dev.demo.order.async.processor.event.OrderStatusEvents;
 import dev.demo.order.async.processor.repository.OrderActionRepository;
 import dev.demo.order.async.processor.repository.OrderRepository;
+import dev.demo.order.async.processor.repository.ProjectionQueries;
 import dev.demo.order.async.processor.repository.model.Order;
 import dev.demo.order.async.processor.service.OrderService;
 import dev.demo.order.async.processor.service.OrderServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
@@ -23,6 +28,8 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class OrderServiceTest {
@@ -33,12 +40,23 @@ class OrderServiceTest {
     @Mock
     private OrderActionRepository actionRepository;
 
+    @Mock
+    private CacheInvalidationBus invalidationBus;
+
+    @Mock
+    private OrderStatusEvents orderStatusEvents;
+
+    @Mock
+    private ProjectionQueries projectionQueries;
+
     private OrderService orderService;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        orderService = new OrderServiceImpl(orderRepository, actionRepository);
+        orderService = new OrderServiceImpl(orderRepository, actionRepository, invalidationBus,
+                new SingleFlight<>("orders", new SimpleMeterRegistry()), orderStatusEvents,
+                projectionQueries);
 
         ReflectionTestUtils.setField(orderService, "pendingStatus", "PENDING");
         ReflectionTestUtils.setField(orderService, "processingStatus", "PROCESSING");
@@ -47,6 +65,9 @@ class OrderServiceTest {
         ReflectionTestUtils.setField(orderService, "maxAge", Duration.ofHours(24));
 
         when(actionRepository.save(any())).thenReturn(Mono.empty());
+        when(invalidationBus.publish(anyString(), any(), any())).thenReturn(Mono.empty());
+        when(invalidationBus.publish(anyString(), any(), any(), any())).thenReturn(Mono.empty());
+        when(orderStatusEvents.publishAfterCommit(any())).thenReturn(Mono.empty());
     }
 
     @Test
@@ -128,6 +149,40 @@ class OrderServiceTest {
                 .verifyComplete();
     }
 
+    @Test
+    void getOrderById_ShouldShareConcurrentLookups() {
+        UUID orderId = UUID.randomUUID();
+        Order order = new Order();
+        order.setId(orderId);
+        order.setStatus("PENDING");
+
+        when(orderRepository.findById(orderId))
+                .thenReturn(Mono.just(order).delayElement(Duration.ofMillis(100)));
+
+        StepVerifier.create(Mono.zip(orderService.getOrderById(orderId), orderService.getOrderById(orderId)))
+                .expectNextMatches(results -> results.getT1() == order && results.getT2() == order)
+                .verifyComplete();
+
+        verify(orderRepository, times(1)).findById(orderId);
+    }
+
+    @Test
+    void getOrdersByIds_ShouldUseOneQuery() {
+        Order first = new Order();
+        first.setId(UUID.randomUUID());
+        Order second = new Order();
+        second.setId(UUID.randomUUID());
+
+        when(orderRepository.findAllByIds(any(UUID[].class)))
+                .thenReturn(Flux.just(first, second));
+
+        StepVerifier.create(orderService.getOrdersByIds(List.of(first.getId(), second.getId(), UUID.randomUUID())))
+                .expectNext(first, second)
+                .verifyComplete();
+
+        verify(orderRepository, times(1)).findAllByIds(any(UUID[].class));
+    }
+
     @Test
     void createOrder_ShouldReturnCreatedOrder() {
         Order input = new Order();
@@ -0,0 +1,126 @@
+package dev.demo.order.async.processor;
+
+import dev.demo.order.async.processor.cache.CacheInvalidationBus;
+import dev.demo.order.async.processor.event.OrderStatusEvent;
+import dev.demo.order.async.processor.event.OrderStatusEvents;
+import dev.demo.order.async.processor.repository.model.Order;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.mockito.Mockito.mock;
+
+class OrderStatusEventsTest {
+
+    private OrderStatusEvents events;
+
+    @BeforeEach
+    void setUp() {
+        events = new OrderStatusEvents(mock(CacheInvalidationBus.class), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(events, "historySize", 10);
+        ReflectionTestUtils.setField(events, "subscriberBuffer", 4);
+        events.init();
+    }
+
+    @Test
+    void stream_ShouldResumeAfterLastEventId() {
+        UUID customerId = UUID.randomUUID();
+        Order order = order(customerId);
+        order.setStatus("PROCESSING");
+        order.setVersion(1L);
+        events.publish(order);
+        String firstEventId = events.stream(order.getId() + ":0").blockFirst().eventId();
+
+        order.setStatus("COMPLETED");
+        order.setVersion(2L);
+        events.publish(order);
+
+        StepVerifier.create(events.streamForCustomer(customerId, firstEventId).take(1))
+                .expectNextMatches(event -> "COMPLETED".equals(event.status())
+                        && event.eventId().equals(order.getId() + ":2"))
+                .verifyComplete();
+    }
+
+    @Test
+    void stream_ShouldReplayHistoryForUnknownLastEventId() {
+        Order order = order(UUID.randomUUID());
+        order.setStatus("PROCESSING");
+        order.setVersion(1L);
+        events.publish(order);
+        order.setStatus("COMPLETED");
+        order.setVersion(2L);
+        events.publish(order);
+
+        // An id seen on another node, which this node never streamed
+        StepVerifier.create(events.stream(UUID.randomUUID() + ":7").map(OrderStatusEvent::status).take(2))
+                .expectNext("PROCESSING", "COMPLETED")
+                .verifyComplete();
+    }
+
+    @Test
+    void publish_ShouldSkipVersionsAlreadyPublished() {
+        Order order = order(UUID.randomUUID());
+        order.setStatus("COMPLETED");
+        order.setVersion(3L);
+        events.publish(order);
+        events.publish(order);
+
+        StepVerifier.create(events.stream(order.getId() + ":0").map(OrderStatusEvent::status)
+                        .take(Duration.ofMillis(100)))
+                .expectNext("COMPLETED")
+                .verifyComplete();
+    }
+
+    @Test
+    void invalidate_ShouldStreamChangesOfOtherNodesFromTheirDetail() {
+        Order local = order(UUID.randomUUID());
+        local.setStatus("PROCESSING");
+        local.setVersion(1L);
+        local.setUpdatedBy("system");
+        local.setUpdatedAt(LocalDateTime.of(2026, 1, 2, 3, 4, 5, 123_456_000));
+        events.publish(local);
+        // Echo of the local change, then a change made on another node by a user with ':' in the name
+        events.invalidate(local.getId(), 1L, OrderStatusEvent.detail(local));
+        Order remote = order(local.getCustomerId());
+        remote.setId(local.getId());
+        remote.setStatus("COMPLETED");
+        remote.setVersion(2L);
+        remote.setUpdatedBy("svc:billing");
+        remote.setUpdatedAt(local.getUpdatedAt().plusSeconds(1));
+        events.invalidate(local.getId(), 2L, OrderStatusEvent.detail(remote));
+        // Invalidations without detail are not status changes
+        events.invalidate(UUID.randomUUID(), 1L, null);
+
+        StepVerifier.create(events.stream(local.getId() + ":1").take(Duration.ofMillis(100)))
+                .expectNext(new OrderStatusEvent(local.getId(), local.getCustomerId(), "COMPLETED", 2L,
+                        "svc:billing", remote.getUpdatedAt()))
+                .verifyComplete();
+    }
+
+    @Test
+    void invalidate_ShouldKeepFieldsWithSeparatorsOrMissing() {
+        Order remote = order(null);
+        remote.setStatus("ON:HOLD");
+        remote.setVersion(4L);
+        remote.setUpdatedBy("svc:billing%20");
+
+        events.invalidate(remote.getId(), 4L, OrderStatusEvent.detail(remote));
+
+        StepVerifier.create(events.stream(remote.getId() + ":0").take(1))
+                .expectNext(new OrderStatusEvent(remote.getId(), null, "ON:HOLD", 4L, "svc:billing%20", null))
+                .verifyComplete();
+    }
+
+    private static Order order(UUID customerId) {
+        Order order = new Order();
+        order.setId(UUID.randomUUID());
+        order.setCustomerId(customerId);
+        return order;
+    }
+}
@@ -0,0 +1,50 @@
+package dev.demo.order.async.processor;
+
+import dev.demo.order.async.processor.controller.PaginationSupport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PaginationSupportTest {
+
+    private PaginationSupport pagination;
+
+    @BeforeEach
+    void setUp() {
+        pagination = new PaginationSupport();
+        ReflectionTestUtils.setField(pagination, "defaultLimit", 100);
+        ReflectionTestUtils.setField(pagination, "maxLimit", 1000);
+    }
+
+    @Test
+    void limit_ShouldDefaultAndAcceptTheAllowedRange() {
+        assertEquals(100, pagination.limit(null));
+        assertEquals(1, pagination.limit(1));
+        assertEquals(1000, pagination.limit(1000));
+    }
+
+    @Test
+    void limit_ShouldRejectPageSizesOutOfRange() {
+        for (int limit : new int[]{0, -1, 1001}) {
+            ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                    () -> pagination.limit(limit));
+            assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+        }
+    }
+
+    @Test
+    void isPaged_ShouldBeTrueWithCursorOrLimit() {
+        assertFalse(pagination.isPaged(null, null));
+        assertTrue(pagination.isPaged(UUID.randomUUID(), null));
+        assertTrue(pagination.isPaged(null, 10));
+    }
+}
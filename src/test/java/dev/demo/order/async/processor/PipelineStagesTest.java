@@ -0,0 +1,71 @@
+package dev.demo.order.async.processor;
+
+import dev.demo.order.async.processor.scheduler.PipelineStages;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PipelineStagesTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private PipelineStages pipelineStages;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        pipelineStages = new PipelineStages(meterRegistry, ObservationRegistry.create());
+        ReflectionTestUtils.setField(pipelineStages, "windowMillis", 60000L);
+        ReflectionTestUtils.setField(pipelineStages, "recentRuns", 10);
+        pipelineStages.init();
+    }
+
+    @Test
+    void tracedRun_ShouldRecordWaterfallOfItsStages() {
+        UUID orderId = UUID.randomUUID();
+        Mono<Boolean> pipeline = Mono.delay(Duration.ofMillis(50))
+                .transformDeferred(pipelineStages.stage(PipelineStages.VALIDATE))
+                .flatMap(ignored -> Mono.<Boolean>error(new IllegalStateException("process failed"))
+                        .transformDeferred(pipelineStages.stage(PipelineStages.PROCESS)))
+                .onErrorReturn(false)
+                .transformDeferred(pipelineStages.traced(orderId));
+
+        StepVerifier.create(pipeline).expectNext(false).verifyComplete();
+
+        PipelineStages.Waterfall run = pipelineStages.snapshot().recent().get(0);
+        assertEquals(orderId, run.orderId());
+        assertEquals("error", run.outcome());
+        assertEquals(2, run.stages().size());
+        assertEquals(PipelineStages.VALIDATE, run.stages().get(0).stage());
+        assertTrue(run.stages().get(0).durationMs() >= 50);
+        assertEquals("error", run.stages().get(1).outcome());
+        assertTrue(run.stages().get(1).offsetMs() >= run.stages().get(0).durationMs());
+    }
+
+    @Test
+    void rotate_ShouldPublishPercentilesOfTheWindow() {
+        StepVerifier.create(Mono.delay(Duration.ofMillis(50))
+                        .transformDeferred(pipelineStages.stage(PipelineStages.NOTIFY)))
+                .expectNextCount(1)
+                .verifyComplete();
+        assertEquals(0, pipelineStages.snapshot().stages().get(PipelineStages.NOTIFY).count());
+
+        pipelineStages.rotate();
+
+        PipelineStages.StageSummary notify = pipelineStages.snapshot().stages().get(PipelineStages.NOTIFY);
+        assertEquals(1, notify.count());
+        assertTrue(notify.p50Ms() >= 50);
+        assertTrue(meterRegistry.get("order.pipeline.stage.latency.max").tag("stage", PipelineStages.NOTIFY)
+                .timeGauge().value(TimeUnit.MILLISECONDS) >= 50);
+    }
+}
@@ -0,0 +1,138 @@
+package dev.demo.order.async.processor;
+
+import dev.demo.order.async.processor.config.GlobalExceptionHandler;
+import dev.demo.order.async.processor.controller.CommunicationController;
+import dev.demo.order.async.processor.controller.PaginationSupport;
+import dev.demo.order.async.processor.repository.OrderCommunicationRepository;
+import dev.demo.order.async.processor.repository.ProjectionQueries;
+import dev.demo.order.async.processor.repository.model.OrderCommunication;
+import dev.demo.order.async.processor.service.CommunicationService;
+import dev.demo.order.async.processor.service.CommunicationServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import io.r2dbc.spi.Statement;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProjectionQueriesTest {
+
+    private static final UUID ID = UUID.randomUUID();
+
+    private final List<String> statements = new CopyOnWriteArrayList<>();
+    private ProjectionQueries projectionQueries;
+    private OrderCommunicationRepository communicationRepository;
+    private CommunicationService communicationService;
+
+    @BeforeEach
+    void setUp() {
+        Row row = mock(Row.class);
+        when(row.get("id", UUID.class)).thenReturn(ID);
+        when(row.get("status", String.class)).thenReturn("SENT");
+        Result result = mock(Result.class);
+        doAnswer(invocation -> Flux.just(invocation.<Function<Row, ?>>getArgument(0).apply(row)))
+                .when(result).map(any(Function.class));
+        doAnswer(invocation -> Flux.just(invocation.<BiFunction<Row, RowMetadata, ?>>getArgument(0)
+                .apply(row, mock(RowMetadata.class))))
+                .when(result).map(any(BiFunction.class));
+        Connection connection = mock(Connection.class);
+        when(connection.createStatement(anyString())).thenAnswer(invocation -> {
+            statements.add(invocation.getArgument(0));
+            Statement statement = mock(Statement.class, RETURNS_SELF);
+            doReturn(Flux.just(result)).when(statement).execute();
+            return statement;
+        });
+        doReturn(Mono.empty()).when(connection).close();
+        ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+        ConnectionFactoryMetadata metadata = mock(ConnectionFactoryMetadata.class);
+        when(metadata.getName()).thenReturn("PostgreSQL");
+        when(connectionFactory.getMetadata()).thenReturn(metadata);
+        doReturn(Mono.just(connection)).when(connectionFactory).create();
+
+        projectionQueries = new ProjectionQueries(new R2dbcEntityTemplate(connectionFactory));
+        communicationRepository = mock(OrderCommunicationRepository.class);
+        communicationService = new CommunicationServiceImpl(communicationRepository, projectionQueries);
+    }
+
+    @Test
+    void select_ShouldReadOnlyRequestedColumnsAndAlwaysTheId() {
+        StepVerifier.create(projectionQueries.select(OrderCommunication.class, List.of("status", " id", ""),
+                        "order_id = :ownerId", "created_at DESC, id DESC", null, Map.of("ownerId", UUID.randomUUID())))
+                .expectNext(Map.of("id", ID, "status", "SENT"))
+                .verifyComplete();
+
+        assertEquals(List.of("SELECT id, status FROM order_communications WHERE order_id = $1"
+                + " ORDER BY created_at DESC, id DESC"), statements);
+    }
+
+    @Test
+    void select_ShouldRejectUnknownField() {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> projectionQueries.select(OrderCommunication.class, List.of("status", "password"),
+                        "order_id = :ownerId", "id", null, Map.of("ownerId", UUID.randomUUID())));
+
+        assertEquals("Unknown field: password", exception.getMessage());
+        assertEquals(List.of(), statements);
+    }
+
+    @Test
+    void findCommunicationFields_ShouldPageAfterCursorWithLimit() {
+        UUID orderId = UUID.randomUUID();
+        UUID after = UUID.randomUUID();
+        when(communicationRepository.existsByIdAndOrderId(after, orderId)).thenReturn(Mono.just(true));
+
+        StepVerifier.create(communicationService.findCommunicationFieldsByOrder(orderId, List.of("status"), after, 50))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertEquals(1, statements.size());
+        String sql = statements.get(0);
+        assertEquals("SELECT id, status FROM order_communications WHERE order_id = $1 AND (created_at, id) <"
+                + " (SELECT created_at, id FROM order_communications WHERE id = $2 AND order_id = $1)"
+                + " ORDER BY created_at DESC, id DESC LIMIT 50", sql);
+    }
+
+    @Test
+    void unknownField_ShouldAnswerBadRequest() {
+        PaginationSupport pagination = new PaginationSupport();
+        ReflectionTestUtils.setField(pagination, "defaultLimit", 100);
+        ReflectionTestUtils.setField(pagination, "maxLimit", 1000);
+        WebTestClient client = WebTestClient
+                .bindToController(new CommunicationController(communicationService, pagination))
+                .controllerAdvice(new GlobalExceptionHandler(new SimpleMeterRegistry()))
+                .build();
+
+        client.get().uri("/api/communications/order/{orderId}?fields=status,password", UUID.randomUUID())
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo("Unknown field: password");
+        assertEquals(List.of(), statements);
+    }
+}
@@ -0,0 +1,106 @@
+package dev.demo.order.async.processor;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
+import io.r2dbc.proxy.ProxyConnectionFactory;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Statement;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Hooks;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class QueryMetricsListenerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ObservationRegistry observationRegistry;
+    private DatabaseClient databaseClient;
+
+    @BeforeAll
+    static void enableContextPropagation() {
+        Hooks.enableAutomaticContextPropagation();
+    }
+
+    @AfterAll
+    static void disableContextPropagation() {
+        Hooks.disableAutomaticContextPropagation();
+    }
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        observationRegistry = ObservationRegistry.create();
+        observationRegistry.observationConfig().observationHandler(context -> true);
+
+        Result result = mock(Result.class);
+        doReturn(Flux.just(1, 2, 3)).when(result).map(any(Function.class));
+        doReturn(Flux.just(1, 2, 3)).when(result).map(any(BiFunction.class));
+        Statement statement = mock(Statement.class);
+        doReturn(Flux.just(result).publishOn(Schedulers.parallel())).when(statement).execute();
+        Connection connection = mock(Connection.class);
+        when(connection.createStatement(anyString())).thenReturn(statement);
+        doReturn(Mono.empty()).when(connection).close();
+        ConnectionFactory driver = mock(ConnectionFactory.class);
+        ConnectionFactoryMetadata metadata = mock(ConnectionFactoryMetadata.class);
+        when(metadata.getName()).thenReturn("PostgreSQL");
+        when(driver.getMetadata()).thenReturn(metadata);
+        doReturn(Mono.just(connection).publishOn(Schedulers.boundedElastic())).when(driver).create();
+
+        databaseClient = DatabaseClient.create(ProxyConnectionFactory.builder(driver)
+                .listener(new QueryMetricsListener(meterRegistry, observationRegistry))
+                .build());
+    }
+
+    @Test
+    void statement_ShouldBeRecordedUnderItsOrigin() {
+        Mono<Long> query = databaseClient.sql("SELECT id FROM orders").map(row -> row).all().count()
+                .contextWrite(context -> context.put(QueryMetricsListener.ORIGIN, "OrderRepository.findDue"));
+
+        StepVerifier.create(query).expectNext(3L).verifyComplete();
+        StepVerifier.create(databaseClient.sql("SELECT 1").map(row -> row).all()).expectNextCount(3)
+                .verifyComplete();
+
+        assertEquals(1, meterRegistry.get("db.query").tag("origin", "OrderRepository.findDue")
+                .tag("outcome", "success").timer().count());
+        assertEquals(3, meterRegistry.get("db.query.rows").tag("origin", "OrderRepository.findDue")
+                .summary().totalAmount());
+        assertEquals(1, meterRegistry.get("db.connection.held").tag("origin", "OrderRepository.findDue")
+                .timer().count());
+        assertEquals(1, meterRegistry.get("db.query").tag("origin", "unknown").tag("outcome", "success")
+                .timer().count());
+    }
+
+    @Test
+    void statements_ShouldCountAsRoundTripsOfCurrentObservation() {
+        Observation observation = Observation.start("order.pipeline", observationRegistry);
+        Mono<Long> queries = databaseClient.sql("SELECT 1").map(row -> row).all().count()
+                .then(databaseClient.sql("SELECT 2").map(row -> row).all().count())
+                .contextWrite(context -> context.put(ObservationThreadLocalAccessor.KEY, observation));
+
+        StepVerifier.create(queries).expectNext(3L).verifyComplete();
+        observation.stop();
+
+        assertEquals(2, QueryMetricsListener.roundTrips(observation.getContext()));
+    }
+}
@@ -0,0 +1,72 @@
+package dev.demo.order.async.processor;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import dev.demo.order.async.processor.logging.RateLimitingTurboFilter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimitingTurboFilterTest {
+
+    private final LoggerContext loggerContext = new LoggerContext();
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+    private RateLimitingTurboFilter filter;
+    private Logger logger;
+
+    @BeforeEach
+    void setUp() {
+        filter = new RateLimitingTurboFilter();
+        filter.setContext(loggerContext);
+        filter.setPermits(2);
+        filter.setWindow(60_000);
+        filter.start();
+        loggerContext.addTurboFilter(filter);
+
+        appender.setContext(loggerContext);
+        appender.start();
+        logger = loggerContext.getLogger("test");
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        loggerContext.stop();
+    }
+
+    @Test
+    void template_ShouldBeLimitedPerWindow() {
+        for (int i = 0; i < 5; i++) {
+            logger.info("Updated order {} status to {}", i, "COMPLETED");
+        }
+        logger.info("Processing order {}", 1);
+        logger.warn("Updated order {} status to {}", 9, "ERROR");
+
+        assertEquals(4, appender.list.size());
+        assertEquals("Processing order 1", appender.list.get(2).getFormattedMessage());
+    }
+
+    @Test
+    void endedWindow_ShouldBeSummarized() throws InterruptedException {
+        for (int i = 0; i < 5; i++) {
+            logger.info("Updated order {} status to {}", i, "COMPLETED");
+        }
+        appender.list.clear();
+
+        // Shortened only now, so a slow loop can't end the window early
+        filter.setWindow(50);
+        Thread.sleep(100);
+        logger.info("Updated order {} status to {}", 5, "COMPLETED");
+
+        ILoggingEvent summary = appender.list.get(0);
+        assertEquals(RateLimitingTurboFilter.SUPPRESSED, summary.getMarkerList().get(0).getName());
+        assertTrue(summary.getFormattedMessage().startsWith("Suppressed 3 log events"),
+                summary.getFormattedMessage());
+        assertEquals("Updated order 5 status to COMPLETED", appender.list.get(1).getFormattedMessage());
+    }
+}
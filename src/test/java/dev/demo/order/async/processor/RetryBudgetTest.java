@@ -0,0 +1,104 @@
+package dev.demo.order.async.processor;
+
+import dev.demo.order.async.processor.retry.BudgetedRetryRegistry;
+import dev.demo.order.async.processor.retry.RetryBudget;
+import io.github.resilience4j.reactor.retry.RetryOperator;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RetryBudgetTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private RetryBudget retryBudget;
+    private RetryRegistry retryRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        retryBudget = new RetryBudget(meterRegistry);
+        ReflectionTestUtils.setField(retryBudget, "enabled", true);
+        ReflectionTestUtils.setField(retryBudget, "ratio", 0.5);
+        ReflectionTestUtils.setField(retryBudget, "maxTokens", 2);
+        retryBudget.init();
+
+        RetryConfig config = RetryConfig.custom()
+                .maxAttempts(3)
+                .waitDuration(Duration.ofMillis(1))
+                .retryExceptions(IOException.class)
+                .build();
+        retryRegistry = new BudgetedRetryRegistry(config, retryBudget);
+    }
+
+    @Test
+    void retries_ShouldStopOnceBudgetIsSpent() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        // Two tokens: the first call retries twice, the second is not retried at all
+        StepVerifier.create(failing(attempts).transformDeferred(RetryOperator.of(retryRegistry.retry("op"))))
+                .expectError(IOException.class)
+                .verify();
+        assertEquals(3, attempts.getAndSet(0));
+
+        StepVerifier.create(failing(attempts).transformDeferred(RetryOperator.of(retryRegistry.retry("op"))))
+                .expectError(IOException.class)
+                .verify();
+        assertEquals(1, attempts.get());
+
+        assertEquals(2.0, meterRegistry.get("retry.budget.granted").tag("operation", "op").counter().count());
+        // The last attempt of the first call already found the budget empty
+        assertEquals(2.0, meterRegistry.get("retry.budget.denied").tag("operation", "op").counter().count());
+    }
+
+    @Test
+    void successes_ShouldRefillBudget() {
+        AtomicInteger attempts = new AtomicInteger();
+        StepVerifier.create(failing(attempts).transformDeferred(RetryOperator.of(retryRegistry.retry("op"))))
+                .expectError(IOException.class)
+                .verify();
+
+        retryBudget.recordSuccess();
+        retryBudget.recordSuccess();
+
+        assertEquals(1.0, meterRegistry.get("retry.budget.tokens").gauge().value());
+        attempts.set(0);
+        StepVerifier.create(failing(attempts).transformDeferred(RetryOperator.of(retryRegistry.retry("op"))))
+                .expectError(IOException.class)
+                .verify();
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    void nonRetryableErrors_ShouldNotTouchBudget() {
+        AtomicInteger attempts = new AtomicInteger();
+        Mono<String> failing = Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.error(new IllegalStateException("boom"));
+        });
+
+        StepVerifier.create(failing.transformDeferred(RetryOperator.of(retryRegistry.retry("other"))))
+                .expectError(IllegalStateException.class)
+                .verify();
+
+        assertEquals(1, attempts.get());
+        assertEquals(2.0, meterRegistry.get("retry.budget.tokens").gauge().value());
+    }
+
+    private static Mono<String> failing(AtomicInteger attempts) {
+        return Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.error(new IOException("unavailable"));
+        });
+    }
+}
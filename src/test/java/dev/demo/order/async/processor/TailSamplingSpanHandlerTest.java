@@ -0,0 +1,156 @@
+package dev.demo.order.async.processor;
+
+import brave.Span;
+import brave.Tracer;
+import brave.Tracing;
+import brave.handler.MutableSpan;
+import brave.handler.SpanHandler;
+import brave.propagation.TraceContext;
+import dev.demo.order.async.processor.config.TailSamplingSpanHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TailSamplingSpanHandlerTest {
+
+    private final List<MutableSpan> exported = new CopyOnWriteArrayList<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private TailSamplingSpanHandler handler;
+    private Tracing tracing;
+    private Tracer tracer;
+
+    @BeforeEach
+    void setUp() {
+        handler = new TailSamplingSpanHandler(meterRegistry);
+        ReflectionTestUtils.setField(handler, "enabled", true);
+        ReflectionTestUtils.setField(handler, "window", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(handler, "rate", 0.0);
+        ReflectionTestUtils.setField(handler, "maxSpans", 100);
+        ReflectionTestUtils.setField(handler, "defaultLatencyThreshold", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(handler, "latencyThresholds", "slow-call=100ms");
+        ReflectionTestUtils.setField(handler, "keepOrderTypes", Set.of("URGENT"));
+        handler.init();
+
+        // Wired like Boot does: every SpanHandler bean, this one included, before the customizers run
+        Tracing.Builder builder = Tracing.newBuilder().addSpanHandler(new SpanHandler() {
+            @Override
+            public boolean end(TraceContext context, MutableSpan span, Cause cause) {
+                exported.add(span);
+                return true;
+            }
+        }).addSpanHandler(handler);
+        handler.customize(builder);
+        tracing = builder.build();
+        tracer = tracing.tracer();
+    }
+
+    @AfterEach
+    void tearDown() {
+        tracing.close();
+    }
+
+    @Test
+    void failedChild_ShouldKeepWholeTrace() {
+        Span root = tracer.newTrace().name("root").start();
+        tracer.newChild(root.context()).name("ok").start().finish();
+        tracer.newChild(root.context()).name("failing").start().error(new IllegalStateException("down")).finish();
+
+        assertTrue(exported.isEmpty());
+        root.finish();
+
+        assertEquals(3, exported.size());
+        assertEquals(1, meterRegistry.get("tracing.tail.traces").tag("reason", "error").counter().count());
+        assertEquals(0, meterRegistry.get("tracing.tail.buffered.spans").gauge().value());
+    }
+
+    @Test
+    void urgentOrSlowTraces_ShouldBeKept() {
+        Span urgent = tracer.newTrace().name("root").start();
+        tracer.newChild(urgent.context()).name("validateOrder").tag(TailSamplingSpanHandler.ORDER_TYPE_TAG, "URGENT")
+                .start().finish();
+        urgent.finish();
+
+        Span slow = tracer.newTrace().name("slow-call").start(1_000_000);
+        slow.finish(1_000_000 + 150_000);
+        // A lone root may still get children, so it waits for the window
+        assertEquals(2, exported.size());
+        ReflectionTestUtils.setField(handler, "window", Duration.ZERO);
+        handler.sweep();
+
+        assertEquals(3, exported.size());
+        assertEquals(1, meterRegistry.get("tracing.tail.traces").tag("reason", "order_type").counter().count());
+        assertEquals(1, meterRegistry.get("tracing.tail.traces").tag("reason", "slow").counter().count());
+    }
+
+    @Test
+    void unremarkableTrace_ShouldBeDroppedUnlessSampled() {
+        Span root = tracer.newTrace().name("root").start();
+        tracer.newChild(root.context()).name("validateOrder").tag(TailSamplingSpanHandler.ORDER_TYPE_TAG, "STANDARD")
+                .start().finish();
+        root.finish();
+
+        assertTrue(exported.isEmpty());
+        assertEquals(2, meterRegistry.get("tracing.tail.spans.dropped").tag("reason", "unsampled").counter().count());
+
+        ReflectionTestUtils.setField(handler, "rate", 1.0);
+        ReflectionTestUtils.setField(handler, "window", Duration.ZERO);
+        tracer.newTrace().name("root").start().finish();
+        handler.sweep();
+
+        assertEquals(1, exported.size());
+    }
+
+    @Test
+    void traceWithoutFinishedRoot_ShouldBeDecidedAfterWindow() {
+        ReflectionTestUtils.setField(handler, "window", Duration.ZERO);
+        Span root = tracer.newTrace().name("root").start();
+        tracer.newChild(root.context()).name("failing").start().error(new IllegalStateException("down")).finish();
+
+        handler.sweep();
+        assertEquals(1, exported.size());
+
+        // The root follows the decision of its trace
+        root.finish();
+        assertEquals(2, exported.size());
+    }
+
+    @Test
+    void rootFinishingFirst_ShouldWaitForItsChildren() {
+        // Like a scheduled method that subscribes to its pipeline and returns
+        Span root = tracer.newTrace().name("processOrders").start();
+        Span first = tracer.newChild(root.context()).name("order.pipeline").start();
+        root.finish();
+        first.finish();
+        // A later stage starts only after the trace was briefly idle
+        tracer.newChild(root.context()).name("order.pipeline").start()
+                .error(new IllegalStateException("down")).finish();
+
+        assertTrue(exported.isEmpty());
+        ReflectionTestUtils.setField(handler, "window", Duration.ZERO);
+        handler.sweep();
+
+        assertEquals(3, exported.size());
+        assertEquals(1, meterRegistry.get("tracing.tail.traces").tag("reason", "error").counter().count());
+        assertEquals(0, meterRegistry.get("tracing.tail.buffered.spans").gauge().value());
+    }
+
+    @Test
+    void customize_ShouldNotForwardToItself() {
+        ReflectionTestUtils.setField(handler, "rate", 1.0);
+        Span root = tracer.newTrace().name("root").start();
+        tracer.newChild(root.context()).name("child").start().finish();
+        root.finish();
+
+        assertEquals(2, exported.size());
+    }
+}
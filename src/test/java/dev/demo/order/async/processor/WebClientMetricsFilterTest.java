@@ -0,0 +1,120 @@
+package dev.demo.order.async.processor;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.codec.HttpMessageWriter;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.mock.http.client.reactive.MockClientHttpRequest;
+import org.springframework.web.reactive.function.BodyInserter;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WebClientMetricsFilterTest {
+
+    private static final String TEMPLATE = "http://external-service:8080/api/orders/{id}/validate";
+
+    private SimpleMeterRegistry meterRegistry;
+    private WebClientMetricsFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new WebClientMetricsFilter(meterRegistry);
+    }
+
+    @Test
+    void requests_ShouldShareMetersPerPathTemplateAndStatus() {
+        exchange("1", HttpStatus.OK, Duration.ZERO);
+        exchange("2", HttpStatus.OK, Duration.ZERO);
+        exchange("3", HttpStatus.INTERNAL_SERVER_ERROR, Duration.ZERO);
+
+        assertEquals(2, meterRegistry.find("webclient.request").timers().size());
+        Timer ok = meterRegistry.get("webclient.request")
+                .tag("method", "POST")
+                .tag("host", "external-service")
+                .tag("path", "/api/orders/{id}/validate")
+                .tag("status", "200")
+                .timer();
+        assertEquals(2, ok.count());
+        assertEquals(1, meterRegistry.get("webclient.request").tag("status", "500").timer().count());
+        assertEquals(3, meterRegistry.get("webclient.request.acquire").timer().count());
+    }
+
+    @Test
+    void connectionWait_ShouldBeRecordedAsAcquireNotLatency() {
+        exchange("1", HttpStatus.OK, Duration.ofMillis(100));
+
+        assertTrue(meterRegistry.get("webclient.request.acquire").timer()
+                .totalTime(TimeUnit.MILLISECONDS) >= 100);
+        assertTrue(meterRegistry.get("webclient.request").timer().totalTime(TimeUnit.MILLISECONDS) < 100);
+    }
+
+    @Test
+    void bodySizes_ShouldBeCountedAsTheyAreWrittenAndRead() {
+        exchange("1", HttpStatus.OK, Duration.ZERO);
+
+        assertEquals(7, meterRegistry.get("webclient.request.size").summary().totalAmount());
+        assertEquals(11, meterRegistry.get("webclient.response.size").summary().totalAmount());
+    }
+
+    /**
+     * Send a request with a 7 byte body through the filter. The exchange waits for {@code acquire}, as if for
+     * a pooled connection, then writes the body and answers with an 11 byte body.
+     */
+    private void exchange(String id, HttpStatus status, Duration acquire) {
+        ClientRequest request = ClientRequest.create(HttpMethod.POST,
+                        URI.create("http://external-service:8080/api/orders/" + id + "/validate"))
+                .attribute(WebClient.class.getName() + ".uriTemplate", TEMPLATE)
+                .body(BodyInserters.fromValue("payload"))
+                .build();
+        ExchangeFunction connection = sent -> {
+            MockClientHttpRequest outgoing = new MockClientHttpRequest(sent.method(), sent.url());
+            return Mono.delay(acquire)
+                    .then(sent.body().insert(outgoing, new WritersContext()))
+                    .then(Mono.fromSupplier(() -> ClientResponse.create(status).body("hello world").build()));
+        };
+
+        StepVerifier.create(filter.filter(request, connection)
+                        .flatMap(response -> response.bodyToMono(String.class)))
+                .expectNext("hello world")
+                .verifyComplete();
+    }
+
+    private static final class WritersContext implements BodyInserter.Context {
+
+        @Override
+        public List<HttpMessageWriter<?>> messageWriters() {
+            return ExchangeStrategies.withDefaults().messageWriters();
+        }
+
+        @Override
+        public Optional<ServerHttpRequest> serverRequest() {
+            return Optional.empty();
+        }
+
+        @Override
+        public Map<String, Object> hints() {
+            return Map.of();
+        }
+    }
+}